@@ -16,6 +16,8 @@ package io.opentracing.contrib.jms;
 
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.SpanJmsDecorator;
 import io.opentracing.contrib.jms.common.TracingMessageUtils;
 import javax.jms.Destination;
@@ -30,10 +32,17 @@ public class TracingMessageProducer implements MessageProducer {
 
   private final MessageProducer messageProducer;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
 
   public TracingMessageProducer(MessageProducer messageProducer, Tracer tracer) {
+    this(messageProducer, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingMessageProducer(MessageProducer messageProducer, Tracer tracer,
+      JmsTracingSampler sampler) {
     this.messageProducer = messageProducer;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   @Override
@@ -98,55 +107,69 @@ public class TracingMessageProducer implements MessageProducer {
 
   @Override
   public void send(Message message) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
+    Destination destination = getDestination();
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(message);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Message message, int deliveryMode, int priority, long timeToLive)
       throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
+    Destination destination = getDestination();
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(message, deliveryMode, priority, timeToLive);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Destination destination, Message message) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(destination, message);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Destination destination, Message message, int deliveryMode, int priority,
       long timeToLive) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(destination, message, deliveryMode, priority, timeToLive);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms2;
+
+import io.opentracing.contrib.jms.common.JmsDeliveryTimeReader;
+import io.opentracing.contrib.jms.common.SpanJmsDecorator;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Reads {@code JMSDeliveryTime} directly, installed when {@link TracingSession} or
+ * {@link TracingJMSConsumer} is loaded.
+ */
+final class Jms2DeliveryTimeReader implements JmsDeliveryTimeReader {
+
+  private static final Jms2DeliveryTimeReader INSTANCE = new Jms2DeliveryTimeReader();
+
+  private Jms2DeliveryTimeReader() {
+  }
+
+  static void install() {
+    SpanJmsDecorator.setDeliveryTimeReader(INSTANCE);
+  }
+
+  @Override
+  public long deliveryTime(Message message) throws JMSException {
+    try {
+      return message.getJMSDeliveryTime();
+    } catch (AbstractMethodError e) {
+      // message of a JMS 1.1 provider
+      return 0;
+    }
+  }
+}
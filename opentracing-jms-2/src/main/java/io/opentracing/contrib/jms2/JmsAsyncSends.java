@@ -0,0 +1,377 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms2;
+
+import io.opentracing.contrib.jms.common.JmsHistogram;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * In-flight table of asynchronous sends, whose spans stay open until the provider calls the
+ * {@link TracingCompletionListener}. Sends not acknowledged within the timeout, or the oldest sends
+ * once more than {@link #setMaxInFlight(int)} are outstanding, are finished with tag
+ * {@link #ACK_TIMEOUT_TAG}, so spans don't leak when the provider never calls back.
+ * <p>
+ * No thread is started: stale sends expire during later sends, at most once per second, when
+ * {@link #expireStale()} is called, when the gauges {@link #inFlight()} and {@link #timedOut()} or
+ * the MBean registered by {@link #registerMBean()} are read, and when a {@link TracingSession} or
+ * {@link TracingJMSContext} is closed. Without any of these, e.g. once the application stopped
+ * sending, stale spans stay open. The table is split into segments locked independently, selected
+ * by the sending thread.
+ */
+public final class JmsAsyncSends {
+
+  public static final String ACK_TIMEOUT_TAG = "message_bus.ack_timeout";
+  public static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+  public static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+  private static final int SEGMENTS = 16;
+  private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final Segment[] segments = new Segment[SEGMENTS];
+  private static final AtomicInteger inFlight = new AtomicInteger();
+  private static final AtomicLong timedOut = new AtomicLong();
+  private static final AtomicLong evicted = new AtomicLong();
+  private static final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+  private static volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+  private static volatile long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_MILLIS);
+  private static volatile JmsHistogram ackLatency = new JmsHistogram();
+
+  static {
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  private JmsAsyncSends() {
+  }
+
+  /**
+   * @param max the maximum number of tracked sends, {@code 0} disables tracking, untracked spans
+   *            stay open until the provider calls back
+   */
+  public static void setMaxInFlight(int max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("max must not be negative: " + max);
+    }
+    maxInFlight = max;
+  }
+
+  /**
+   * @param timeout time to wait for the provider to acknowledge a send
+   * @param unit    the unit of {@code timeout}
+   */
+  public static void setTimeout(long timeout, TimeUnit unit) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    timeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * Expires stale sends first.
+   *
+   * @return the number of sends waiting for the provider to acknowledge them
+   */
+  public static int inFlight() {
+    expireStale();
+    return inFlight.get();
+  }
+
+  /**
+   * Expires stale sends first.
+   *
+   * @return the number of sends finished because they weren't acknowledged within the timeout
+   */
+  public static long timedOut() {
+    expireStale();
+    return timedOut.get();
+  }
+
+  /**
+   * @return the number of sends finished because more than the maximum were in flight
+   */
+  public static long evicted() {
+    return evicted.get();
+  }
+
+  /**
+   * @return nanoseconds from tracked sends to the call of their completion listener
+   */
+  public static JmsHistogram ackLatencyNanos() {
+    return ackLatency;
+  }
+
+  /**
+   * Reset the counters and the acknowledgement latency, sends in flight stay tracked.
+   */
+  public static void reset() {
+    timedOut.set(0);
+    evicted.set(0);
+    ackLatency = new JmsHistogram();
+  }
+
+  /**
+   * Finish the spans of sends in flight for longer than the timeout.
+   */
+  public static void expireStale() {
+    expireStale(System.nanoTime());
+  }
+
+  /**
+   * Register the gauges as {@code io.opentracing.contrib.jms:type=AsyncSends} in the platform MBean
+   * server.
+   */
+  public static void registerMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(new StandardMBean(new Gauges(), JmsAsyncSendsMBean.class),
+          objectName());
+    } catch (InstanceAlreadyExistsException ignored) {
+      // already registered
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Unregister the MBean registered by {@link #registerMBean()}.
+   */
+  public static void unregisterMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(objectName());
+    } catch (InstanceNotFoundException ignored) {
+      // not registered
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static ObjectName objectName() {
+    try {
+      return new ObjectName("io.opentracing.contrib.jms:type=AsyncSends");
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Track a send, before it is handed to the provider.
+   *
+   * @param listener the listener of the send
+   * @return the {@code listener}
+   */
+  static TracingCompletionListener track(TracingCompletionListener listener) {
+    int max = maxInFlight;
+    if (max == 0) {
+      return listener;
+    }
+    long now = System.nanoTime();
+    Segment segment = segments[(int) Thread.currentThread().getId() & (SEGMENTS - 1)];
+    segment.add(listener, now);
+    if (inFlight.incrementAndGet() > max) {
+      evictOldest(segment);
+    }
+    long next = nextSweep.get();
+    if (now - next >= 0
+        && nextSweep.compareAndSet(next, now + Math.min(timeoutNanos, MAX_SWEEP_INTERVAL_NANOS))) {
+      expireStale(now);
+    }
+    return listener;
+  }
+
+  /**
+   * Stop tracking an acknowledged send and record its latency.
+   */
+  static void onAcknowledged(TracingCompletionListener listener) {
+    Segment segment = listener.segment;
+    if (segment != null) {
+      if (segment.remove(listener)) {
+        inFlight.decrementAndGet();
+        ackLatency.record(System.nanoTime() - listener.sentAt);
+      }
+    }
+  }
+
+  /**
+   * Stop tracking a send which won't be acknowledged.
+   */
+  static void untrack(TracingCompletionListener listener) {
+    Segment segment = listener.segment;
+    if (segment != null && segment.remove(listener)) {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static void expireStale(long now) {
+    long timeout = timeoutNanos;
+    for (Segment segment : segments) {
+      TracingCompletionListener expired = segment.pollSentBefore(now - timeout);
+      while (expired != null) {
+        TracingCompletionListener next = expired.next;
+        expired.next = null;
+        inFlight.decrementAndGet();
+        if (expired.finish()) {
+          timedOut.incrementAndGet();
+          expired.onTimeout("send not acknowledged within "
+              + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms");
+        }
+        expired = next;
+      }
+    }
+  }
+
+  private static void evictOldest(Segment segment) {
+    TracingCompletionListener oldest = segment.pollOldest();
+    for (int i = 0; oldest == null && i < SEGMENTS; i++) {
+      oldest = segments[i].pollOldest();
+    }
+    if (oldest != null) {
+      inFlight.decrementAndGet();
+      if (oldest.finish()) {
+        evicted.incrementAndGet();
+        oldest.onTimeout("more than " + maxInFlight + " sends in flight");
+      }
+    }
+  }
+
+  /**
+   * Sends of the threads mapped to the segment, oldest first, linked through the listeners.
+   */
+  static final class Segment {
+
+    private TracingCompletionListener head;
+    private TracingCompletionListener tail;
+
+    synchronized void add(TracingCompletionListener listener, long now) {
+      listener.segment = this;
+      listener.sentAt = now;
+      listener.linked = true;
+      listener.previous = tail;
+      if (tail == null) {
+        head = listener;
+      } else {
+        tail.next = listener;
+      }
+      tail = listener;
+    }
+
+    /**
+     * @return {@code false} if the {@code listener} was already removed
+     */
+    synchronized boolean remove(TracingCompletionListener listener) {
+      if (!listener.linked) {
+        return false;
+      }
+      unlink(listener);
+      return true;
+    }
+
+    synchronized TracingCompletionListener pollOldest() {
+      TracingCompletionListener oldest = head;
+      if (oldest != null) {
+        unlink(oldest);
+      }
+      return oldest;
+    }
+
+    /**
+     * @return the unlinked sends sent before {@code deadline}, linked through {@code next}
+     */
+    synchronized TracingCompletionListener pollSentBefore(long deadline) {
+      TracingCompletionListener first = null;
+      TracingCompletionListener last = null;
+      while (head != null && head.sentAt - deadline < 0) {
+        TracingCompletionListener expired = head;
+        unlink(expired);
+        if (last == null) {
+          first = expired;
+        } else {
+          last.next = expired;
+        }
+        last = expired;
+      }
+      return first;
+    }
+
+    private void unlink(TracingCompletionListener listener) {
+      if (listener.previous == null) {
+        head = listener.next;
+      } else {
+        listener.previous.next = listener.next;
+      }
+      if (listener.next == null) {
+        tail = listener.previous;
+      } else {
+        listener.next.previous = listener.previous;
+      }
+      listener.previous = null;
+      listener.next = null;
+      listener.linked = false;
+    }
+  }
+
+  private static final class Gauges implements JmsAsyncSendsMBean {
+
+    @Override
+    public int getInFlight() {
+      return inFlight();
+    }
+
+    @Override
+    public int getMaxInFlight() {
+      return maxInFlight;
+    }
+
+    @Override
+    public long getTimedOut() {
+      return timedOut();
+    }
+
+    @Override
+    public long getEvicted() {
+      return evicted();
+    }
+
+    @Override
+    public double getAckLatencyMeanMicros() {
+      return ackLatency.mean() / 1000;
+    }
+
+    @Override
+    public long getAckLatencyP50Micros() {
+      return ackLatency.valueAtPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getAckLatencyP99Micros() {
+      return ackLatency.valueAtPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getAckLatencyMaxMicros() {
+      return ackLatency.max() / 1000;
+    }
+  }
+}
@@ -15,8 +15,14 @@ package io.opentracing.contrib.jms2;
 
 
 import io.opentracing.Span;
+import io.opentracing.contrib.jms.common.JmsMetrics;
 import io.opentracing.contrib.jms.common.SpanJmsDecorator;
+import io.opentracing.tag.Tags;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import javax.jms.CompletionListener;
+import javax.jms.Destination;
 import javax.jms.Message;
 
 /**
@@ -24,15 +30,42 @@ import javax.jms.Message;
  * <p>
  * If sending of the message is complete then method {@code onCompletion(Message)} is called. <br>
  * If sending of the message fails then method {@code onException(Exception)} is called.
+ * <p>
+ * The span is finished once, by the first of the callbacks or, for sends tracked by
+ * {@link JmsAsyncSends}, by the timeout.
  */
 public class TracingCompletionListener implements CompletionListener {
 
+  private static final AtomicIntegerFieldUpdater<TracingCompletionListener> FINISHED =
+      AtomicIntegerFieldUpdater.newUpdater(TracingCompletionListener.class, "finished");
+
   private final Span span;
   private final CompletionListener completionListener;
+  private final Destination destination;
+  private final long startTime;
+  private volatile int finished;
+
+  // in-flight list of JmsAsyncSends, guarded by the segment lock
+  JmsAsyncSends.Segment segment;
+  TracingCompletionListener previous;
+  TracingCompletionListener next;
+  boolean linked;
+  long sentAt;
 
   public TracingCompletionListener(Span span, CompletionListener completionListener) {
+    this(span, completionListener, null, 0);
+  }
+
+  /**
+   * @param destination the destination for {@link JmsMetrics}
+   * @param startTime   the result of {@link JmsMetrics#startTime()} before the send
+   */
+  TracingCompletionListener(Span span, CompletionListener completionListener,
+      Destination destination, long startTime) {
     this.span = span;
     this.completionListener = completionListener;
+    this.destination = destination;
+    this.startTime = startTime;
   }
 
 
@@ -41,7 +74,11 @@ public class TracingCompletionListener implements CompletionListener {
     try {
       completionListener.onCompletion(message);
     } finally {
-      span.finish();
+      if (finish()) {
+        JmsAsyncSends.onAcknowledged(this);
+        span.finish();
+        JmsMetrics.onSend(destination, message, span, startTime);
+      }
     }
   }
 
@@ -50,8 +87,49 @@ public class TracingCompletionListener implements CompletionListener {
     try {
       completionListener.onException(message, exception);
     } finally {
-      SpanJmsDecorator.onError(exception, span);
-      span.finish();
+      if (finish()) {
+        JmsAsyncSends.onAcknowledged(this);
+        onError(message, exception);
+      }
+    }
+  }
+
+  /**
+   * The provider threw instead of accepting the send, so neither callback is called.
+   */
+  void onSendFailure(Message message, Throwable throwable) {
+    if (finish()) {
+      JmsAsyncSends.untrack(this);
+      onError(message, throwable);
     }
   }
+
+  /**
+   * Finish the span of a send which was not acknowledged in time, after {@link #finish()}.
+   */
+  void onTimeout(String reason) {
+    Tags.ERROR.set(span, Boolean.TRUE);
+    span.setTag(JmsAsyncSends.ACK_TIMEOUT_TAG, true);
+    Map<String, Object> fields = new HashMap<>();
+    fields.put("event", Tags.ERROR.getKey());
+    fields.put("message", reason);
+    span.log(fields);
+    span.finish();
+    JmsMetrics.onSendError(destination, startTime);
+    JmsMetrics.onSend(destination, null, span, startTime);
+  }
+
+  /**
+   * @return {@code true} for the first caller only, which finishes the span
+   */
+  boolean finish() {
+    return FINISHED.compareAndSet(this, 0, 1);
+  }
+
+  private void onError(Message message, Throwable throwable) {
+    SpanJmsDecorator.onError(throwable, span);
+    span.finish();
+    JmsMetrics.onSendError(destination, startTime);
+    JmsMetrics.onSend(destination, message, span, startTime);
+  }
 }
@@ -14,6 +14,7 @@
 package io.opentracing.contrib.jms2;
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import javax.jms.Connection;
 import javax.jms.ConnectionConsumer;
 import javax.jms.ConnectionMetaData;
@@ -28,31 +29,38 @@ public class TracingConnection implements Connection {
   private final Connection connection;
   private final Tracer tracer;
   private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
 
   public TracingConnection(Connection connection, Tracer tracer) {
     this(connection, tracer, false);
   }
 
   public TracingConnection(Connection connection, Tracer tracer, boolean traceInLog) {
+    this(connection, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingConnection(Connection connection, Tracer tracer, boolean traceInLog,
+      JmsTracingSampler sampler) {
     this.connection = connection;
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
   }
 
   @Override
   public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
     return new TracingSession(connection.createSession(transacted, acknowledgeMode), tracer,
-        traceInLog);
+        traceInLog, sampler);
   }
 
   @Override
   public Session createSession(int sessionMode) throws JMSException {
-    return new TracingSession(connection.createSession(sessionMode), tracer, traceInLog);
+    return new TracingSession(connection.createSession(sessionMode), tracer, traceInLog, sampler);
   }
 
   @Override
   public Session createSession() throws JMSException {
-    return new TracingSession(connection.createSession(), tracer, traceInLog);
+    return new TracingSession(connection.createSession(), tracer, traceInLog, sampler);
   }
 
   @Override
@@ -14,6 +14,7 @@
 package io.opentracing.contrib.jms2;
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -27,39 +28,47 @@ public class TracingConnectionFactory implements ConnectionFactory {
 
   private final ConnectionFactory connectionFactory;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
 
   public TracingConnectionFactory(ConnectionFactory connectionFactory, Tracer tracer) {
+    this(connectionFactory, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingConnectionFactory(ConnectionFactory connectionFactory, Tracer tracer,
+      JmsTracingSampler sampler) {
     this.connectionFactory = connectionFactory;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   @Override
   public Connection createConnection() throws JMSException {
-    return new TracingConnection(connectionFactory.createConnection(), tracer);
+    return new TracingConnection(connectionFactory.createConnection(), tracer, false, sampler);
   }
 
   @Override
   public Connection createConnection(String userName, String password) throws JMSException {
-    return new TracingConnection(connectionFactory.createConnection(userName, password), tracer);
+    return new TracingConnection(connectionFactory.createConnection(userName, password), tracer,
+        false, sampler);
   }
 
   @Override
   public JMSContext createContext() {
-    return new TracingJMSContext(connectionFactory.createContext(), tracer);
+    return new TracingJMSContext(connectionFactory.createContext(), tracer, sampler);
   }
 
   @Override
   public JMSContext createContext(String userName, String password) {
-    return new TracingJMSContext(connectionFactory.createContext(userName, password), tracer);
+    return new TracingJMSContext(connectionFactory.createContext(userName, password), tracer, sampler);
   }
 
   @Override
   public JMSContext createContext(String userName, String password, int sessionMode) {
-    return new TracingJMSContext(connectionFactory.createContext(userName, password, sessionMode), tracer);
+    return new TracingJMSContext(connectionFactory.createContext(userName, password, sessionMode), tracer, sampler);
   }
 
   @Override
   public JMSContext createContext(int sessionMode) {
-    return new TracingJMSContext(connectionFactory.createContext(sessionMode), tracer);
+    return new TracingJMSContext(connectionFactory.createContext(sessionMode), tracer, sampler);
   }
 }
@@ -14,6 +14,7 @@
 package io.opentracing.contrib.jms2;
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.TracingMessageListener;
 
 import javax.jms.JMSConsumer;
@@ -26,12 +27,22 @@ import javax.jms.MessageListener;
  */
 public class TracingJMSConsumer implements JMSConsumer {
 
+  static {
+    Jms2DeliveryTimeReader.install();
+  }
+
   private final JMSConsumer jmsConsumer;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
 
   public TracingJMSConsumer(JMSConsumer jmsConsumer, Tracer tracer) {
+    this(jmsConsumer, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingJMSConsumer(JMSConsumer jmsConsumer, Tracer tracer, JmsTracingSampler sampler) {
     this.jmsConsumer = jmsConsumer;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   @Override
@@ -46,7 +57,7 @@ public class TracingJMSConsumer implements JMSConsumer {
 
   @Override
   public void setMessageListener(MessageListener listener) throws JMSRuntimeException {
-    jmsConsumer.setMessageListener(new TracingMessageListener(listener, tracer));
+    jmsConsumer.setMessageListener(new TracingMessageListener(listener, tracer, false, sampler));
   }
 
   @Override
@@ -14,6 +14,7 @@
 package io.opentracing.contrib.jms2;
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 
 import javax.jms.BytesMessage;
 import javax.jms.ConnectionMetaData;
@@ -41,20 +42,26 @@ public class TracingJMSContext implements JMSContext {
 
   private final JMSContext jmsContext;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
 
   public TracingJMSContext(JMSContext jmsContext, Tracer tracer) {
+    this(jmsContext, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingJMSContext(JMSContext jmsContext, Tracer tracer, JmsTracingSampler sampler) {
     this.jmsContext = jmsContext;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   @Override
   public JMSContext createContext(int sessionMode) {
-    return new TracingJMSContext(jmsContext.createContext(sessionMode), tracer);
+    return new TracingJMSContext(jmsContext.createContext(sessionMode), tracer, sampler);
   }
 
   @Override
   public JMSProducer createProducer() {
-    return new TracingJMSProducer(jmsContext.createProducer(), jmsContext, tracer);
+    return new TracingJMSProducer(jmsContext.createProducer(), jmsContext, tracer, sampler);
   }
 
   @Override
@@ -104,7 +111,12 @@ public class TracingJMSContext implements JMSContext {
 
   @Override
   public void close() {
-    jmsContext.close();
+    try {
+      jmsContext.close();
+    } finally {
+      // the provider completed or failed the sends of the context, any left are stale
+      JmsAsyncSends.expireStale();
+    }
   }
 
   @Override
@@ -174,17 +186,17 @@ public class TracingJMSContext implements JMSContext {
 
   @Override
   public JMSConsumer createConsumer(Destination destination) {
-    return new TracingJMSConsumer(jmsContext.createConsumer(destination), tracer);
+    return new TracingJMSConsumer(jmsContext.createConsumer(destination), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createConsumer(Destination destination, String messageSelector) {
-    return new TracingJMSConsumer(jmsContext.createConsumer(destination, messageSelector), tracer);
+    return new TracingJMSConsumer(jmsContext.createConsumer(destination, messageSelector), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) {
-    return new TracingJMSConsumer(jmsContext.createConsumer(destination, messageSelector, noLocal), tracer);
+    return new TracingJMSConsumer(jmsContext.createConsumer(destination, messageSelector, noLocal), tracer, sampler);
   }
 
   @Override
@@ -199,33 +211,33 @@ public class TracingJMSContext implements JMSContext {
 
   @Override
   public JMSConsumer createDurableConsumer(Topic topic, String name) {
-    return new TracingJMSConsumer(jmsContext.createDurableConsumer(topic, name), tracer);
+    return new TracingJMSConsumer(jmsContext.createDurableConsumer(topic, name), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal) {
-    return new TracingJMSConsumer(jmsContext.createDurableConsumer(topic, name, messageSelector, noLocal), tracer);
+    return new TracingJMSConsumer(jmsContext.createDurableConsumer(topic, name, messageSelector, noLocal), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createSharedDurableConsumer(Topic topic, String name) {
-    return new TracingJMSConsumer(jmsContext.createSharedDurableConsumer(topic, name), tracer);
+    return new TracingJMSConsumer(jmsContext.createSharedDurableConsumer(topic, name), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector) {
-    return new TracingJMSConsumer(jmsContext.createSharedDurableConsumer(topic, name, messageSelector), tracer);
+    return new TracingJMSConsumer(jmsContext.createSharedDurableConsumer(topic, name, messageSelector), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) {
-    return new TracingJMSConsumer(jmsContext.createSharedConsumer(topic, sharedSubscriptionName), tracer);
+    return new TracingJMSConsumer(jmsContext.createSharedConsumer(topic, sharedSubscriptionName), tracer, sampler);
   }
 
   @Override
   public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, String messageSelector) {
     return new TracingJMSConsumer(jmsContext.createSharedConsumer(topic, sharedSubscriptionName, messageSelector),
-            tracer);
+            tracer, sampler);
   }
 
   @Override
@@ -15,6 +15,8 @@ package io.opentracing.contrib.jms2;
 
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.SpanJmsDecorator;
 import io.opentracing.contrib.jms.common.TracingMessageUtils;
 import java.io.Serializable;
@@ -42,17 +44,31 @@ public class TracingJMSProducer implements JMSProducer {
   private JMSContext jmsContext = null;
   private Session jmsSession = null;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
+  private CompletionListener completionListener;
 
   public TracingJMSProducer(JMSProducer jmsProducer, JMSContext jmsContext, Tracer tracer) {
+    this(jmsProducer, jmsContext, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingJMSProducer(JMSProducer jmsProducer, JMSContext jmsContext, Tracer tracer,
+      JmsTracingSampler sampler) {
     this.jmsProducer = jmsProducer;
     this.jmsContext = jmsContext;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   public TracingJMSProducer(JMSProducer jmsProducer, Session jmsSession, Tracer tracer) {
+    this(jmsProducer, jmsSession, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingJMSProducer(JMSProducer jmsProducer, Session jmsSession, Tracer tracer,
+      JmsTracingSampler sampler) {
     this.jmsProducer = jmsProducer;
     this.jmsSession = jmsSession;
     this.tracer = tracer;
+    this.sampler = sampler;
   }
 
   @Override
@@ -63,7 +79,7 @@ public class TracingJMSProducer implements JMSProducer {
 
   @Override
   public CompletionListener getAsync() {
-    return jmsProducer.getAsync();
+    return completionListener;
   }
 
   @Override
@@ -173,18 +189,44 @@ public class TracingJMSProducer implements JMSProducer {
 
   @Override
   public JMSProducer send(Destination destination, Message message) {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    if (completionListener != null) {
+      sendAsync(destination, message, span);
+      return this;
+    }
+    long startTime = JmsMetrics.startTime();
     try {
       jmsProducer.send(destination, message);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
     return this;
   }
 
+  /**
+   * Send with a {@link TracingCompletionListener} set for this message only, so the span finishes
+   * when the send completes or fails. The application's listener is restored afterwards, so
+   * untraced sends of bodies which couldn't be converted to a message still complete with it.
+   */
+  private void sendAsync(Destination destination, Message message, Span span) {
+    TracingCompletionListener listener = TracingMessageProducer.tracingCompletionListener(span,
+        completionListener, destination);
+    jmsProducer.setAsync(listener);
+    try {
+      jmsProducer.send(destination, message);
+    } catch (Throwable e) {
+      listener.onSendFailure(message, e);
+      throw e;
+    } finally {
+      jmsProducer.setAsync(completionListener);
+    }
+  }
+
   @Override
   public JMSProducer send(Destination destination, String message) {
     TextMessage textMsg;
@@ -347,9 +389,14 @@ public class TracingJMSProducer implements JMSProducer {
     return objectMsg;
   }
 
+  /**
+   * Send spans of asynchronous sends finish when the {@code completionListener} is called, not
+   * when {@code send} returns.
+   */
   @Override
-  public JMSProducer setAsync(CompletionListener arg0) {
-    jmsProducer.setAsync(arg0);
+  public JMSProducer setAsync(CompletionListener completionListener) {
+    jmsProducer.setAsync(completionListener);
+    this.completionListener = completionListener;
     return this;
   }
 
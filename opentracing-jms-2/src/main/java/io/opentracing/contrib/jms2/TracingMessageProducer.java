@@ -16,8 +16,11 @@ package io.opentracing.contrib.jms2;
 
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.SpanJmsDecorator;
 import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import io.opentracing.contrib.jms.common.TracingTransaction;
 import javax.jms.CompletionListener;
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -31,10 +34,27 @@ public class TracingMessageProducer implements MessageProducer {
 
   private final MessageProducer messageProducer;
   private final Tracer tracer;
+  private final JmsTracingSampler sampler;
+  private final TracingTransaction transaction;
 
   public TracingMessageProducer(MessageProducer messageProducer, Tracer tracer) {
+    this(messageProducer, tracer, JmsTracingSampler.always());
+  }
+
+  public TracingMessageProducer(MessageProducer messageProducer, Tracer tracer,
+      JmsTracingSampler sampler) {
+    this(messageProducer, tracer, sampler, null);
+  }
+
+  /**
+   * @param transaction the transaction of the transacted session of the producer, or {@code null}
+   */
+  TracingMessageProducer(MessageProducer messageProducer, Tracer tracer,
+      JmsTracingSampler sampler, TracingTransaction transaction) {
     this.messageProducer = messageProducer;
     this.tracer = tracer;
+    this.sampler = sampler;
+    this.transaction = transaction;
   }
 
   @Override
@@ -109,14 +129,18 @@ public class TracingMessageProducer implements MessageProducer {
 
   @Override
   public void send(Message message) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
+    Destination destination = getDestination();
+    Span span = startAndInjectSpan(destination, message);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(message);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
 
   }
@@ -124,71 +148,124 @@ public class TracingMessageProducer implements MessageProducer {
   @Override
   public void send(Message message, int deliveryMode, int priority, long timeToLive)
       throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
+    Destination destination = getDestination();
+    Span span = startAndInjectSpan(destination, message);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(message, deliveryMode, priority, timeToLive);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Destination destination, Message message) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
+    Span span = startAndInjectSpan(destination, message);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(destination, message);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Destination destination, Message message, int deliveryMode, int priority,
       long timeToLive) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
+    Span span = startAndInjectSpan(destination, message);
+    long startTime = JmsMetrics.startTime();
     try {
       messageProducer.send(destination, message, deliveryMode, priority, timeToLive);
     } catch (Throwable e) {
       SpanJmsDecorator.onError(e, span);
+      JmsMetrics.onSendError(destination, startTime);
       throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, message, span, startTime);
     }
   }
 
   @Override
   public void send(Message message, CompletionListener completionListener) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
-    messageProducer.send(message, new TracingCompletionListener(span, completionListener));
+    Destination destination = getDestination();
+    Span span = startAndInjectSpan(destination, message);
+    TracingCompletionListener listener =
+        tracingCompletionListener(span, completionListener, destination);
+    try {
+      messageProducer.send(message, listener);
+    } catch (Throwable e) {
+      listener.onSendFailure(message, e);
+      throw e;
+    }
   }
 
   @Override
   public void send(Message message, int deliveryMode, int priority, long timeToLive,
       CompletionListener completionListener) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(getDestination(), message, tracer);
-    messageProducer.send(message, deliveryMode, priority, timeToLive,
-        new TracingCompletionListener(span, completionListener));
+    Destination destination = getDestination();
+    Span span = startAndInjectSpan(destination, message);
+    TracingCompletionListener listener =
+        tracingCompletionListener(span, completionListener, destination);
+    try {
+      messageProducer.send(message, deliveryMode, priority, timeToLive, listener);
+    } catch (Throwable e) {
+      listener.onSendFailure(message, e);
+      throw e;
+    }
   }
 
   @Override
   public void send(Destination destination, Message message, CompletionListener completionListener)
       throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
-    messageProducer.send(destination, message,
-        new TracingCompletionListener(span, completionListener));
+    Span span = startAndInjectSpan(destination, message);
+    TracingCompletionListener listener =
+        tracingCompletionListener(span, completionListener, destination);
+    try {
+      messageProducer.send(destination, message, listener);
+    } catch (Throwable e) {
+      listener.onSendFailure(message, e);
+      throw e;
+    }
   }
 
   @Override
   public void send(Destination destination, Message message, int deliveryMode, int priority,
       long timeToLive, CompletionListener completionListener) throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, message, tracer);
-    messageProducer.send(destination, message, deliveryMode, priority, timeToLive,
-        new TracingCompletionListener(span, completionListener));
+    Span span = startAndInjectSpan(destination, message);
+    TracingCompletionListener listener =
+        tracingCompletionListener(span, completionListener, destination);
+    try {
+      messageProducer.send(destination, message, deliveryMode, priority, timeToLive, listener);
+    } catch (Throwable e) {
+      listener.onSendFailure(message, e);
+      throw e;
+    }
+  }
+
+  private Span startAndInjectSpan(Destination destination, Message message) {
+    if (transaction != null) {
+      return transaction.startAndInjectSpan(destination, message);
+    }
+    return TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+  }
+
+  /**
+   * @return the listener, tracked by {@link JmsAsyncSends} until the send completes
+   */
+  static TracingCompletionListener tracingCompletionListener(Span span,
+      CompletionListener completionListener, Destination destination) {
+    return JmsAsyncSends.track(new TracingCompletionListener(span, completionListener, destination,
+        JmsMetrics.startTime()));
   }
 }
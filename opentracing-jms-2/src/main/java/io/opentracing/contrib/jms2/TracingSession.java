@@ -13,8 +13,11 @@
  */
 package io.opentracing.contrib.jms2;
 
+import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.TracingMessageConsumer;
+import io.opentracing.contrib.jms.common.TracingTransaction;
 import java.io.Serializable;
 import javax.jms.BytesMessage;
 import javax.jms.Destination;
@@ -36,18 +39,32 @@ import javax.jms.Topic;
 import javax.jms.TopicSubscriber;
 
 public class TracingSession implements Session {
+
+  static {
+    Jms2DeliveryTimeReader.install();
+  }
+
   private final Session session;
   private final Tracer tracer;
   private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
+  private TracingTransaction transaction;
+  private boolean transactionResolved;
 
   public TracingSession(Session session, Tracer tracer) {
     this(session, tracer, false);
   }
 
   public TracingSession(Session session, Tracer tracer, boolean traceInLog) {
+    this(session, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingSession(Session session, Tracer tracer, boolean traceInLog,
+      JmsTracingSampler sampler) {
     this.session = session;
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
   }
 
   @Override
@@ -102,17 +119,52 @@ public class TracingSession implements Session {
 
   @Override
   public void commit() throws JMSException {
-    session.commit();
+    TracingTransaction transaction = transaction();
+    if (transaction == null) {
+      session.commit();
+      return;
+    }
+    Span span = transaction.startCommit();
+    Throwable error = null;
+    try {
+      session.commit();
+    } catch (Throwable e) {
+      error = e;
+      throw e;
+    } finally {
+      transaction.finishCommit(span, error);
+    }
   }
 
   @Override
   public void rollback() throws JMSException {
-    session.rollback();
+    TracingTransaction transaction = transaction();
+    if (transaction == null) {
+      session.rollback();
+      return;
+    }
+    Span span = transaction.startRollback();
+    Throwable error = null;
+    try {
+      session.rollback();
+    } catch (Throwable e) {
+      error = e;
+      throw e;
+    } finally {
+      transaction.finishRollback(span, error);
+    }
   }
 
   @Override
   public void close() throws JMSException {
-    session.close();
+    try {
+      session.close();
+    } finally {
+      if (transaction != null) {
+        transaction.onClose();
+      }
+      JmsAsyncSends.expireStale();
+    }
   }
 
   @Override
@@ -137,34 +189,35 @@ public class TracingSession implements Session {
 
   @Override
   public MessageProducer createProducer(Destination destination) throws JMSException {
-    return new TracingMessageProducer(session.createProducer(destination), tracer);
+    return new TracingMessageProducer(session.createProducer(destination), tracer, sampler,
+        transaction());
   }
 
   @Override
   public MessageConsumer createConsumer(Destination destination) throws JMSException {
     return new TracingMessageConsumer(session.createConsumer(destination), tracer, false,
-        traceInLog);
+        traceInLog, sampler, transaction());
   }
 
   @Override
   public MessageConsumer createConsumer(Destination destination, String messageSelector)
       throws JMSException {
     return new TracingMessageConsumer(session.createConsumer(destination, messageSelector), tracer,
-        false, traceInLog);
+        false, traceInLog, sampler, transaction());
   }
 
   @Override
   public MessageConsumer createConsumer(Destination destination, String messageSelector,
       boolean noLocal) throws JMSException {
     return new TracingMessageConsumer(session.createConsumer(destination, messageSelector, noLocal),
-        tracer, false, traceInLog);
+        tracer, false, traceInLog, sampler, transaction());
   }
 
   @Override
   public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName)
       throws JMSException {
     return new TracingMessageConsumer(session.createSharedConsumer(topic, sharedSubscriptionName),
-        tracer, false, traceInLog);
+        tracer, false, traceInLog, sampler, transaction());
   }
 
   @Override
@@ -172,7 +225,7 @@ public class TracingSession implements Session {
       String messageSelector) throws JMSException {
     return new TracingMessageConsumer(
         session.createSharedConsumer(topic, sharedSubscriptionName, messageSelector), tracer,
-        false, traceInLog);
+        false, traceInLog, sampler, transaction());
   }
 
   @Override
@@ -206,13 +259,13 @@ public class TracingSession implements Session {
       boolean noLocal) throws JMSException {
     return new TracingMessageConsumer(
         session.createDurableConsumer(topic, name, messageSelector, noLocal), tracer, false,
-        traceInLog);
+        traceInLog, sampler, transaction());
   }
 
   @Override
   public MessageConsumer createSharedDurableConsumer(Topic topic, String name) throws JMSException {
     return new TracingMessageConsumer(session.createSharedDurableConsumer(topic, name), tracer,
-        false, traceInLog);
+        false, traceInLog, sampler, transaction());
   }
 
   @Override
@@ -220,7 +273,7 @@ public class TracingSession implements Session {
       String messageSelector) throws JMSException {
     return new TracingMessageConsumer(
         session.createSharedDurableConsumer(topic, name, messageSelector), tracer, false,
-        traceInLog);
+        traceInLog, sampler, transaction());
   }
 
   @Override
@@ -247,4 +300,16 @@ public class TracingSession implements Session {
   public void unsubscribe(String name) throws JMSException {
     session.unsubscribe(name);
   }
+
+  /**
+   * The transaction of a transacted session, resolved on first use rather than on construction
+   * since {@link Session#getTransacted()} may throw.
+   */
+  private TracingTransaction transaction() throws JMSException {
+    if (!transactionResolved) {
+      transaction = session.getTransacted() ? new TracingTransaction(tracer, sampler) : null;
+      transactionResolved = true;
+    }
+    return transaction;
+  }
 }
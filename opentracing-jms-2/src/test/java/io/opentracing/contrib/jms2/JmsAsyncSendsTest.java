@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.CompletionListener;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.management.MBeanServer;
+import org.junit.After;
+import org.junit.Test;
+
+public class JmsAsyncSendsTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private final AtomicInteger completions = new AtomicInteger();
+  private final CompletionListener completionListener = new CompletionListener() {
+    @Override
+    public void onCompletion(Message message) {
+      completions.incrementAndGet();
+    }
+
+    @Override
+    public void onException(Message message, Exception exception) {
+    }
+  };
+
+  @After
+  public void after() {
+    JmsAsyncSends.setTimeout(JmsAsyncSends.DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    JmsAsyncSends.setMaxInFlight(JmsAsyncSends.DEFAULT_MAX_IN_FLIGHT);
+    JmsAsyncSends.expireStale();
+    JmsAsyncSends.reset();
+  }
+
+  @Test
+  public void acknowledged() {
+    TracingCompletionListener listener = track();
+    assertEquals(1, JmsAsyncSends.inFlight());
+
+    listener.onCompletion(null);
+
+    assertEquals(0, JmsAsyncSends.inFlight());
+    assertEquals(1, JmsAsyncSends.ackLatencyNanos().count());
+    assertEquals(1, completions.get());
+    MockSpan span = mockTracer.finishedSpans().get(0);
+    assertNull(span.tags().get(Tags.ERROR.getKey()));
+  }
+
+  @Test
+  public void expiresAfterTimeout() throws Exception {
+    JmsAsyncSends.setTimeout(1, TimeUnit.MILLISECONDS);
+    TracingCompletionListener listener = track();
+    Thread.sleep(5);
+
+    JmsAsyncSends.expireStale();
+
+    assertEquals(0, JmsAsyncSends.inFlight());
+    assertEquals(1, JmsAsyncSends.timedOut());
+    assertEquals(1, mockTracer.finishedSpans().size());
+    MockSpan span = mockTracer.finishedSpans().get(0);
+    assertEquals(Boolean.TRUE, span.tags().get(Tags.ERROR.getKey()));
+    assertEquals(Boolean.TRUE, span.tags().get(JmsAsyncSends.ACK_TIMEOUT_TAG));
+
+    // a late acknowledgement still reaches the application, the span isn't finished again
+    listener.onCompletion(null);
+    assertEquals(1, completions.get());
+    assertEquals(1, mockTracer.finishedSpans().size());
+    assertEquals(0, JmsAsyncSends.ackLatencyNanos().count());
+  }
+
+  @Test
+  public void expiresOnGaugeRead() throws Exception {
+    JmsAsyncSends.setTimeout(1, TimeUnit.MILLISECONDS);
+    track();
+    Thread.sleep(5);
+
+    assertEquals(0, JmsAsyncSends.inFlight());
+    assertEquals(1, mockTracer.finishedSpans().size());
+  }
+
+  @Test
+  public void expiresOnClose() throws Exception {
+    JmsAsyncSends.setTimeout(1, TimeUnit.MILLISECONDS);
+    track();
+    Thread.sleep(5);
+
+    new TracingJMSContext(closeable(JMSContext.class), mockTracer).close();
+    assertEquals(1, mockTracer.finishedSpans().size());
+
+    track();
+    Thread.sleep(5);
+
+    new TracingSession(closeable(Session.class), mockTracer).close();
+    assertEquals(2, mockTracer.finishedSpans().size());
+  }
+
+  @Test
+  public void evictsOldestWhenFull() {
+    JmsAsyncSends.setMaxInFlight(2);
+    TracingCompletionListener first = track();
+    TracingCompletionListener second = track();
+    TracingCompletionListener third = track();
+
+    assertEquals(2, JmsAsyncSends.inFlight());
+    assertEquals(1, JmsAsyncSends.evicted());
+    assertEquals(1, mockTracer.finishedSpans().size());
+    assertEquals(Boolean.TRUE,
+        mockTracer.finishedSpans().get(0).tags().get(JmsAsyncSends.ACK_TIMEOUT_TAG));
+
+    first.onCompletion(null);
+    second.onCompletion(null);
+    third.onCompletion(null);
+    assertEquals(0, JmsAsyncSends.inFlight());
+    assertEquals(3, mockTracer.finishedSpans().size());
+    assertEquals(2, JmsAsyncSends.ackLatencyNanos().count());
+  }
+
+  @Test
+  public void sendFailure() {
+    TracingCompletionListener listener = track();
+
+    listener.onSendFailure(null, new IllegalStateException("closed"));
+
+    assertEquals(0, JmsAsyncSends.inFlight());
+    assertEquals(0, JmsAsyncSends.ackLatencyNanos().count());
+    assertEquals(Boolean.TRUE,
+        mockTracer.finishedSpans().get(0).tags().get(Tags.ERROR.getKey()));
+  }
+
+  @Test
+  public void untrackedWhenDisabled() {
+    JmsAsyncSends.setMaxInFlight(0);
+    TracingCompletionListener listener = track();
+    assertEquals(0, JmsAsyncSends.inFlight());
+
+    listener.onCompletion(null);
+    assertEquals(1, mockTracer.finishedSpans().size());
+    assertEquals(0, JmsAsyncSends.ackLatencyNanos().count());
+  }
+
+  @Test
+  public void mbean() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    JmsAsyncSends.registerMBean();
+    try {
+      TracingCompletionListener listener = track();
+      assertEquals(1, server.getAttribute(JmsAsyncSends.objectName(), "InFlight"));
+      listener.onCompletion(null);
+      assertEquals(0, server.getAttribute(JmsAsyncSends.objectName(), "InFlight"));
+    } finally {
+      JmsAsyncSends.unregisterMBean();
+    }
+    assertFalse(server.isRegistered(JmsAsyncSends.objectName()));
+  }
+
+  private static <T> T closeable(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!method.getName().equals("close")) {
+              throw new UnsupportedOperationException(method.getName());
+            }
+            return null;
+          }
+        }));
+  }
+
+  private TracingCompletionListener track() {
+    return TracingMessageProducer.tracingCompletionListener(
+        mockTracer.buildSpan("jms-send").start(), completionListener, null);
+  }
+}
@@ -16,14 +16,20 @@ package io.opentracing.contrib.jms2;
 import static org.awaitility.Awaitility.await;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import io.opentracing.contrib.jms.common.SpanContextContainer;
+import io.opentracing.contrib.jms.common.SpanContextMessage;
+import io.opentracing.contrib.jms.common.SpanJmsDecorator;
 import io.opentracing.contrib.jms.common.TracingMessageConsumer;
 import io.opentracing.contrib.jms.common.TracingMessageListener;
 import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import io.opentracing.contrib.jms.common.TracingTransaction;
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
 import io.opentracing.tag.Tags;
@@ -33,12 +39,14 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import javax.jms.CompletionListener;
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
 import javax.jms.JMSProducer;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageFormatException;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
@@ -147,6 +155,17 @@ public class TracingArtemisTest {
 
     TextMessage received = (TextMessage) consumer.receive(5000);
     assertEquals("Hello world", received.getText());
+    assertEquals("Hello world", received.getBody(String.class));
+    assertTrue(received.isBodyAssignableTo(String.class));
+    assertFalse(received.isBodyAssignableTo(Integer.class));
+    assertEquals(((SpanContextMessage) received).getMessage().getJMSDeliveryTime(),
+        received.getJMSDeliveryTime());
+    try {
+      received.getBody(Integer.class);
+      fail();
+    } catch (MessageFormatException expected) {
+      // rethrown unwrapped
+    }
 
     assertTrue(received instanceof SpanContextContainer);
     SpanContextContainer spanContextContainer = (SpanContextContainer) received;
@@ -187,6 +206,46 @@ public class TracingArtemisTest {
     assertNull(mockTracer.activeSpan());
   }
 
+  @Test
+  public void sendAsyncJMSProducer() throws Exception {
+    Destination destination = session.createQueue("TEST.FOO");
+
+    TracingJMSProducer producer = new TracingJMSProducer(jmsContext.createProducer(), session,
+        mockTracer);
+
+    final CountDownLatch countDownLatch = new CountDownLatch(1);
+    CompletionListener completionListener = new CompletionListener() {
+      @Override
+      public void onCompletion(Message message) {
+        countDownLatch.countDown();
+      }
+
+      @Override
+      public void onException(Message message, Exception exception) {
+      }
+    };
+    producer.setAsync(completionListener);
+    assertSame(completionListener, producer.getAsync());
+
+    MessageConsumer messageConsumer = session.createConsumer(destination);
+    TracingMessageConsumer consumer = new TracingMessageConsumer(messageConsumer, mockTracer);
+
+    producer.send(destination, "Hello world");
+    assertTrue(countDownLatch.await(15, TimeUnit.SECONDS));
+    await().atMost(15, TimeUnit.SECONDS).until(reportedSpansSize(), equalTo(1));
+    assertEquals(TracingMessageUtils.OPERATION_NAME_SEND,
+        mockTracer.finishedSpans().get(0).operationName());
+
+    TextMessage received = (TextMessage) consumer.receive(5000);
+    assertEquals("Hello world", received.getText());
+
+    await().atMost(15, TimeUnit.SECONDS).until(reportedSpansSize(), equalTo(2));
+
+    List<MockSpan> mockSpans = mockTracer.finishedSpans();
+    checkSpans(mockSpans);
+    assertNull(mockTracer.activeSpan());
+  }
+
   @Test
   public void sendAndReceiveInListener() throws Exception {
     Destination destination = session.createQueue("TEST.FOO");
@@ -224,6 +283,110 @@ public class TracingArtemisTest {
     assertNull(mockTracer.activeSpan());
   }
 
+  @Test
+  public void transactedSession() throws Exception {
+    Session transacted = new TracingSession(
+        connection.createSession(true, Session.SESSION_TRANSACTED), mockTracer);
+    Queue queue = transacted.createQueue("TEST.TRANSACTED");
+    MessageProducer producer = transacted.createProducer(queue);
+
+    producer.send(transacted.createTextMessage("first"));
+    producer.send(transacted.createTextMessage("second"));
+    transacted.commit();
+
+    MessageConsumer consumer = transacted.createConsumer(queue);
+    assertNotNull(consumer.receive(5000));
+    transacted.rollback();
+    transacted.close();
+
+    MockSpan sendTransaction = span(TracingTransaction.OPERATION_NAME_TRANSACTION, 0);
+    assertEquals(2, sendTransaction.tags().get(TracingTransaction.SENT_TAG));
+    assertEquals(0, sendTransaction.tags().get(TracingTransaction.RECEIVED_TAG));
+    assertEquals("commit", sendTransaction.tags().get(TracingTransaction.OUTCOME_TAG));
+    assertEquals(TracingMessageUtils.COMPONENT_NAME,
+        sendTransaction.tags().get(Tags.COMPONENT.getKey()));
+    assertNull(sendTransaction.tags().get(Tags.SPAN_KIND.getKey()));
+    assertNull(sendTransaction.tags().get(Tags.MESSAGE_BUS_DESTINATION.getKey()));
+    assertEquals(sendTransaction.context().spanId(),
+        span(TracingTransaction.OPERATION_NAME_COMMIT, 0).parentId());
+    assertEquals(sendTransaction.context().spanId(),
+        span(TracingMessageUtils.OPERATION_NAME_SEND, 0).parentId());
+    assertEquals(sendTransaction.context().spanId(),
+        span(TracingMessageUtils.OPERATION_NAME_SEND, 1).parentId());
+
+    MockSpan receiveTransaction = span(TracingTransaction.OPERATION_NAME_TRANSACTION, 1);
+    assertNull(receiveTransaction.tags().get(Tags.SPAN_KIND.getKey()));
+    assertEquals(1, receiveTransaction.tags().get(TracingTransaction.RECEIVED_TAG));
+    assertEquals("rollback", receiveTransaction.tags().get(TracingTransaction.OUTCOME_TAG));
+    assertEquals(receiveTransaction.context().spanId(),
+        span(TracingTransaction.OPERATION_NAME_ROLLBACK, 0).parentId());
+    MockSpan receive = span(TracingMessageUtils.OPERATION_NAME_RECEIVE, 0);
+    assertEquals(receiveTransaction.context().spanId(), receive.parentId());
+    assertEquals(2, receive.references().size());
+    assertNotNull(span(TracingMessageUtils.OPERATION_NAME_SEND, 1));
+  }
+
+  @Test
+  public void transactedSessionCollapsedSends() throws Exception {
+    TracingTransaction.setCollapseSends(true);
+    try {
+      Session transacted = new TracingSession(
+          connection.createSession(true, Session.SESSION_TRANSACTED), mockTracer);
+      Queue queue = transacted.createQueue("TEST.COLLAPSED");
+      MessageProducer producer = transacted.createProducer(queue);
+      producer.send(transacted.createTextMessage("first"));
+      producer.send(transacted.createTextMessage("second"));
+      transacted.commit();
+
+      List<MockSpan> mockSpans = mockTracer.finishedSpans();
+      assertEquals(2, mockSpans.size());
+      MockSpan transaction = span(TracingTransaction.OPERATION_NAME_TRANSACTION, 0);
+
+      TracingMessageConsumer consumer = new TracingMessageConsumer(session.createConsumer(queue),
+          mockTracer);
+      assertNotNull(consumer.receive(5000));
+      assertNotNull(consumer.receive(5000));
+      assertEquals(transaction.context().spanId(),
+          span(TracingMessageUtils.OPERATION_NAME_RECEIVE, 0).parentId());
+      assertEquals(transaction.context().spanId(),
+          span(TracingMessageUtils.OPERATION_NAME_RECEIVE, 1).parentId());
+      transacted.close();
+    } finally {
+      TracingTransaction.setCollapseSends(false);
+    }
+  }
+
+  @Test
+  public void dwellTimeExcludesDeliveryDelay() throws Exception {
+    SpanJmsDecorator.setDwellTimeEnabled(true);
+    try {
+      Session tracingSession = new TracingSession(session, mockTracer);
+      Queue queue = tracingSession.createQueue("TEST.DELAYED");
+      MessageProducer producer = tracingSession.createProducer(queue);
+      producer.setDeliveryDelay(500);
+      MessageConsumer consumer = tracingSession.createConsumer(queue);
+
+      producer.send(tracingSession.createTextMessage("Hello world"));
+      assertNotNull(consumer.receive(5000));
+
+      MockSpan receive = span(TracingMessageUtils.OPERATION_NAME_RECEIVE, 0);
+      long dwellTime = (Long) receive.tags().get(SpanJmsDecorator.DWELL_TIME_TAG);
+      assertTrue("dwell time " + dwellTime, dwellTime < 500);
+    } finally {
+      SpanJmsDecorator.setDwellTimeEnabled(false);
+    }
+  }
+
+  private MockSpan span(String operationName, int index) {
+    int found = 0;
+    for (MockSpan span : mockTracer.finishedSpans()) {
+      if (span.operationName().equals(operationName) && found++ == index) {
+        return span;
+      }
+    }
+    return null;
+  }
+
   private void checkSpans(List<MockSpan> mockSpans) {
     for (MockSpan mockSpan : mockSpans) {
       assertTrue(mockSpan.tags().get(Tags.SPAN_KIND.getKey()).equals(Tags.SPAN_KIND_CONSUMER)
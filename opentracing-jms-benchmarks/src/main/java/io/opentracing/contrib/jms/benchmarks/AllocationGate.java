@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Fails when the allocations per operation ({@code gc.alloc.rate.norm}) of the tracing hot paths
+ * grow past a checked-in baseline.
+ * <p>
+ * Usage: {@code AllocationGate <baseline file> [check|record]}. In {@code record} mode the
+ * baseline file is rewritten with the measured values. Only the traced variants are gated, the
+ * unwrapped calls are measured in the regular benchmarks.
+ * <p>
+ * Whether the JIT scalar replaces an allocation depends on the order of the background
+ * compilations, so the benchmarks run with synchronous compilation to be reproducible. A
+ * regression is reported only if the measured value exceeds the baseline by more than
+ * {@link #TOLERANCE} relative and {@link #SLACK_BYTES} absolute.
+ */
+public final class AllocationGate {
+
+  static final double TOLERANCE = 0.10;
+  static final double SLACK_BYTES = 32;
+
+  private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+  private static final String[] BENCHMARKS = {
+      MessageProducerBenchmark.class.getSimpleName(),
+      MessageConsumerBenchmark.class.getSimpleName(),
+      MessageListenerBenchmark.class.getSimpleName(),
+      SpringListenerAdapterBenchmark.class.getSimpleName(),
+      PropagationBenchmark.class.getSimpleName()
+  };
+
+  private AllocationGate() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: AllocationGate <baseline file> [check|record]");
+      System.exit(2);
+    }
+    File baselineFile = new File(args[0]);
+    boolean record = args.length > 1 && "record".equals(args[1]);
+
+    Map<String, Double> measured = measure();
+    if (record) {
+      store(baselineFile, measured);
+      System.out.println("Recorded allocation baseline " + baselineFile);
+      return;
+    }
+
+    List<String> failures = compare(load(baselineFile), measured);
+    if (!failures.isEmpty()) {
+      for (String failure : failures) {
+        System.err.println(failure);
+      }
+      System.exit(1);
+    }
+    System.out.println("No allocation regression against " + baselineFile);
+  }
+
+  static List<String> compare(Map<String, Double> baseline, Map<String, Double> measured) {
+    List<String> failures = new ArrayList<>();
+    for (String key : baseline.keySet()) {
+      if (!measured.containsKey(key)) {
+        failures.add(key + ": not measured");
+      }
+    }
+    for (Map.Entry<String, Double> entry : measured.entrySet()) {
+      Double expected = baseline.get(entry.getKey());
+      double actual = entry.getValue();
+      if (expected == null) {
+        failures.add(String.format(Locale.ROOT, "%s: %.1f B/op, not in baseline",
+            entry.getKey(), actual));
+      } else if (actual > expected * (1 + TOLERANCE) && actual > expected + SLACK_BYTES) {
+        failures.add(String.format(Locale.ROOT, "%s: %.1f B/op, baseline %.1f B/op",
+            entry.getKey(), actual, expected));
+      }
+    }
+    return failures;
+  }
+
+  private static Map<String, Double> measure() throws Exception {
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .param("tracer", BenchmarkTracers.NOOP, BenchmarkTracers.MOCK)
+        .addProfiler(GCProfiler.class)
+        .shouldFailOnError(true)
+        .forks(1)
+        .jvmArgsAppend("-XX:-BackgroundCompilation")
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(3)
+        .measurementTime(TimeValue.seconds(1))
+        .timeUnit(TimeUnit.NANOSECONDS);
+    for (String benchmark : BENCHMARKS) {
+      options.include("\\." + benchmark + "\\.");
+    }
+    Collection<RunResult> results = new Runner(options.build()).run();
+
+    Map<String, Double> measured = new TreeMap<>();
+    for (RunResult result : results) {
+      for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+        if (secondary.getKey().endsWith(ALLOC_RATE_NORM)) {
+          measured.put(key(result.getParams()), secondary.getValue().getScore());
+        }
+      }
+    }
+    return measured;
+  }
+
+  /**
+   * E.g. {@code MessageConsumerBenchmark.receive.proxyMessage-true.tracer-mock}.
+   */
+  private static String key(BenchmarkParams params) {
+    String benchmark = params.getBenchmark();
+    int method = benchmark.lastIndexOf('.');
+    StringBuilder key = new StringBuilder(
+        benchmark.substring(benchmark.lastIndexOf('.', method - 1) + 1));
+    for (String param : params.getParamsKeys()) {
+      key.append('.').append(param).append('-').append(params.getParam(param));
+    }
+    return key.toString();
+  }
+
+  private static Map<String, Double> load(File file) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file);
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    Map<String, Double> baseline = new TreeMap<>();
+    for (String name : properties.stringPropertyNames()) {
+      baseline.put(name, Double.valueOf(properties.getProperty(name)));
+    }
+    return baseline;
+  }
+
+  /**
+   * Rewrite the baseline, keeping the leading comment lines of an existing file.
+   */
+  private static void store(File file, Map<String, Double> measured) throws IOException {
+    List<String> header = new ArrayList<>();
+    if (file.exists()) {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          break;
+        }
+        header.add(line);
+      }
+    }
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+        StandardCharsets.UTF_8)) {
+      for (String line : header) {
+        writer.write(line + System.lineSeparator());
+      }
+      for (Map.Entry<String, Double> entry : measured.entrySet()) {
+        writer.write(String.format(Locale.ROOT, "%s=%.1f%n", entry.getKey(), entry.getValue()));
+      }
+    }
+  }
+}
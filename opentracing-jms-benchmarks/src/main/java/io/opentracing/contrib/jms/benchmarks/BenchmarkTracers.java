@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.noop.NoopTracerFactory;
+
+/**
+ * Tracers selected by the {@code tracer} benchmark parameter.
+ */
+final class BenchmarkTracers {
+
+  /**
+   * Unwrapped JMS objects, the baseline.
+   */
+  static final String NONE = "none";
+
+  /**
+   * Wrapped with {@link io.opentracing.noop.NoopTracer}, the cost of the instrumentation itself.
+   */
+  static final String NOOP = "noop";
+
+  /**
+   * Wrapped with {@link MockTracer}, spans are built and propagated but not kept.
+   */
+  static final String MOCK = "mock";
+
+  private BenchmarkTracers() {
+  }
+
+  static boolean isTraced(String tracer) {
+    return !NONE.equals(tracer);
+  }
+
+  static Tracer create(String tracer) {
+    return create(tracer, Propagator.TEXT_MAP);
+  }
+
+  static Tracer create(String tracer, Propagator propagator) {
+    if (MOCK.equals(tracer)) {
+      return new MockTracer(propagator) {
+        @Override
+        protected void onSpanFinished(MockSpan mockSpan) {
+          // don't keep finished spans
+        }
+      };
+    }
+    return NoopTracerFactory.create();
+  }
+}
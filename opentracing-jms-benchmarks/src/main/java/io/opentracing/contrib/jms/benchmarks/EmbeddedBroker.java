@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Tracer;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import javax.jms.ConnectionFactory;
+import javax.jms.MessageProducer;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.artemis.api.core.TransportConfiguration;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.remoting.impl.invm.InVMAcceptorFactory;
+import org.apache.activemq.artemis.core.server.ActiveMQServer;
+import org.apache.activemq.artemis.core.server.impl.ActiveMQServerImpl;
+import org.apache.activemq.artemis.jms.client.ActiveMQJMSConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+
+/**
+ * Broker started in-process for {@link LoadHarness}, connected through the in-VM transport.
+ */
+abstract class EmbeddedBroker {
+
+  static final String ACTIVEMQ = "activemq";
+  static final String ARTEMIS = "artemis";
+
+  static EmbeddedBroker create(String name) {
+    if (ACTIVEMQ.equals(name)) {
+      return new ActiveMQ();
+    }
+    if (ARTEMIS.equals(name)) {
+      return new Artemis();
+    }
+    throw new IllegalArgumentException("Unknown broker " + name);
+  }
+
+  /**
+   * Start the broker, keeping the journal of persistent messages in {@code dataDirectory}.
+   */
+  abstract void start(File dataDirectory, boolean persistent) throws Exception;
+
+  abstract ConnectionFactory connectionFactory();
+
+  /**
+   * Wrap the {@code producer} with the tracing producer of the JMS API version of the broker.
+   */
+  abstract MessageProducer tracingProducer(MessageProducer producer, Tracer tracer);
+
+  abstract void stop() throws Exception;
+
+  private static class ActiveMQ extends EmbeddedBroker {
+
+    private BrokerService broker;
+
+    @Override
+    void start(File dataDirectory, boolean persistent) throws Exception {
+      broker = new BrokerService();
+      broker.setBrokerName("load");
+      broker.setPersistent(persistent);
+      broker.setDataDirectoryFile(new File(dataDirectory, ACTIVEMQ));
+      broker.setDeleteAllMessagesOnStartup(true);
+      broker.setUseJmx(false);
+      broker.start();
+      broker.waitUntilStarted();
+    }
+
+    @Override
+    ConnectionFactory connectionFactory() {
+      return new ActiveMQConnectionFactory("vm://load?create=false");
+    }
+
+    @Override
+    MessageProducer tracingProducer(MessageProducer producer, Tracer tracer) {
+      return new io.opentracing.contrib.jms.TracingMessageProducer(producer, tracer);
+    }
+
+    @Override
+    void stop() throws Exception {
+      broker.stop();
+      broker.waitUntilStopped();
+    }
+  }
+
+  private static class Artemis extends EmbeddedBroker {
+
+    private ActiveMQServer server;
+
+    @Override
+    void start(File dataDirectory, boolean persistent) throws Exception {
+      Configuration configuration = new ConfigurationImpl();
+      Set<TransportConfiguration> transports = new HashSet<>();
+      transports.add(new TransportConfiguration(InVMAcceptorFactory.class.getName()));
+      configuration.setAcceptorConfigurations(transports);
+      configuration.setSecurityEnabled(false);
+      configuration.setPersistenceEnabled(persistent);
+      configuration.setBrokerInstance(new File(dataDirectory, ARTEMIS));
+      server = new ActiveMQServerImpl(configuration);
+      server.start();
+    }
+
+    @Override
+    ConnectionFactory connectionFactory() {
+      return new ActiveMQJMSConnectionFactory("vm://0");
+    }
+
+    @Override
+    MessageProducer tracingProducer(MessageProducer producer, Tracer tracer) {
+      return new io.opentracing.contrib.jms2.TracingMessageProducer(producer, tracer);
+    }
+
+    @Override
+    void stop() throws Exception {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.testing.InMemoryConnectionFactory;
+import io.opentracing.contrib.jms2.TracingConnectionFactory;
+import io.opentracing.contrib.jms2.TracingJMSContext;
+import java.util.concurrent.TimeUnit;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Send and receive through the wrappers created by {@link TracingConnectionFactory} and
+ * {@link TracingJMSContext}, and through the {@code opentracing-jms-1}
+ * {@link io.opentracing.contrib.jms.TracingMessageProducer}, on the broker-free
+ * {@link InMemoryConnectionFactory}. Each operation sends one message and receives it again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryProviderBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  private Connection connection;
+  private Session session;
+  private Queue queue;
+  private MessageProducer producer;
+  private MessageProducer jms1Producer;
+  private MessageConsumer consumer;
+  private JMSContext context;
+  private JMSProducer jmsProducer;
+  private JMSConsumer jmsConsumer;
+
+  @Setup
+  public void setup() throws JMSException {
+    InMemoryConnectionFactory inMemory = new InMemoryConnectionFactory();
+    ConnectionFactory connectionFactory = inMemory;
+    context = inMemory.createContext();
+    if (BenchmarkTracers.isTraced(tracer)) {
+      Tracer tracer = BenchmarkTracers.create(this.tracer);
+      connectionFactory = new TracingConnectionFactory(inMemory, tracer);
+      context = new TracingJMSContext(context, tracer);
+    }
+    connection = connectionFactory.createConnection();
+    connection.start();
+    session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    queue = session.createQueue("benchmark");
+    producer = session.createProducer(queue);
+    consumer = session.createConsumer(queue);
+
+    Session plain = inMemory.createConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+    jms1Producer = plain.createProducer(queue);
+    if (BenchmarkTracers.isTraced(tracer)) {
+      jms1Producer = new io.opentracing.contrib.jms.TracingMessageProducer(jms1Producer,
+          BenchmarkTracers.create(tracer));
+    }
+
+    jmsProducer = context.createProducer();
+    jmsConsumer = context.createConsumer(context.createQueue("benchmark-context"));
+  }
+
+  @TearDown
+  public void tearDown() throws JMSException {
+    context.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public Message sessionSendReceive() throws JMSException {
+    producer.send(session.createTextMessage("Hello world"));
+    return consumer.receiveNoWait();
+  }
+
+  @Benchmark
+  public Message jms1SendReceive() throws JMSException {
+    jms1Producer.send(session.createTextMessage("Hello world"));
+    return consumer.receiveNoWait();
+  }
+
+  @Benchmark
+  public Message contextSendReceive() {
+    jmsProducer.send(context.createQueue("benchmark-context"), "Hello world");
+    return jmsConsumer.receiveNoWait();
+  }
+
+  @Benchmark
+  public MessageProducer createSessionAndProducer() throws JMSException {
+    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    MessageProducer producer = session.createProducer(queue);
+    session.close();
+    return producer;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.contrib.jms.testing.InMemoryConnectionFactory;
+import io.opentracing.contrib.jms2.TracingJMSProducer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code JMSProducer.send} of {@link TracingJMSProducer} for each body type, to a topic of the
+ * {@link InMemoryConnectionFactory} without subscribers, which drops the messages. The traced
+ * sends include creating the JMS message for the body, which the unwrapped producer leaves to the
+ * provider.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JMSProducerBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  private final Map<String, Object> map = Collections.<String, Object>singletonMap("key", "value");
+  private final byte[] bytes = new byte[64];
+  private final Long object = 42L;
+  private JMSContext context;
+  private Topic topic;
+  private JMSProducer producer;
+  private Message message;
+
+  @Setup
+  public void setup() {
+    context = new InMemoryConnectionFactory().createContext();
+    topic = context.createTopic("benchmark");
+    message = context.createTextMessage("Hello world");
+    producer = context.createProducer();
+    if (BenchmarkTracers.isTraced(tracer)) {
+      producer = new TracingJMSProducer(producer, context, BenchmarkTracers.create(tracer));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public JMSProducer sendMessage() {
+    return producer.send(topic, message);
+  }
+
+  @Benchmark
+  public JMSProducer sendText() {
+    return producer.send(topic, "Hello world");
+  }
+
+  @Benchmark
+  public JMSProducer sendMap() {
+    return producer.send(topic, map);
+  }
+
+  @Benchmark
+  public JMSProducer sendBytes() {
+    return producer.send(topic, bytes);
+  }
+
+  @Benchmark
+  public JMSProducer sendObject() {
+    return producer.send(topic, object);
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.TracingMessageConsumer;
+import io.opentracing.contrib.jms.common.TracingMessageListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import org.HdrHistogram.Histogram;
+
+/**
+ * End-to-end throughput and latency of traced producers and consumers on an embedded ActiveMQ or
+ * Artemis broker. The same workload runs once per tracer ({@link BenchmarkTracers}): untraced,
+ * with {@code NoopTracer} and with {@code MockTracer}. Reported are the throughput, the send to
+ * consume latency percentiles and the overhead relative to the untraced run. Without a {@code rate}
+ * producers send as fast as possible and the latency mostly measures the broker backlog.
+ * <p>
+ * Usage: {@code LoadHarness [option=value ...]}, see {@link #OPTIONS} for options and defaults.
+ */
+public final class LoadHarness {
+
+  /**
+   * Message property holding the {@link System#nanoTime()} of the send.
+   */
+  static final String SENT_PROPERTY = "load_sent_nanos";
+
+  private static final Map<String, String> OPTIONS = new LinkedHashMap<>();
+
+  static {
+    OPTIONS.put("broker", EmbeddedBroker.ACTIVEMQ); // or artemis
+    OPTIONS.put("destination", "queue"); // or topic
+    OPTIONS.put("persistent", "false");
+    OPTIONS.put("producers", "1");
+    OPTIONS.put("consumers", "1");
+    OPTIONS.put("mode", "listener"); // or receive
+    OPTIONS.put("messages", "50000"); // per producer
+    OPTIONS.put("warmup", "20000"); // per producer and tracer
+    OPTIONS.put("rate", "0"); // messages per second and producer, 0 to send as fast as possible
+    OPTIONS.put("payload", "128"); // characters
+    OPTIONS.put("tracers", BenchmarkTracers.NONE + "," + BenchmarkTracers.NOOP + ","
+        + BenchmarkTracers.MOCK);
+    OPTIONS.put("dir", "target/load");
+  }
+
+  private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1);
+  private static final long TIMEOUT_SECONDS = 300;
+
+  private final Map<String, String> options;
+  private final boolean topic;
+  private final boolean listener;
+  private final int producers;
+  private final int consumers;
+  private final long sendIntervalNanos;
+  private final String payload;
+
+  private LoadHarness(Map<String, String> options) {
+    this.options = options;
+    this.topic = "topic".equals(options.get("destination"));
+    this.listener = "listener".equals(options.get("mode"));
+    this.producers = Integer.parseInt(options.get("producers"));
+    this.consumers = Integer.parseInt(options.get("consumers"));
+    long rate = Long.parseLong(options.get("rate"));
+    this.sendIntervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+    char[] chars = new char[Integer.parseInt(options.get("payload"))];
+    Arrays.fill(chars, 'x');
+    this.payload = new String(chars);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>(OPTIONS);
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0 || !OPTIONS.containsKey(arg.substring(0, separator))) {
+        System.err.println("Usage: LoadHarness [option=value ...], options and defaults: "
+            + OPTIONS);
+        System.exit(2);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+
+    LoadHarness harness = new LoadHarness(options);
+    EmbeddedBroker broker = EmbeddedBroker.create(options.get("broker"));
+    broker.start(new File(options.get("dir")), Boolean.parseBoolean(options.get("persistent")));
+    String[] tracers = options.get("tracers").split(",");
+    List<Result> results = new ArrayList<>();
+    try {
+      // warm up all code paths first, so the first measured tracer doesn't run on a cold JIT
+      for (String tracer : tracers) {
+        harness.run(broker, tracer.trim(), "warmup");
+      }
+      for (String tracer : tracers) {
+        results.add(harness.run(broker, tracer.trim(), "messages"));
+      }
+    } finally {
+      broker.stop();
+    }
+    harness.report(results);
+  }
+
+  /**
+   * Run one round with the tracer named {@code tracerName} and the message count of option
+   * {@code messagesOption}.
+   */
+  private Result run(EmbeddedBroker broker, String tracerName, String messagesOption)
+      throws Exception {
+    Tracer tracer = BenchmarkTracers.isTraced(tracerName)
+        ? BenchmarkTracers.create(tracerName) : null;
+    Connection connection = broker.connectionFactory().createConnection();
+    try {
+      connection.start();
+      return round(connection, broker, tracerName, tracer,
+          "load." + tracerName + "." + messagesOption,
+          Integer.parseInt(options.get(messagesOption)));
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * Send {@code messages} per producer to a new destination and wait until all are consumed.
+   */
+  private Result round(Connection connection, EmbeddedBroker broker, String tracerName,
+      Tracer tracer, String destinationName, final int messages) throws Exception {
+    long expected = (long) producers * messages * (topic ? consumers : 1);
+    final CountDownLatch consumed = new CountDownLatch((int) expected);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    List<Session> sessions = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    List<Histogram> histograms = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < consumers; i++) {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        sessions.add(session);
+        MessageConsumer consumer = session.createConsumer(destination(session, destinationName));
+        Histogram histogram = new Histogram(MAX_LATENCY, 3);
+        histograms.add(histogram);
+        if (listener) {
+          MessageListener recorder = new LatencyRecorder(histogram, consumed, failure);
+          consumer.setMessageListener(tracer == null
+              ? recorder : new TracingMessageListener(recorder, tracer));
+        } else {
+          threads.add(receiver(tracer == null
+                  ? consumer : new TracingMessageConsumer(consumer, tracer),
+              new LatencyRecorder(histogram, consumed, failure)));
+        }
+      }
+
+      for (int i = 0; i < producers; i++) {
+        final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        sessions.add(session);
+        MessageProducer producer = session.createProducer(destination(session, destinationName));
+        producer.setDeliveryMode(Boolean.parseBoolean(options.get("persistent"))
+            ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        final MessageProducer sender = tracer == null
+            ? producer : broker.tracingProducer(producer, tracer);
+        threads.add(new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+              long next = System.nanoTime();
+              for (int n = 0; n < messages && failure.get() == null; n++) {
+                if (sendIntervalNanos > 0) {
+                  next += sendIntervalNanos;
+                  LockSupport.parkNanos(next - System.nanoTime());
+                }
+                TextMessage message = session.createTextMessage(payload);
+                message.setLongProperty(SENT_PROPERTY, System.nanoTime());
+                sender.send(message);
+              }
+            } catch (Exception e) {
+              failure.compareAndSet(null, e);
+            }
+          }
+        }, "load-producer-" + i));
+      }
+
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      long begin = System.nanoTime();
+      start.countDown();
+      boolean done = consumed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      long elapsed = System.nanoTime() - begin;
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+      if (!done) {
+        throw new IllegalStateException(destinationName + ": " + consumed.getCount()
+            + " of " + expected + " messages not consumed after " + TIMEOUT_SECONDS + "s");
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      Histogram latency = new Histogram(MAX_LATENCY, 3);
+      for (Histogram histogram : histograms) {
+        latency.add(histogram);
+      }
+      return new Result(tracerName, expected, elapsed, latency);
+    } finally {
+      for (Session session : sessions) {
+        session.close();
+      }
+    }
+  }
+
+  private Destination destination(Session session, String name) throws JMSException {
+    return topic ? session.createTopic(name) : session.createQueue(name);
+  }
+
+  private Thread receiver(final MessageConsumer consumer, final LatencyRecorder recorder) {
+    return new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (recorder.consumed.getCount() > 0) {
+            Message message = consumer.receive(100);
+            if (message != null) {
+              recorder.onMessage(message);
+            }
+          }
+        } catch (Exception e) {
+          recorder.failure.compareAndSet(null, e);
+        }
+      }
+    }, "load-consumer");
+  }
+
+  private void report(List<Result> results) {
+    StringBuilder header = new StringBuilder();
+    for (Map.Entry<String, String> option : options.entrySet()) {
+      header.append(option.getKey()).append('=').append(option.getValue()).append(' ');
+    }
+    System.out.println();
+    System.out.println(header.toString().trim());
+    System.out.printf(Locale.ROOT, "%-8s %12s %9s %9s %9s %9s %9s %11s %9s%n", "tracer",
+        "msgs/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "throughput", "p99");
+    Result baseline = results.get(0);
+    for (Result result : results) {
+      Histogram latency = result.latency;
+      System.out.printf(Locale.ROOT, "%-8s %12.0f %9.1f %9.1f %9.1f %9.1f %9.1f %11s %9s%n",
+          result.tracer, result.throughput(),
+          micros(latency.getValueAtPercentile(50)), micros(latency.getValueAtPercentile(90)),
+          micros(latency.getValueAtPercentile(99)), micros(latency.getValueAtPercentile(99.9)),
+          micros(latency.getMaxValue()),
+          overhead(baseline.throughput() / result.throughput()),
+          overhead((double) latency.getValueAtPercentile(99)
+              / baseline.latency.getValueAtPercentile(99)));
+    }
+    System.out.println("overhead relative to " + baseline.tracer
+        + ": throughput cost and p99 latency increase");
+  }
+
+  private static double micros(long nanos) {
+    return nanos / 1000.0;
+  }
+
+  private static String overhead(double ratio) {
+    return String.format(Locale.ROOT, "%+.1f%%", (ratio - 1) * 100);
+  }
+
+  private static class LatencyRecorder implements MessageListener {
+
+    private final Histogram histogram;
+    private final CountDownLatch consumed;
+    private final AtomicReference<Exception> failure;
+
+    LatencyRecorder(Histogram histogram, CountDownLatch consumed,
+        AtomicReference<Exception> failure) {
+      this.histogram = histogram;
+      this.consumed = consumed;
+      this.failure = failure;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+      try {
+        long latency = System.nanoTime() - message.getLongProperty(SENT_PROPERTY);
+        histogram.recordValue(Math.min(Math.max(latency, 0), MAX_LATENCY));
+      } catch (JMSException e) {
+        failure.compareAndSet(null, e);
+      }
+      consumed.countDown();
+    }
+  }
+
+  private static class Result {
+
+    private final String tracer;
+    private final long messages;
+    private final long elapsedNanos;
+    private final Histogram latency;
+
+    Result(String tracer, long messages, long elapsedNanos, Histogram latency) {
+      this.tracer = tracer;
+      this.messages = messages;
+      this.elapsedNanos = elapsedNanos;
+      this.latency = latency;
+    }
+
+    double throughput() {
+      return messages * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+  }
+}
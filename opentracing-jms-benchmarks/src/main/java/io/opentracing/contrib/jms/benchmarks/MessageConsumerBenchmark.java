@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.TracingMessageConsumer;
+import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import io.opentracing.contrib.jms.testing.InMemoryConnectionFactory;
+import java.util.concurrent.TimeUnit;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code MessageConsumer.receiveNoWait} of {@link TracingMessageConsumer}, with and without
+ * {@code proxyMessage}, of a message carrying the span context of a send span. Each operation
+ * first sends the message with an unwrapped producer of the {@link InMemoryConnectionFactory}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConsumerBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  @Param({"false", "true"})
+  public boolean proxyMessage;
+
+  private Connection connection;
+  private MessageProducer producer;
+  private MessageConsumer consumer;
+  private Message message;
+
+  @Setup
+  public void setup() throws JMSException {
+    connection = new InMemoryConnectionFactory().createConnection();
+    connection.start();
+    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    Queue queue = session.createQueue("benchmark");
+    message = session.createTextMessage("Hello world");
+    producer = session.createProducer(queue);
+    consumer = session.createConsumer(queue);
+    if (BenchmarkTracers.isTraced(tracer)) {
+      Tracer tracer = BenchmarkTracers.create(this.tracer);
+      Span span = TracingMessageUtils.startAndInjectSpan(queue, message, tracer);
+      span.finish();
+      consumer = new TracingMessageConsumer(consumer, tracer, proxyMessage);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws JMSException {
+    connection.close();
+  }
+
+  @Benchmark
+  public Message receive() throws JMSException {
+    producer.send(message);
+    return consumer.receiveNoWait();
+  }
+}
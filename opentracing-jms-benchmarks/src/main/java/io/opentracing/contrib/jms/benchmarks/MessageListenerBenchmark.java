@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.TracingMessageListener;
+import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code MessageListener.onMessage} of {@link TracingMessageListener} for a message carrying the
+ * span context of a send span.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageListenerBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  private MessageListener listener;
+  private ActiveMQTextMessage message;
+
+  @Setup
+  public void setup() throws JMSException {
+    ActiveMQQueue queue = new ActiveMQQueue("benchmark");
+    message = new ActiveMQTextMessage();
+    message.setText("Hello world");
+    message.setJMSDestination(queue);
+    message.setJMSTimestamp(System.currentTimeMillis());
+    listener = new MessageListener() {
+      private Message last;
+
+      @Override
+      public void onMessage(Message message) {
+        last = message;
+      }
+    };
+    if (BenchmarkTracers.isTraced(tracer)) {
+      Tracer tracer = BenchmarkTracers.create(this.tracer);
+      Span span = TracingMessageUtils.startAndInjectSpan(queue, message, tracer);
+      span.finish();
+      listener = new TracingMessageListener(listener, tracer);
+    }
+  }
+
+  @Benchmark
+  public void onMessage() {
+    listener.onMessage(message);
+  }
+}
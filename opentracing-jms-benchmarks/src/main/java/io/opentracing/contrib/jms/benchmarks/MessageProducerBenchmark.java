@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.testing.InMemoryConnectionFactory;
+import java.util.concurrent.TimeUnit;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code MessageProducer.send} of the JMS 1 and JMS 2 {@code TracingMessageProducer}, to a topic
+ * of the {@link InMemoryConnectionFactory} without subscribers, which drops the messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageProducerBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  private Connection connection;
+  private MessageProducer jms1Producer;
+  private MessageProducer jms2Producer;
+  private Message message;
+
+  @Setup
+  public void setup() throws JMSException {
+    connection = new InMemoryConnectionFactory().createConnection();
+    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    Topic topic = session.createTopic("benchmark");
+    message = session.createTextMessage("Hello world");
+    jms1Producer = session.createProducer(topic);
+    jms2Producer = session.createProducer(topic);
+    if (BenchmarkTracers.isTraced(tracer)) {
+      Tracer tracer = BenchmarkTracers.create(this.tracer);
+      jms1Producer = new io.opentracing.contrib.jms.TracingMessageProducer(jms1Producer, tracer);
+      jms2Producer = new io.opentracing.contrib.jms2.TracingMessageProducer(jms2Producer, tracer);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws JMSException {
+    connection.close();
+  }
+
+  @Benchmark
+  public MessageProducer jms1Send() throws JMSException {
+    jms1Producer.send(message);
+    return jms1Producer;
+  }
+
+  @Benchmark
+  public MessageProducer jms2Send() throws JMSException {
+    jms2Producer.send(message);
+    return jms2Producer;
+  }
+}
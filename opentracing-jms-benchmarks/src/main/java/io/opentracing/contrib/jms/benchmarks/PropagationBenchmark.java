@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsBinaryExtractAdapter;
+import io.opentracing.contrib.jms.common.JmsBinaryInjectAdapter;
+import io.opentracing.contrib.jms.common.JmsPropagationKeys;
+import io.opentracing.contrib.jms.common.JmsTextMapExtractAdapter;
+import io.opentracing.contrib.jms.common.JmsTextMapInjectAdapter;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.propagation.Format;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inject and extract adapters with {@code MockTracer}, for the text map form with all message
+ * properties or only known propagation keys, and for the single property binary form. The
+ * messages carry a few unrelated application properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagationBenchmark {
+
+  private final JmsPropagationKeys keys = new JmsPropagationKeys("traceid", "spanid");
+  private Tracer textMapTracer;
+  private Tracer binaryTracer;
+  private SpanContext context;
+  private ActiveMQTextMessage textMapMessage;
+  private ActiveMQTextMessage binaryMessage;
+
+  @Setup
+  public void setup() throws JMSException {
+    textMapTracer = BenchmarkTracers.create(BenchmarkTracers.MOCK, Propagator.TEXT_MAP);
+    binaryTracer = BenchmarkTracers.create(BenchmarkTracers.MOCK, Propagator.BINARY);
+    context = textMapTracer.buildSpan("send").start().context();
+
+    textMapMessage = newMessage();
+    textMapTracer.inject(context, Format.Builtin.TEXT_MAP,
+        new JmsTextMapInjectAdapter(textMapMessage));
+    binaryMessage = newMessage();
+    JmsBinaryInjectAdapter carrier = new JmsBinaryInjectAdapter(binaryMessage);
+    binaryTracer.inject(context, Format.Builtin.BINARY, carrier);
+    carrier.flush();
+  }
+
+  @Benchmark
+  public ActiveMQTextMessage injectTextMap() {
+    textMapTracer.inject(context, Format.Builtin.TEXT_MAP,
+        new JmsTextMapInjectAdapter(textMapMessage));
+    return textMapMessage;
+  }
+
+  @Benchmark
+  public SpanContext extractTextMap() {
+    return textMapTracer.extract(Format.Builtin.TEXT_MAP,
+        new JmsTextMapExtractAdapter(textMapMessage));
+  }
+
+  @Benchmark
+  public SpanContext extractTextMapWithKeys() {
+    return textMapTracer.extract(Format.Builtin.TEXT_MAP,
+        new JmsTextMapExtractAdapter(textMapMessage, keys));
+  }
+
+  @Benchmark
+  public ActiveMQTextMessage injectBinary() {
+    JmsBinaryInjectAdapter carrier = new JmsBinaryInjectAdapter(binaryMessage);
+    binaryTracer.inject(context, Format.Builtin.BINARY, carrier);
+    carrier.flush();
+    return binaryMessage;
+  }
+
+  @Benchmark
+  public SpanContext extractBinary() {
+    return binaryTracer.extract(Format.Builtin.BINARY, new JmsBinaryExtractAdapter(binaryMessage));
+  }
+
+  private static ActiveMQTextMessage newMessage() throws JMSException {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setText("Hello world");
+    message.setStringProperty("tenant", "acme");
+    message.setStringProperty("correlation", "c0ffee");
+    message.setIntProperty("attempt", 1);
+    return message;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.benchmarks;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import io.opentracing.contrib.jms.spring.TracingMessagingMessageListenerAdapter;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jms.listener.adapter.MessagingMessageListenerAdapter;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+/**
+ * {@code onMessage} of {@link TracingMessagingMessageListenerAdapter}, the adapter behind
+ * {@code @JmsListener} methods, invoking a handler method with a String payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringListenerAdapterBenchmark {
+
+  @Param({BenchmarkTracers.NONE, BenchmarkTracers.NOOP, BenchmarkTracers.MOCK})
+  public String tracer;
+
+  private MessagingMessageListenerAdapter adapter;
+  private ActiveMQTextMessage message;
+
+  @Setup
+  public void setup() throws Exception {
+    ActiveMQQueue queue = new ActiveMQQueue("benchmark");
+    message = new ActiveMQTextMessage();
+    message.setText("Hello world");
+    message.setJMSDestination(queue);
+    message.setJMSTimestamp(System.currentTimeMillis());
+    adapter = new MessagingMessageListenerAdapter();
+    if (BenchmarkTracers.isTraced(tracer)) {
+      Tracer tracer = BenchmarkTracers.create(this.tracer);
+      Span span = TracingMessageUtils.startAndInjectSpan(queue, message, tracer);
+      span.finish();
+      adapter = new TracingMessagingMessageListenerAdapter(tracer) {
+      };
+    }
+    DefaultMessageHandlerMethodFactory factory = new DefaultMessageHandlerMethodFactory();
+    factory.afterPropertiesSet();
+    Handler handler = new Handler();
+    adapter.setHandlerMethod(factory.createInvocableHandlerMethod(handler,
+        Handler.class.getMethod("onMessage", String.class)));
+  }
+
+  @Benchmark
+  public MessagingMessageListenerAdapter onMessage() throws JMSException {
+    adapter.onMessage(message, null);
+    return adapter;
+  }
+
+  public static class Handler {
+
+    private String last;
+
+    public void onMessage(String payload) {
+      last = payload;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+/**
+ * Minimal RFC 4648 Base64 codec (java.util.Base64 is not available on Java 7).
+ */
+final class Base64 {
+
+  private static final char[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final int[] INDEX = new int[128];
+
+  static {
+    java.util.Arrays.fill(INDEX, -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      INDEX[ALPHABET[i]] = i;
+    }
+  }
+
+  private Base64() {
+  }
+
+  static String encode(byte[] data, int offset, int length) {
+    char[] out = new char[(length + 2) / 3 * 4];
+    int o = 0;
+    int end = offset + length;
+    int i = offset;
+    for (; i + 2 < end; i += 3) {
+      int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+      out[o++] = ALPHABET[bits >>> 18];
+      out[o++] = ALPHABET[(bits >>> 12) & 0x3f];
+      out[o++] = ALPHABET[(bits >>> 6) & 0x3f];
+      out[o++] = ALPHABET[bits & 0x3f];
+    }
+    int remaining = end - i;
+    if (remaining > 0) {
+      int bits = (data[i] & 0xff) << 16 | (remaining == 2 ? (data[i + 1] & 0xff) << 8 : 0);
+      out[o++] = ALPHABET[bits >>> 18];
+      out[o++] = ALPHABET[(bits >>> 12) & 0x3f];
+      out[o++] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3f] : '=';
+      out[o] = '=';
+    }
+    return new String(out);
+  }
+
+  static byte[] decode(String value) {
+    int length = value.length();
+    while (length > 0 && value.charAt(length - 1) == '=') {
+      length--;
+    }
+    byte[] out = new byte[length * 3 / 4];
+    int bits = 0;
+    int count = 0;
+    int o = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      int index = c < 128 ? INDEX[c] : -1;
+      if (index < 0) {
+        throw new IllegalArgumentException("Illegal Base64 character: " + c);
+      }
+      bits = bits << 6 | index;
+      if (++count == 4) {
+        out[o++] = (byte) (bits >> 16);
+        out[o++] = (byte) (bits >> 8);
+        out[o++] = (byte) bits;
+        bits = 0;
+        count = 0;
+      }
+    }
+    if (count == 3) {
+      out[o++] = (byte) (bits >> 10);
+      out[o] = (byte) (bits >> 2);
+    } else if (count == 2) {
+      out[o] = (byte) (bits >> 4);
+    } else if (count == 1) {
+      throw new IllegalArgumentException("Truncated Base64 value");
+    }
+    return out;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Destination name patterns compiled into a trie of exact names and prefixes, plus a list of glob
+ * patterns.
+ * <p>
+ * A pattern without wildcards matches the exact name, a pattern whose only wildcard is a trailing
+ * {@code *} matches by prefix, other patterns are globs where {@code *} matches any sequence and
+ * {@code ?} a single character. An exact match wins over the longest prefix, which wins over the
+ * first registered glob.
+ */
+final class DestinationMatcher<V> {
+
+  private final Node<V> root = new Node<>();
+  private final List<Pattern> globs = new ArrayList<>();
+  private final List<V> globValues = new ArrayList<>();
+
+  DestinationMatcher(Map<String, V> patterns) {
+    for (Map.Entry<String, V> entry : patterns.entrySet()) {
+      add(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @param name the destination name
+   * @return the value of the best matching pattern or {@code null}
+   */
+  V match(String name) {
+    Node<V> node = root;
+    V prefix = node.prefix;
+    for (int i = 0; i < name.length(); i++) {
+      node = node.child(name.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.prefix != null) {
+        prefix = node.prefix;
+      }
+    }
+    if (node != null && node.exact != null) {
+      return node.exact;
+    }
+    if (prefix != null) {
+      return prefix;
+    }
+    for (int i = 0; i < globs.size(); i++) {
+      if (globs.get(i).matcher(name).matches()) {
+        return globValues.get(i);
+      }
+    }
+    return null;
+  }
+
+  private void add(String pattern, V value) {
+    int wildcard = firstWildcard(pattern);
+    if (wildcard < 0) {
+      insert(pattern).exact = value;
+    } else if (wildcard == pattern.length() - 1 && pattern.charAt(wildcard) == '*') {
+      insert(pattern.substring(0, wildcard)).prefix = value;
+    } else {
+      globs.add(compileGlob(pattern));
+      globValues.add(value);
+    }
+  }
+
+  private Node<V> insert(String key) {
+    Node<V> node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.childOrCreate(key.charAt(i));
+    }
+    return node;
+  }
+
+  private static int firstWildcard(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Pattern compileGlob(String glob) {
+    StringBuilder regex = new StringBuilder();
+    int literalStart = 0;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        if (i > literalStart) {
+          regex.append(Pattern.quote(glob.substring(literalStart, i)));
+        }
+        regex.append(c == '*' ? ".*" : ".");
+        literalStart = i + 1;
+      }
+    }
+    if (literalStart < glob.length()) {
+      regex.append(Pattern.quote(glob.substring(literalStart)));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  private static final class Node<V> {
+
+    private char[] keys = new char[0];
+    private Node<V>[] children = newArray(0);
+    private V exact;
+    private V prefix;
+
+    Node<V> child(char c) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == c) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node<V> childOrCreate(char c) {
+      Node<V> child = child(c);
+      if (child == null) {
+        child = new Node<>();
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        keys[keys.length - 1] = c;
+        children = Arrays.copyOf(children, children.length + 1);
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newArray(int length) {
+      return new Node[length];
+    }
+  }
+}
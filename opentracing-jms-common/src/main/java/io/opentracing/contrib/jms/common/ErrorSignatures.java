@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts repeated exception signatures within a time window, so only the first occurrence per
+ * window is decorated in full. The signature is the exception class and its message, with words
+ * containing digits such as message and connection ids replaced, or its top stack frame if it has
+ * no message. Once {@link #MAX_SIGNATURES} are kept, signatures whose window has passed are
+ * evicted, and the oldest ones down to {@link #EVICT_TO}, so the next scan is only due after a
+ * batch of new signatures.
+ */
+final class ErrorSignatures {
+
+  static final int MAX_SIGNATURES = 256;
+  static final int EVICT_TO = MAX_SIGNATURES * 3 / 4;
+  /**
+   * Characters of the message used for the signature.
+   */
+  static final int MAX_MESSAGE_LENGTH = 256;
+
+  private final ConcurrentMap<Signature, Window> windows = new ConcurrentHashMap<>();
+
+  /**
+   * @param throwable the exception
+   * @param now       current time in nanoseconds
+   * @param window    window length in nanoseconds
+   * @return number of occurrences suppressed in the previous window, if this is the first
+   * occurrence in a new window, otherwise {@code -1}
+   */
+  long firstInWindow(Throwable throwable, long now, long window) {
+    Signature signature = signature(throwable);
+    Window current = windows.get(signature);
+    if (current == null) {
+      if (windows.size() >= MAX_SIGNATURES) {
+        evict(now, window);
+      }
+      current = new Window(now);
+      Window existing = windows.putIfAbsent(signature, current);
+      if (existing == null) {
+        return 0;
+      }
+      current = existing;
+    }
+    return current.occurrence(now, window);
+  }
+
+  int size() {
+    return windows.size();
+  }
+
+  private void evict(long now, long window) {
+    List<Candidate> live = new ArrayList<>(windows.size());
+    for (Map.Entry<Signature, Window> entry : windows.entrySet()) {
+      long start = entry.getValue().start();
+      if (now - start >= window) {
+        windows.remove(entry.getKey(), entry.getValue());
+      } else {
+        live.add(new Candidate(entry.getKey(), entry.getValue(), start));
+      }
+    }
+    int excess = live.size() - EVICT_TO;
+    if (excess <= 0) {
+      return;
+    }
+    Collections.sort(live, new Comparator<Candidate>() {
+      @Override
+      public int compare(Candidate a, Candidate b) {
+        return Long.signum(a.start - b.start);
+      }
+    });
+    for (int i = 0; i < excess; i++) {
+      Candidate oldest = live.get(i);
+      windows.remove(oldest.signature, oldest.window);
+    }
+  }
+
+  private static Signature signature(Throwable throwable) {
+    String message = throwable.getMessage();
+    if (message != null) {
+      return new Signature(throwable.getClass(), normalize(message));
+    }
+    StackTraceElement[] stackTrace = throwable.getStackTrace();
+    return new Signature(throwable.getClass(), stackTrace.length > 0 ? stackTrace[0] : null);
+  }
+
+  /**
+   * Replace each word containing a digit with {@code #}, e.g. {@code ID:host-4711-1:1} becomes
+   * {@code ID:host-#-#:#}.
+   */
+  static String normalize(String message) {
+    int length = Math.min(message.length(), MAX_MESSAGE_LENGTH);
+    StringBuilder sb = new StringBuilder(length);
+    int i = 0;
+    while (i < length) {
+      char c = message.charAt(i);
+      if (!Character.isLetterOrDigit(c)) {
+        sb.append(c);
+        i++;
+        continue;
+      }
+      int end = i;
+      boolean digit = false;
+      while (end < length && Character.isLetterOrDigit(message.charAt(end))) {
+        digit |= Character.isDigit(message.charAt(end));
+        end++;
+      }
+      if (digit) {
+        sb.append('#');
+      } else {
+        sb.append(message, i, end);
+      }
+      i = end;
+    }
+    return sb.toString();
+  }
+
+  private static final class Candidate {
+
+    private final Signature signature;
+    private final Window window;
+    private final long start;
+
+    Candidate(Signature signature, Window window, long start) {
+      this.signature = signature;
+      this.window = window;
+      this.start = start;
+    }
+  }
+
+  private static final class Signature {
+
+    private final Class<?> type;
+    /**
+     * The message or, without message, the top stack frame.
+     */
+    private final Object detail;
+
+    Signature(Class<?> type, Object detail) {
+      this.type = type;
+      this.detail = detail;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Signature)) {
+        return false;
+      }
+      Signature other = (Signature) o;
+      return type == other.type && (detail == null ? other.detail == null
+          : detail.equals(other.detail));
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + (detail != null ? detail.hashCode() : 0);
+    }
+  }
+
+  private static final class Window {
+
+    private long start;
+    private long repeats;
+
+    Window(long start) {
+      this.start = start;
+    }
+
+    synchronized long start() {
+      return start;
+    }
+
+    synchronized long occurrence(long now, long window) {
+      if (now - start < window) {
+        repeats++;
+        return -1;
+      }
+      long suppressed = repeats;
+      start = now;
+      repeats = 0;
+      return suppressed;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.propagation.Binary;
+import java.nio.ByteBuffer;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Helper class to extract span context written by {@link JmsBinaryInjectAdapter}.
+ */
+public class JmsBinaryExtractAdapter implements Binary {
+
+  private final ByteBuffer buffer;
+
+  /**
+   * A malformed or truncated {@link JmsBinaryInjectAdapter#SPAN_CONTEXT_PROPERTY} yields an empty
+   * extraction buffer, i.e. no span context.
+   *
+   * @param message the JMS message
+   */
+  public JmsBinaryExtractAdapter(Message message) {
+    String value = null;
+    if (message != null) {
+      try {
+        value = message.getStringProperty(JmsBinaryInjectAdapter.SPAN_CONTEXT_PROPERTY);
+      } catch (JMSException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    buffer = ByteBuffer.wrap(decode(value));
+  }
+
+  private static byte[] decode(String value) {
+    if (value == null) {
+      return new byte[0];
+    }
+    try {
+      return Base64.decode(value);
+    } catch (IllegalArgumentException e) {
+      return new byte[0];
+    }
+  }
+
+  /**
+   * Check whether the message carries a span context in the single property form.
+   *
+   * @param message the JMS message
+   * @return {@code true} if {@link JmsBinaryInjectAdapter#SPAN_CONTEXT_PROPERTY} is present
+   */
+  public static boolean hasSpanContext(Message message) {
+    if (message == null) {
+      return false;
+    }
+    try {
+      return message.propertyExists(JmsBinaryInjectAdapter.SPAN_CONTEXT_PROPERTY);
+    } catch (JMSException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public ByteBuffer injectionBuffer(int length) {
+    throw new UnsupportedOperationException(
+        "JmsBinaryExtractAdapter should only be used with Tracer.extract()");
+  }
+
+  @Override
+  public ByteBuffer extractionBuffer() {
+    return buffer;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.propagation.Binary;
+import java.nio.ByteBuffer;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Helper class to inject span context, including baggage, into a single JMS message property.
+ * <p>
+ * JMS properties can't hold byte arrays, so the
+ * {@link io.opentracing.propagation.Format.Builtin#BINARY} representation is stored Base64 encoded
+ * in the {@link #SPAN_CONTEXT_PROPERTY} String property when {@link #flush()} is called after
+ * {@code Tracer.inject()}.
+ */
+public class JmsBinaryInjectAdapter implements Binary {
+
+  public static final String SPAN_CONTEXT_PROPERTY = "ot_span_context";
+
+  private final Message message;
+  private ByteBuffer buffer;
+
+  public JmsBinaryInjectAdapter(Message message) {
+    this.message = message;
+  }
+
+  @Override
+  public ByteBuffer injectionBuffer(int length) {
+    if (length < 1) {
+      throw new IllegalArgumentException("length needs to be larger than 0");
+    }
+    buffer = ByteBuffer.allocate(length);
+    return buffer;
+  }
+
+  @Override
+  public ByteBuffer extractionBuffer() {
+    throw new UnsupportedOperationException(
+        "JmsBinaryInjectAdapter should only be used with Tracer.inject()");
+  }
+
+  /**
+   * Write the injected span context to the message.
+   */
+  public void flush() {
+    if (message == null || buffer == null) {
+      return;
+    }
+    try {
+      message.setStringProperty(SPAN_CONTEXT_PROPERTY,
+          Base64.encode(buffer.array(), 0, buffer.position()));
+    } catch (JMSException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
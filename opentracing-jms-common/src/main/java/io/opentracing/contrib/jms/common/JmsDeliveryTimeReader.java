@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Reads the JMS 2 {@code JMSDeliveryTime} of a message for the dwell time, see
+ * {@link SpanJmsDecorator#setDeliveryTimeReader(JmsDeliveryTimeReader)}. Installed by the
+ * {@code opentracing-jms-2} wrappers, without a reader the dwell time is measured from
+ * {@code JMSTimestamp}.
+ */
+public interface JmsDeliveryTimeReader {
+
+  /**
+   * @param message the received message
+   * @return the delivery time in milliseconds, {@code 0} if not known
+   * @throws JMSException if the provider fails to read the header
+   */
+  long deliveryTime(Message message) throws JMSException;
+}
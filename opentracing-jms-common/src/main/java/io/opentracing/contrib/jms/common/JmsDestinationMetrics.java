@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+/**
+ * Metrics of one destination, see {@link JmsMetrics}.
+ */
+public final class JmsDestinationMetrics implements JmsDestinationMetricsMBean {
+
+  private static final long MICROS = 1000;
+
+  private final String destination;
+  private final JmsOperationMetrics send;
+  private final JmsOperationMetrics receive;
+  private final JmsOperationMetrics listener;
+
+  JmsDestinationMetrics(String destination, long now) {
+    this.destination = destination;
+    this.send = new JmsOperationMetrics(now);
+    this.receive = new JmsOperationMetrics(now);
+    this.listener = new JmsOperationMetrics(now);
+  }
+
+  /**
+   * @return sends, with the latency from the send call until the provider returned or, for
+   * asynchronous sends, until completion
+   */
+  public JmsOperationMetrics send() {
+    return send;
+  }
+
+  /**
+   * @return received messages, with the time spent in {@code receive}, mostly waiting
+   */
+  public JmsOperationMetrics receive() {
+    return receive;
+  }
+
+  /**
+   * @return messages passed to a {@code MessageListener}, with the processing time
+   */
+  public JmsOperationMetrics listener() {
+    return listener;
+  }
+
+  @Override
+  public String getDestination() {
+    return destination;
+  }
+
+  @Override
+  public long getSendCount() {
+    return send.count();
+  }
+
+  @Override
+  public long getSendErrors() {
+    return send.errors();
+  }
+
+  @Override
+  public double getSendRate() {
+    return send.messagesPerSecond();
+  }
+
+  @Override
+  public double getSendLatencyMeanMicros() {
+    return send.latencyNanos().mean() / MICROS;
+  }
+
+  @Override
+  public long getSendLatencyP50Micros() {
+    return send.latencyNanos().valueAtPercentile(50) / MICROS;
+  }
+
+  @Override
+  public long getSendLatencyP99Micros() {
+    return send.latencyNanos().valueAtPercentile(99) / MICROS;
+  }
+
+  @Override
+  public long getSendLatencyMaxMicros() {
+    return send.latencyNanos().max() / MICROS;
+  }
+
+  @Override
+  public long getReceiveCount() {
+    return receive.count();
+  }
+
+  @Override
+  public double getReceiveRate() {
+    return receive.messagesPerSecond();
+  }
+
+  @Override
+  public double getReceiveWaitMeanMicros() {
+    return receive.latencyNanos().mean() / MICROS;
+  }
+
+  @Override
+  public long getReceiveWaitP50Micros() {
+    return receive.latencyNanos().valueAtPercentile(50) / MICROS;
+  }
+
+  @Override
+  public long getReceiveWaitP99Micros() {
+    return receive.latencyNanos().valueAtPercentile(99) / MICROS;
+  }
+
+  @Override
+  public long getReceiveWaitMaxMicros() {
+    return receive.latencyNanos().max() / MICROS;
+  }
+
+  @Override
+  public long getListenerCount() {
+    return listener.count();
+  }
+
+  @Override
+  public long getListenerErrors() {
+    return listener.errors();
+  }
+
+  @Override
+  public double getListenerRate() {
+    return listener.messagesPerSecond();
+  }
+
+  @Override
+  public double getListenerTimeMeanMicros() {
+    return listener.latencyNanos().mean() / MICROS;
+  }
+
+  @Override
+  public long getListenerTimeP50Micros() {
+    return listener.latencyNanos().valueAtPercentile(50) / MICROS;
+  }
+
+  @Override
+  public long getListenerTimeP99Micros() {
+    return listener.latencyNanos().valueAtPercentile(99) / MICROS;
+  }
+
+  @Override
+  public long getListenerTimeMaxMicros() {
+    return listener.latencyNanos().max() / MICROS;
+  }
+
+  @Override
+  public long getDwellTimeP50Millis() {
+    JmsHistogram dwellTimes = JmsDwellTimes.histogram(destination);
+    return dwellTimes != null ? dwellTimes.valueAtPercentile(50) : 0;
+  }
+
+  @Override
+  public long getDwellTimeP99Millis() {
+    JmsHistogram dwellTimes = JmsDwellTimes.histogram(destination);
+    return dwellTimes != null ? dwellTimes.valueAtPercentile(99) : 0;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+/**
+ * JMX view of {@link JmsDestinationMetrics}. Latencies are in microseconds, percentiles are the
+ * upper bound of their {@link JmsHistogram} bucket.
+ */
+public interface JmsDestinationMetricsMBean {
+
+  String getDestination();
+
+  long getSendCount();
+
+  long getSendErrors();
+
+  double getSendRate();
+
+  double getSendLatencyMeanMicros();
+
+  long getSendLatencyP50Micros();
+
+  long getSendLatencyP99Micros();
+
+  long getSendLatencyMaxMicros();
+
+  long getReceiveCount();
+
+  double getReceiveRate();
+
+  double getReceiveWaitMeanMicros();
+
+  long getReceiveWaitP50Micros();
+
+  long getReceiveWaitP99Micros();
+
+  long getReceiveWaitMaxMicros();
+
+  long getListenerCount();
+
+  long getListenerErrors();
+
+  double getListenerRate();
+
+  double getListenerTimeMeanMicros();
+
+  long getListenerTimeP50Micros();
+
+  long getListenerTimeP99Micros();
+
+  long getListenerTimeMaxMicros();
+
+  long getDwellTimeP50Millis();
+
+  long getDwellTimeP99Millis();
+}
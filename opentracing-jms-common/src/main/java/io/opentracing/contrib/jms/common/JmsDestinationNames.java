@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+/**
+ * Canonical destination names used as {@code message_bus.destination} tag and for policy matching,
+ * and the keys of per destination metrics, which tell a queue and a topic of the same name apart.
+ * <p>
+ * Queue and topic names are taken from {@link Queue#getQueueName()} and
+ * {@link Topic#getTopicName()} and cached per name, so consumers getting a new {@link Destination}
+ * instance per message don't grow the cache. Temporary destinations all map to
+ * {@link #TEMPORARY_QUEUE} or {@link #TEMPORARY_TOPIC}. Other destinations are named by
+ * {@code toString()}, cached per instance.
+ */
+final class JmsDestinationNames {
+
+  static final String TEMPORARY_QUEUE = "temporary-queue";
+  static final String TEMPORARY_TOPIC = "temporary-topic";
+  static final String QUEUE = "queue";
+  static final String TOPIC = "topic";
+  static final int MAX_CACHED_NAMES = 4096;
+
+  private static final Name TEMPORARY_QUEUE_NAME =
+      new Name(TEMPORARY_QUEUE, TEMPORARY_QUEUE, QUEUE);
+  private static final Name TEMPORARY_TOPIC_NAME =
+      new Name(TEMPORARY_TOPIC, TEMPORARY_TOPIC, TOPIC);
+
+  private static final ConcurrentMap<String, Name> queues = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Name> topics = new ConcurrentHashMap<>();
+  private static final WeakIdentityMap<Destination, Name> others = new WeakIdentityMap<>();
+
+  private JmsDestinationNames() {
+  }
+
+  /**
+   * @param destination the destination, may be {@code null}
+   * @return the canonical name, {@code null} if the destination is {@code null}
+   */
+  static String nameOf(Destination destination) {
+    Name name = of(destination);
+    return name != null ? name.name : null;
+  }
+
+  /**
+   * @param destination the destination, may be {@code null}
+   * @return the name prefixed with {@code queue:} or {@code topic:}, {@code null} if the
+   * destination is {@code null}
+   */
+  static String keyOf(Destination destination) {
+    Name name = of(destination);
+    return name != null ? name.key : null;
+  }
+
+  /**
+   * @param destination the destination, may be {@code null}
+   * @return {@link #QUEUE}, {@link #TOPIC} or {@code null} if unknown
+   */
+  static String typeOf(Destination destination) {
+    Name name = of(destination);
+    return name != null ? name.type : null;
+  }
+
+  static int size() {
+    return queues.size() + topics.size() + others.size();
+  }
+
+  private static Name of(Destination destination) {
+    if (destination == null) {
+      return null;
+    }
+    if (destination instanceof TemporaryQueue) {
+      return TEMPORARY_QUEUE_NAME;
+    }
+    if (destination instanceof TemporaryTopic) {
+      return TEMPORARY_TOPIC_NAME;
+    }
+    try {
+      if (destination instanceof Queue) {
+        String name = ((Queue) destination).getQueueName();
+        if (name != null) {
+          return cached(queues, name, QUEUE);
+        }
+      } else if (destination instanceof Topic) {
+        String name = ((Topic) destination).getTopicName();
+        if (name != null) {
+          return cached(topics, name, TOPIC);
+        }
+      }
+    } catch (JMSException ignored) {
+      // fall back to toString
+    }
+    Name name = others.get(destination);
+    if (name == null) {
+      String string = destination.toString();
+      name = new Name(string, string, null);
+      others.put(destination, name);
+    }
+    return name;
+  }
+
+  private static Name cached(ConcurrentMap<String, Name> names, String name, String type) {
+    Name cached = names.get(name);
+    if (cached == null) {
+      cached = new Name(name, type + ':' + name, type);
+      if (names.size() < MAX_CACHED_NAMES) {
+        Name existing = names.putIfAbsent(name, cached);
+        if (existing != null) {
+          return existing;
+        }
+      }
+    }
+    return cached;
+  }
+
+  private static final class Name {
+
+    private final String name;
+    private final String key;
+    private final String type;
+
+    Name(String name, String key, String type) {
+      this.name = name;
+      this.key = key;
+      this.type = type;
+    }
+  }
+}
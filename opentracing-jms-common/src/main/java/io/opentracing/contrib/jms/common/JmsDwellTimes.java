@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Histograms, in milliseconds, of the time messages spent in the broker, per destination name
+ * prefixed with its type, e.g. {@code queue:orders} or {@code topic:prices}. Recorded when a
+ * consumer or listener span is started, see {@link SpanJmsDecorator#onResponse}.
+ * <p>
+ * At most {@link #MAX_DESTINATIONS} destinations are tracked, dwell times of further destinations
+ * are recorded under {@link #OTHER_DESTINATIONS}.
+ */
+public final class JmsDwellTimes {
+
+  public static final int MAX_DESTINATIONS = 1024;
+  public static final String OTHER_DESTINATIONS = "other-destinations";
+
+  private static final ConcurrentMap<String, JmsHistogram> histograms = new ConcurrentHashMap<>();
+
+  private JmsDwellTimes() {
+  }
+
+  /**
+   * @param destination the destination name prefixed with its type, e.g. {@code queue:orders}
+   * @return the dwell time histogram or {@code null} if no message of the destination was received
+   */
+  public static JmsHistogram histogram(String destination) {
+    return histograms.get(destination);
+  }
+
+  /**
+   * @return names of destinations with recorded dwell times
+   */
+  public static Set<String> destinations() {
+    return Collections.unmodifiableSet(histograms.keySet());
+  }
+
+  /**
+   * Remove all histograms.
+   */
+  public static void reset() {
+    histograms.clear();
+  }
+
+  static void record(String destination, long millis) {
+    JmsHistogram histogram = histograms.get(destination);
+    if (histogram == null && histograms.size() >= MAX_DESTINATIONS) {
+      destination = OTHER_DESTINATIONS;
+      histogram = histograms.get(destination);
+    }
+    if (histogram == null) {
+      histogram = new JmsHistogram();
+      JmsHistogram existing = histograms.putIfAbsent(destination, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    histogram.record(millis);
+  }
+}
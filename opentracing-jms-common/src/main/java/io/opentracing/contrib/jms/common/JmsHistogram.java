@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free histogram of non-negative values in power of two buckets: bucket {@code 0} counts the
+ * value {@code 0}, bucket {@code i} the values from {@code 2^(i-1)} to {@code 2^i - 1}. Percentiles
+ * are therefore reported as the upper bound of their bucket, at most twice the exact value.
+ * <p>
+ * Buckets and maximum are striped by thread like {@link StripedCounter}, stripes are allocated by
+ * the first thread recording into them and summed on read.
+ */
+public final class JmsHistogram {
+
+  static final int BUCKETS = 64;
+
+  /**
+   * Index of the maximum in each stripe, after the buckets.
+   */
+  private static final int MAX = BUCKETS;
+
+  private final AtomicReferenceArray<AtomicLongArray> stripes =
+      new AtomicReferenceArray<>(Stripes.COUNT);
+  private final StripedCounter sum = new StripedCounter();
+
+  public JmsHistogram() {
+  }
+
+  /**
+   * @param value the value, negative values are recorded as {@code 0}
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    AtomicLongArray stripe = stripe(Stripes.index());
+    stripe.incrementAndGet(bucketOf(value));
+    sum.add(value);
+    long current = stripe.get(MAX);
+    while (value > current && !stripe.compareAndSet(MAX, current, value)) {
+      current = stripe.get(MAX);
+    }
+  }
+
+  private AtomicLongArray stripe(int index) {
+    AtomicLongArray stripe = stripes.get(index);
+    if (stripe == null) {
+      stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS + 1));
+      stripe = stripes.get(index);
+    }
+    return stripe;
+  }
+
+  static int bucketOf(long value) {
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long count() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += bucketCount(i);
+    }
+    return count;
+  }
+
+  /**
+   * @return the sum of recorded values
+   */
+  public long sum() {
+    return sum.sum();
+  }
+
+  /**
+   * @return the largest recorded value, {@code 0} if empty
+   */
+  public long max() {
+    long max = 0;
+    for (int i = 0; i < Stripes.COUNT; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        max = Math.max(max, stripe.get(MAX));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * @return the mean of recorded values, {@code 0} if empty
+   */
+  public double mean() {
+    long count = count();
+    return count == 0 ? 0 : (double) sum() / count;
+  }
+
+  /**
+   * @param percentile the percentile, from {@code 0} to {@code 100}
+   * @return the upper bound of the bucket holding the percentile, limited to {@link #max()}, or
+   * {@code 0} if empty
+   */
+  public long valueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+    }
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = bucketCount(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), max());
+      }
+    }
+    return max();
+  }
+
+  /**
+   * @param bucket the bucket index, from {@code 0} to {@code 63}
+   * @return the number of values recorded in the bucket
+   */
+  public long bucketCount(int bucket) {
+    if (bucket < 0 || bucket >= BUCKETS) {
+      throw new IndexOutOfBoundsException("bucket must be between 0 and 63: " + bucket);
+    }
+    long count = 0;
+    for (int i = 0; i < Stripes.COUNT; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        count += stripe.get(bucket);
+      }
+    }
+    return count;
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket == 0 ? 0 : bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded cache of the dash encoding between tracer keys and JMS property names, shared by
+ * {@link JmsTextMapInjectAdapter} and {@link JmsTextMapExtractAdapter}.
+ * <p>
+ * Keys without dashes are returned as is. Encoded and decoded forms of other keys are cached, so
+ * the small and stable set of tracer keys doesn't allocate a new String per message. Once
+ * {@code maxSize} entries are cached further keys are converted without being cached.
+ */
+public class JmsKeyCodec {
+
+  static final int DEFAULT_MAX_SIZE = 256;
+
+  private static final JmsKeyCodec INSTANCE = new JmsKeyCodec(DEFAULT_MAX_SIZE);
+
+  private final int maxSize;
+  private final ConcurrentMap<String, String> encoded = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, String> decoded = new ConcurrentHashMap<>();
+  private final StripedCounter hits = new StripedCounter();
+  private final StripedCounter misses = new StripedCounter();
+
+  JmsKeyCodec(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @return the codec shared by the JMS adapters
+   */
+  public static JmsKeyCodec getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Encode all dashes because JMS specification doesn't allow them in property name
+   *
+   * @param key the tracer key
+   * @return the JMS property name
+   */
+  public String encode(String key) {
+    if (key == null || key.indexOf('-') < 0) {
+      return key;
+    }
+    return lookup(encoded, decoded, key, true);
+  }
+
+  /**
+   * Decode dashes encoded by {@link #encode(String)}
+   *
+   * @param propertyName the JMS property name
+   * @return the tracer key
+   */
+  public String decode(String propertyName) {
+    if (propertyName == null || !propertyName.contains(JmsTextMapInjectAdapter.DASH)) {
+      return propertyName;
+    }
+    return lookup(decoded, encoded, propertyName, false);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public int size() {
+    return encoded.size();
+  }
+
+  private String lookup(ConcurrentMap<String, String> cache, ConcurrentMap<String, String> reverse,
+      String value, boolean encode) {
+    String result = cache.get(value);
+    if (result != null) {
+      hits.increment();
+      return result;
+    }
+    misses.increment();
+    result = encode
+        ? value.replace("-", JmsTextMapInjectAdapter.DASH)
+        : value.replace(JmsTextMapInjectAdapter.DASH, "-");
+    if (encoded.size() < maxSize) {
+      cache.putIfAbsent(value, result);
+      reverse.putIfAbsent(result, value);
+    }
+    return result;
+  }
+}
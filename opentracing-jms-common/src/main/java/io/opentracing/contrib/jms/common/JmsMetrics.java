@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Per destination send, receive and listener metrics, recorded by the tracing wrappers for every
+ * message independently of the {@link JmsTracingSampler}. Disabled by default.
+ * <p>
+ * Metrics are read with {@link #destination(String)}, or through JMX after
+ * {@link #registerMBeans()} as {@code io.opentracing.contrib.jms:type=DestinationMetrics}. Receive
+ * wait time is only recorded when a message is received, as the destination of a consumer is not
+ * known otherwise. At most {@link JmsDwellTimes#MAX_DESTINATIONS} destinations are tracked, further
+ * destinations are recorded under {@link JmsDwellTimes#OTHER_DESTINATIONS}.
+ */
+public final class JmsMetrics {
+
+  static final String DOMAIN = "io.opentracing.contrib.jms";
+
+  private static final ConcurrentMap<String, JmsDestinationMetrics> destinations =
+      new ConcurrentHashMap<>();
+
+  private static volatile boolean enabled;
+  private static volatile boolean mbeansRegistered;
+  private static volatile JmsOperationListener operationListener;
+  private static volatile boolean timed;
+
+  private JmsMetrics() {
+  }
+
+  /**
+   * @param enabled {@code true} to record metrics
+   */
+  public static void setEnabled(boolean enabled) {
+    JmsMetrics.enabled = enabled;
+    timed = enabled || operationListener != null;
+  }
+
+  /**
+   * Notify the listener of every operation, whether or not metrics are enabled.
+   *
+   * @param listener the listener, or {@code null} to remove it
+   */
+  public static void setOperationListener(JmsOperationListener listener) {
+    operationListener = listener;
+    timed = enabled || listener != null;
+  }
+
+  /**
+   * @param destination the destination name prefixed with its type, e.g. {@code queue:orders} or
+   *                    {@code topic:prices}, temporary destinations are named
+   *                    {@code temporary-queue} and {@code temporary-topic}
+   * @return the metrics or {@code null} if nothing was recorded for the destination
+   */
+  public static JmsDestinationMetrics destination(String destination) {
+    return destinations.get(destination);
+  }
+
+  /**
+   * @return type prefixed names of destinations with recorded metrics
+   */
+  public static Set<String> destinations() {
+    return Collections.unmodifiableSet(destinations.keySet());
+  }
+
+  /**
+   * Remove all metrics, and their MBeans.
+   */
+  public static void reset() {
+    for (JmsDestinationMetrics metrics : destinations.values()) {
+      if (mbeansRegistered) {
+        unregister(metrics);
+      }
+    }
+    destinations.clear();
+  }
+
+  /**
+   * Register an MBean per destination in the platform MBean server, including destinations seen
+   * later.
+   */
+  public static void registerMBeans() {
+    mbeansRegistered = true;
+    for (JmsDestinationMetrics metrics : destinations.values()) {
+      register(metrics);
+    }
+  }
+
+  /**
+   * Unregister all MBeans registered by {@link #registerMBeans()}.
+   */
+  public static void unregisterMBeans() {
+    mbeansRegistered = false;
+    for (JmsDestinationMetrics metrics : destinations.values()) {
+      unregister(metrics);
+    }
+  }
+
+  /**
+   * @return start time of an operation, {@code 0} if neither metrics nor an operation listener
+   * are enabled
+   */
+  public static long startTime() {
+    return timed ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Record a send, after the provider returned or the asynchronous send completed.
+   *
+   * @param destination the destination
+   * @param message     the message
+   * @param span        the send span
+   * @param startTime   the result of {@link #startTime()} before the send
+   */
+  public static void onSend(Destination destination, Message message, Span span,
+      long startTime) {
+    if (startTime != 0) {
+      long now = System.nanoTime();
+      JmsDestinationMetrics metrics = enabled ? metricsOf(destination, now) : null;
+      if (metrics != null) {
+        metrics.send().record(now - startTime, now);
+      }
+      JmsOperationListener listener = operationListener;
+      if (listener != null) {
+        listener.onSend(destination, message, span, startTime, now);
+      }
+    }
+  }
+
+  /**
+   * Record a failed send, in addition to {@link #onSend(Destination, Message, Span, long)}.
+   *
+   * @param destination the destination
+   * @param startTime   the result of {@link #startTime()} before the send
+   */
+  public static void onSendError(Destination destination, long startTime) {
+    if (startTime != 0 && enabled) {
+      JmsDestinationMetrics metrics = metricsOf(destination, startTime);
+      if (metrics != null) {
+        metrics.send().recordError();
+      }
+    }
+  }
+
+  /**
+   * Record a received message.
+   *
+   * @param message   the message, or {@code null} if none was received
+   * @param context   the span context of the receive span, or {@code null}
+   * @param startTime the result of {@link #startTime()} before the receive
+   */
+  public static void onReceive(Message message, SpanContext context, long startTime) {
+    if (startTime != 0 && message != null) {
+      long now = System.nanoTime();
+      JmsDestinationMetrics metrics = enabled ? metricsOf(destinationOf(message), now) : null;
+      if (metrics != null) {
+        metrics.receive().record(now - startTime, now);
+      }
+      JmsOperationListener listener = operationListener;
+      if (listener != null) {
+        listener.onReceive(message, context, startTime, now);
+      }
+    }
+  }
+
+  /**
+   * Record a message processed by a listener.
+   *
+   * @param message   the message
+   * @param span      the listener span
+   * @param startTime the result of {@link #startTime()} before the listener was called
+   */
+  public static void onMessage(Message message, Span span, long startTime) {
+    if (startTime != 0 && message != null) {
+      long now = System.nanoTime();
+      JmsDestinationMetrics metrics = enabled ? metricsOf(destinationOf(message), now) : null;
+      if (metrics != null) {
+        metrics.listener().record(now - startTime, now);
+      }
+      JmsOperationListener listener = operationListener;
+      if (listener != null) {
+        listener.onMessage(message, span, startTime, now);
+      }
+    }
+  }
+
+  /**
+   * Record a listener failure, in addition to {@link #onMessage(Message, Span, long)}.
+   *
+   * @param message   the message
+   * @param startTime the result of {@link #startTime()} before the listener was called
+   */
+  public static void onMessageError(Message message, long startTime) {
+    if (startTime != 0 && enabled && message != null) {
+      JmsDestinationMetrics metrics = metricsOf(destinationOf(message), startTime);
+      if (metrics != null) {
+        metrics.listener().recordError();
+      }
+    }
+  }
+
+  private static JmsDestinationMetrics metricsOf(Destination destination, long now) {
+    String name = JmsDestinationNames.keyOf(destination);
+    if (name == null) {
+      return null;
+    }
+    JmsDestinationMetrics metrics = destinations.get(name);
+    if (metrics == null && destinations.size() >= JmsDwellTimes.MAX_DESTINATIONS) {
+      name = JmsDwellTimes.OTHER_DESTINATIONS;
+      metrics = destinations.get(name);
+    }
+    if (metrics == null) {
+      metrics = new JmsDestinationMetrics(name, now);
+      JmsDestinationMetrics existing = destinations.putIfAbsent(name, metrics);
+      if (existing != null) {
+        return existing;
+      }
+      if (mbeansRegistered) {
+        try {
+          register(metrics);
+        } catch (RuntimeException ignored) {
+          // metrics must not fail messaging
+        }
+      }
+    }
+    return metrics;
+  }
+
+  private static Destination destinationOf(Message message) {
+    try {
+      return message.getJMSDestination();
+    } catch (JMSException e) {
+      return null;
+    }
+  }
+
+  static ObjectName objectName(String destination) {
+    try {
+      return new ObjectName(DOMAIN + ":type=DestinationMetrics,destination="
+          + ObjectName.quote(destination));
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static void register(JmsDestinationMetrics metrics) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(metrics, objectName(metrics.getDestination()));
+    } catch (InstanceAlreadyExistsException ignored) {
+      // registered concurrently
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void unregister(JmsDestinationMetrics metrics) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(objectName(metrics.getDestination()));
+    } catch (InstanceNotFoundException ignored) {
+      // not registered
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import javax.jms.Destination;
+import javax.jms.Message;
+
+/**
+ * Callback for every send, receive and listener invocation of the tracing wrappers, independently
+ * of sampling, e.g. to emit profiling events. Registered with
+ * {@link JmsMetrics#setOperationListener(JmsOperationListener)}. Called in the thread completing
+ * the operation, implementations need to be fast and must not throw.
+ * <p>
+ * Times are {@link System#nanoTime()} values.
+ */
+public interface JmsOperationListener {
+
+  /**
+   * @param destination the destination
+   * @param message     the sent message
+   * @param span        the send span, {@link io.opentracing.noop.NoopSpan} if not sampled
+   * @param startTime   start of the send
+   * @param endTime     end of the send or, for asynchronous sends, its completion
+   */
+  void onSend(Destination destination, Message message, Span span, long startTime, long endTime);
+
+  /**
+   * @param message   the received message, not {@code null}
+   * @param context   the span context of the receive span, the upstream span context if not
+   *                  sampled, or {@code null}
+   * @param startTime start of the receive call
+   * @param endTime   end of the receive call
+   */
+  void onReceive(Message message, SpanContext context, long startTime, long endTime);
+
+  /**
+   * @param message   the message
+   * @param span      the listener span, {@link io.opentracing.noop.NoopSpan} if not sampled
+   * @param startTime start of the listener invocation
+   * @param endTime   end of the listener invocation
+   */
+  void onMessage(Message message, Span span, long startTime, long endTime);
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count, errors, rate and latency histogram in nanoseconds of one kind of operation on a
+ * destination.
+ */
+public final class JmsOperationMetrics {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final JmsHistogram latency = new JmsHistogram();
+  private final StripedCounter errors = new StripedCounter();
+
+  /**
+   * Start of the current rate window in nanoseconds, and the count at that time.
+   */
+  private volatile long windowStart;
+  private volatile long windowStartCount;
+  private volatile double messagesPerSecond;
+
+  JmsOperationMetrics(long now) {
+    this.windowStart = now;
+  }
+
+  void record(long latencyNanos, long now) {
+    latency.record(latencyNanos);
+    if (now - windowStart >= SECOND) {
+      roll(now);
+    }
+  }
+
+  void recordError() {
+    errors.increment();
+  }
+
+  private synchronized void roll(long now) {
+    long elapsed = now - windowStart;
+    if (elapsed < SECOND) {
+      return;
+    }
+    long count = latency.count();
+    messagesPerSecond = (double) (count - windowStartCount) * SECOND / elapsed;
+    windowStartCount = count;
+    windowStart = now;
+  }
+
+  /**
+   * @return the number of operations
+   */
+  public long count() {
+    return latency.count();
+  }
+
+  /**
+   * @return the number of failed operations, also included in {@link #count()}
+   */
+  public long errors() {
+    return errors.sum();
+  }
+
+  /**
+   * @return operations per second of the last window of at least one second, or since then if no
+   * operation completed for more than a second
+   */
+  public double messagesPerSecond() {
+    long start = windowStart;
+    long elapsed = System.nanoTime() - start;
+    if (elapsed >= 2 * SECOND) {
+      return (double) (latency.count() - windowStartCount) * SECOND / elapsed;
+    }
+    return messagesPerSecond;
+  }
+
+  /**
+   * @return the latency histogram in nanoseconds
+   */
+  public JmsHistogram latencyNanos() {
+    return latency;
+  }
+}
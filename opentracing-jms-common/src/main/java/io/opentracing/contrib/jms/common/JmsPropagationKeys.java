@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+/**
+ * Fixed set of tracer propagation keys (e.g. {@code uber-trace-id} or {@code X-B3-TraceId}) with
+ * their JMS property names encoded once up front.
+ * <p>
+ * When passed to {@link JmsTextMapExtractAdapter} only these properties are looked up on the
+ * message, instead of enumerating and copying every message property. Baggage items whose keys are
+ * not listed here are not extracted.
+ */
+public class JmsPropagationKeys {
+
+  private final String[] keys;
+  private final String[] propertyNames;
+
+  public JmsPropagationKeys(String... keys) {
+    this.keys = keys.clone();
+    this.propertyNames = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      propertyNames[i] = JmsTextMapInjectAdapter.encodeDash(keys[i]);
+    }
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  String key(int index) {
+    return keys[index];
+  }
+
+  String propertyName(int index) {
+    return propertyNames[index];
+  }
+}
@@ -15,24 +15,65 @@ package io.opentracing.contrib.jms.common;
 
 
 import io.opentracing.propagation.TextMap;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import javax.jms.JMSException;
 import javax.jms.Message;
 
 /**
- * Helper class to extract span context from JMS message properties
+ * Helper class to extract span context from JMS message properties.
+ * <p>
+ * By default all String properties of the message are copied up front. When created with
+ * {@link JmsPropagationKeys} only the listed properties are looked up, lazily, while the tracer
+ * iterates.
  */
 public class JmsTextMapExtractAdapter implements TextMap {
 
-  private final Map<String, String> map = new HashMap<>();
+  private final Map<String, String> map;
+  private final Message message;
+  private final JmsPropagationKeys keys;
 
   public JmsTextMapExtractAdapter(Message message) {
-    if (message == null) {
-      return;
+    this.map = message == null ? Collections.<String, String>emptyMap() : copyProperties(message);
+    this.message = null;
+    this.keys = null;
+  }
+
+  public JmsTextMapExtractAdapter(Message message, JmsPropagationKeys keys) {
+    this.map = null;
+    this.message = message;
+    this.keys = keys;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    if (map != null) {
+      return map.entrySet().iterator();
     }
+    int first = nextPresent(0);
+    if (first < 0) {
+      return Collections.emptyIterator();
+    }
+    return new PropertyIterator(first);
+  }
+
+  @Override
+  public void put(String key, String value) {
+    throw new UnsupportedOperationException(
+        "JmsTextMapExtractAdapter should only be used with Tracer.extract()");
+  }
+
+  /**
+   * The String properties of the {@code message} with decoded keys, an empty map without
+   * allocating one if there are none, e.g. on every message of a noop tracer.
+   */
+  private static Map<String, String> copyProperties(Message message) {
+    Map<String, String> map = null;
     try {
       Enumeration enumeration = message.getPropertyNames();
       if (enumeration != null) {
@@ -40,6 +81,9 @@ public class JmsTextMapExtractAdapter implements TextMap {
           String key = (String) enumeration.nextElement();
           Object value = message.getObjectProperty(key);
           if (value instanceof String) {
+            if (map == null) {
+              map = new HashMap<>();
+            }
             map.put(decodeDash(key), (String) value);
           }
         }
@@ -47,23 +91,66 @@ public class JmsTextMapExtractAdapter implements TextMap {
     } catch (JMSException e) {
       throw new RuntimeException(e);
     }
+    return map != null ? map : Collections.<String, String>emptyMap();
   }
 
-  @Override
-  public Iterator<Map.Entry<String, String>> iterator() {
-    return map.entrySet().iterator();
-  }
-
-  @Override
-  public void put(String key, String value) {
-    throw new UnsupportedOperationException(
-        "JmsTextMapExtractAdapter should only be used with Tracer.extract()");
+  /**
+   * Decode dashes (encoded in {@link JmsTextMapInjectAdapter}
+   */
+  private static String decodeDash(String key) {
+    return JmsKeyCodec.getInstance().decode(key);
   }
 
   /**
-   * Decode dashes (encoded in {@link JmsTextMapInjectAdapter}
+   * Index of the first key starting at {@code from} which is present on the message, or -1.
    */
-  private String decodeDash(String key) {
-    return key.replace(JmsTextMapInjectAdapter.DASH, "-");
+  private int nextPresent(int from) {
+    if (message == null) {
+      return -1;
+    }
+    try {
+      for (int i = from; i < keys.size(); i++) {
+        if (message.propertyExists(keys.propertyName(i))) {
+          return i;
+        }
+      }
+    } catch (JMSException e) {
+      throw new RuntimeException(e);
+    }
+    return -1;
+  }
+
+  private class PropertyIterator implements Iterator<Map.Entry<String, String>> {
+
+    private int next;
+
+    PropertyIterator(int first) {
+      this.next = first;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      int current = next;
+      next = nextPresent(current + 1);
+      try {
+        return new AbstractMap.SimpleImmutableEntry<>(keys.key(current),
+            message.getStringProperty(keys.propertyName(current)));
+      } catch (JMSException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
   }
 }
@@ -51,11 +51,11 @@ public class JmsTextMapInjectAdapter implements TextMap {
   /**
    * Encode all dashes because JMS specification doesn't allow them in property name
    */
-  private String encodeDash(String key) {
+  static String encodeDash(String key) {
     if (key == null || key.isEmpty()) {
       return key;
     }
 
-    return key.replace("-", DASH);
+    return JmsKeyCodec.getInstance().encode(key);
   }
 }
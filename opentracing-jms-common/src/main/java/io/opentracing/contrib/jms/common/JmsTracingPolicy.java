@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.jms.Destination;
+
+/**
+ * Tracing policy of a destination, registered in {@link JmsTracingPolicyRegistry}.
+ * <p>
+ * Instances are immutable, {@link #withOperationName(String)} and {@link #withTag(String, String)}
+ * return a copy.
+ */
+public final class JmsTracingPolicy {
+
+  private static final JmsTracingPolicy ENABLED = new JmsTracingPolicy(true, 1,
+      null, Collections.<String, String>emptyMap());
+
+  private static final JmsTracingPolicy DISABLED = new JmsTracingPolicy(false, 0,
+      null, Collections.<String, String>emptyMap());
+
+  private final boolean enabled;
+  private final double sampleRate;
+  private final String operationName;
+  private final Map<String, String> tags;
+  private final JmsTracingSampler sampler = new PolicySampler();
+
+  private JmsTracingPolicy(boolean enabled, double sampleRate, String operationName,
+      Map<String, String> tags) {
+    this.enabled = enabled;
+    this.sampleRate = sampleRate;
+    this.operationName = operationName;
+    this.tags = tags;
+  }
+
+  /**
+   * @return a policy tracing every operation
+   */
+  public static JmsTracingPolicy enabled() {
+    return ENABLED;
+  }
+
+  /**
+   * @return a policy doing no tracing work at all, not even propagation
+   */
+  public static JmsTracingPolicy disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * @param sampleRate probability between 0 and 1 that an operation is traced
+   * @return a policy tracing operations at random
+   */
+  public static JmsTracingPolicy sampled(double sampleRate) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+    }
+    return new JmsTracingPolicy(true, sampleRate, null, Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * @param operationName the operation name used instead of the default send, receive or
+   *                      on-message name
+   * @return a copy of this policy with the operation name
+   */
+  public JmsTracingPolicy withOperationName(String operationName) {
+    return new JmsTracingPolicy(enabled, sampleRate, operationName, tags);
+  }
+
+  /**
+   * @param key   the tag key
+   * @param value the tag value
+   * @return a copy of this policy additionally setting the tag on every span
+   */
+  public JmsTracingPolicy withTag(String key, String value) {
+    Map<String, String> copy = new LinkedHashMap<>(tags);
+    copy.put(key, value);
+    return new JmsTracingPolicy(enabled, sampleRate, operationName,
+        Collections.unmodifiableMap(copy));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * @return the operation name, {@code null} to use the default
+   */
+  public String getOperationName() {
+    return operationName;
+  }
+
+  public Map<String, String> getTags() {
+    return tags;
+  }
+
+  /**
+   * @return the sampler applying this policy, regardless of the destination it is called with
+   */
+  JmsTracingSampler sampler() {
+    return sampler;
+  }
+
+  private final class PolicySampler extends JmsTracingSampler {
+
+    @Override
+    public boolean isEnabled(Destination destination) {
+      return enabled;
+    }
+
+    @Override
+    public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+      return sampleRate >= 1
+          || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    @Override
+    public String operationName(String operationName, Destination destination) {
+      return JmsTracingPolicy.this.operationName != null
+          ? JmsTracingPolicy.this.operationName : operationName;
+    }
+
+    @Override
+    public void onStart(Span span, Destination destination) {
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+        span.setTag(tag.getKey(), tag.getValue());
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.jms.Destination;
+
+/**
+ * Sampler applying a {@link JmsTracingPolicy} per destination, selected by destination name
+ * patterns.
+ * <p>
+ * Patterns are compiled into a {@link DestinationMatcher} on registration, the matched policy is
+ * cached per destination name for up to {@link #MAX_CACHED_NAMES} names. Destinations matching no
+ * pattern use the default policy. The policy is looked up once per operation, see
+ * {@link #forDestination(Destination)}.
+ * <pre>{@code
+ * JmsTracingPolicyRegistry registry = new JmsTracingPolicyRegistry()
+ *     .register("orders", JmsTracingPolicy.enabled().withOperationName("orders-send"))
+ *     .register("telemetry.*", JmsTracingPolicy.sampled(0.001))
+ *     .register("*.audit", JmsTracingPolicy.disabled());
+ * }</pre>
+ */
+public class JmsTracingPolicyRegistry extends JmsTracingSampler {
+
+  static final int MAX_CACHED_NAMES = 1024;
+
+  private final JmsTracingPolicy defaultPolicy;
+  private final Map<String, JmsTracingPolicy> patterns = new LinkedHashMap<>();
+  private volatile DestinationMatcher<JmsTracingPolicy> matcher =
+      new DestinationMatcher<>(patterns);
+  private volatile ConcurrentMap<String, JmsTracingPolicy> cache = new ConcurrentHashMap<>();
+
+  public JmsTracingPolicyRegistry() {
+    this(JmsTracingPolicy.enabled());
+  }
+
+  /**
+   * @param defaultPolicy the policy of destinations matching no pattern
+   */
+  public JmsTracingPolicyRegistry(JmsTracingPolicy defaultPolicy) {
+    this.defaultPolicy = defaultPolicy;
+  }
+
+  /**
+   * Register a policy for a destination name pattern. A pattern without wildcards matches the
+   * exact name, a trailing {@code *} matches by prefix, otherwise {@code *} and {@code ?} are glob
+   * wildcards. Exact matches win over the longest prefix, which wins over the first registered
+   * glob.
+   *
+   * @param pattern the queue or topic name pattern, temporary destinations are named
+   *                {@code temporary-queue} and {@code temporary-topic}
+   * @param policy  the policy
+   * @return this registry
+   */
+  public synchronized JmsTracingPolicyRegistry register(String pattern, JmsTracingPolicy policy) {
+    patterns.put(pattern, policy);
+    matcher = new DestinationMatcher<>(patterns);
+    cache = new ConcurrentHashMap<>();
+    return this;
+  }
+
+  /**
+   * @param destination the destination, may be {@code null}
+   * @return the policy of the destination
+   */
+  public JmsTracingPolicy policyFor(Destination destination) {
+    if (destination == null) {
+      return defaultPolicy;
+    }
+    // by name, consumers often get a new destination instance per message
+    String name = JmsDestinationNames.nameOf(destination);
+    ConcurrentMap<String, JmsTracingPolicy> cache = this.cache;
+    JmsTracingPolicy policy = cache.get(name);
+    if (policy == null) {
+      policy = matcher.match(name);
+      if (policy == null) {
+        policy = defaultPolicy;
+      }
+      if (cache.size() < MAX_CACHED_NAMES) {
+        cache.putIfAbsent(name, policy);
+      }
+    }
+    return policy;
+  }
+
+  /**
+   * @return the sampler of the policy of the destination
+   */
+  @Override
+  public JmsTracingSampler forDestination(Destination destination) {
+    return policyFor(destination).sampler();
+  }
+
+  @Override
+  public boolean isEnabled(Destination destination) {
+    return forDestination(destination).isEnabled(destination);
+  }
+
+  @Override
+  public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+    return forDestination(destination).isSampled(operationName, destination, parent);
+  }
+
+  @Override
+  public String operationName(String operationName, Destination destination) {
+    return forDestination(destination).operationName(operationName, destination);
+  }
+
+  @Override
+  public void onStart(Span span, Destination destination) {
+    forDestination(destination).onStart(span, destination);
+  }
+}
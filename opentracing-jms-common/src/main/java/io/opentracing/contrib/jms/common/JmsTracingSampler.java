@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jms.Destination;
+
+/**
+ * Decides before any span is built whether a send, receive or on-message operation is traced.
+ * <p>
+ * When an operation is not sampled no span is created. On send the upstream span context, if any,
+ * is still injected into the message so the trace continues downstream.
+ */
+public abstract class JmsTracingSampler {
+
+  private static final JmsTracingSampler ALWAYS = new JmsTracingSampler() {
+    @Override
+    public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+      return true;
+    }
+  };
+
+  private static final JmsTracingSampler NEVER = new JmsTracingSampler() {
+    @Override
+    public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+      return false;
+    }
+  };
+
+  private static final JmsTracingSampler PARENT_SAMPLED = new JmsTracingSampler() {
+    @Override
+    public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+      return parent != null;
+    }
+  };
+
+  /**
+   * @param operationName the operation name e.g. {@link TracingMessageUtils#OPERATION_NAME_SEND}
+   * @param destination   the destination, may be {@code null} if unknown
+   * @param parent        the upstream span context, {@code null} if there is none
+   * @return {@code true} if a span should be created
+   */
+  public abstract boolean isSampled(String operationName, Destination destination,
+      SpanContext parent);
+
+  /**
+   * Resolve the sampler deciding the operations on {@code destination}, called once per operation
+   * before the other methods, e.g. to look up per destination configuration only once.
+   *
+   * @param destination the destination, may be {@code null} if unknown
+   * @return the sampler of the destination, this sampler by default
+   */
+  public JmsTracingSampler forDestination(Destination destination) {
+    return this;
+  }
+
+  /**
+   * Checked before any tracing work, including extraction and injection of span contexts.
+   *
+   * @param destination the destination, may be {@code null} if unknown
+   * @return {@code false} to neither trace nor propagate, {@code true} by default
+   */
+  public boolean isEnabled(Destination destination) {
+    return true;
+  }
+
+  /**
+   * @param operationName the default operation name
+   * @param destination   the destination, may be {@code null} if unknown
+   * @return the operation name of the span, {@code operationName} by default
+   */
+  public String operationName(String operationName, Destination destination) {
+    return operationName;
+  }
+
+  /**
+   * Called for every started span, e.g. to set additional tags. Does nothing by default.
+   *
+   * @param span        the started span
+   * @param destination the destination, may be {@code null} if unknown
+   */
+  public void onStart(Span span, Destination destination) {
+  }
+
+  /**
+   * @return a sampler tracing every operation
+   */
+  public static JmsTracingSampler always() {
+    return ALWAYS;
+  }
+
+  /**
+   * @return a sampler tracing no operation, only propagating upstream span contexts
+   */
+  public static JmsTracingSampler never() {
+    return NEVER;
+  }
+
+  /**
+   * Trace only operations which continue an existing trace, i.e. there is an active span or the
+   * message carries a span context. OpenTracing doesn't expose the sampling flag of a span
+   * context, so any upstream context counts as sampled.
+   *
+   * @return a sampler tracing only operations with a parent
+   */
+  public static JmsTracingSampler parentSampled() {
+    return PARENT_SAMPLED;
+  }
+
+  /**
+   * @param rate probability between 0 and 1 that an operation is traced
+   * @return a sampler tracing operations at random
+   */
+  public static JmsTracingSampler probabilistic(final double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException("rate must be between 0 and 1: " + rate);
+    }
+    return new JmsTracingSampler() {
+      @Override
+      public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+        return ThreadLocalRandom.current().nextDouble() < rate;
+      }
+    };
+  }
+
+  /**
+   * @param perSecond maximum number of traced operations per second and destination, temporary
+   *                  queues and topics share one limit each
+   * @return a sampler limiting the rate of traced operations per destination
+   */
+  public static JmsTracingSampler rateLimited(double perSecond) {
+    return new RateLimitingSampler(perSecond);
+  }
+
+  static final class RateLimitingSampler extends JmsTracingSampler {
+
+    static final int MAX_DESTINATIONS = 1024;
+
+    private final double perSecond;
+    private final ConcurrentMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final RateLimiter overflow;
+    private final long refillNanos;
+    private final AtomicLong nextEviction = new AtomicLong(System.nanoTime());
+
+    RateLimitingSampler(double perSecond) {
+      if (perSecond <= 0) {
+        throw new IllegalArgumentException("perSecond must be positive: " + perSecond);
+      }
+      this.perSecond = perSecond;
+      this.overflow = new RateLimiter(perSecond);
+      this.refillNanos = overflow.refillNanos();
+    }
+
+    @Override
+    public boolean isSampled(String operationName, Destination destination, SpanContext parent) {
+      long now = System.nanoTime();
+      return limiterFor(destination, now).tryAcquire(now);
+    }
+
+    int size() {
+      return limiters.size();
+    }
+
+    RateLimiter limiterFor(Destination destination, long now) {
+      String name = destination == null ? "" : JmsDestinationNames.keyOf(destination);
+      RateLimiter limiter = limiters.get(name);
+      if (limiter != null) {
+        return limiter;
+      }
+      if (limiters.size() >= MAX_DESTINATIONS && !evictIdle(now)) {
+        return overflow;
+      }
+      limiter = new RateLimiter(perSecond);
+      RateLimiter existing = limiters.putIfAbsent(name, limiter);
+      return existing != null ? existing : limiter;
+    }
+
+    /**
+     * Remove the limiters with a full bucket, which behave like new ones. Runs at most once per
+     * refill period.
+     *
+     * @return {@code true} if a limiter was removed
+     */
+    private boolean evictIdle(long now) {
+      long next = nextEviction.get();
+      if (now - next < 0 || !nextEviction.compareAndSet(next, now + refillNanos)) {
+        return false;
+      }
+      boolean evicted = false;
+      for (Iterator<RateLimiter> it = limiters.values().iterator(); it.hasNext(); ) {
+        if (it.next().isFull(now)) {
+          it.remove();
+          evicted = true;
+        }
+      }
+      return evicted;
+    }
+  }
+
+  /**
+   * Token bucket allowing a burst of at most one second worth of operations.
+   */
+  static final class RateLimiter {
+
+    private final double creditsPerNano;
+    private final double maxBalance;
+    private double balance;
+    private long lastTick;
+
+    RateLimiter(double perSecond) {
+      this.creditsPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+      this.maxBalance = Math.max(1, perSecond);
+      this.balance = maxBalance;
+      this.lastTick = System.nanoTime();
+    }
+
+    /**
+     * @return the time to refill an empty bucket
+     */
+    long refillNanos() {
+      return (long) Math.ceil(maxBalance / creditsPerNano);
+    }
+
+    synchronized boolean isFull(long now) {
+      return balance + Math.max(0, now - lastTick) * creditsPerNano >= maxBalance;
+    }
+
+    synchronized boolean tryAcquire(long now) {
+      // times read before the limiter was created or by racing threads may be in the past
+      if (now - lastTick > 0) {
+        balance = Math.min(maxBalance, balance + (now - lastTick) * creditsPerNano);
+        lastTick = now;
+      }
+      if (balance >= 1) {
+        balance -= 1;
+        return true;
+      }
+      return false;
+    }
+  }
+}
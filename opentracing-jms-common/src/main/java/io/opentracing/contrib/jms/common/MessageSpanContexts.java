@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import javax.jms.Message;
+
+/**
+ * Side table of the consumer span context of received messages.
+ * <p>
+ * Messages are weakly referenced and compared by identity, entries disappear once the message is
+ * garbage collected.
+ */
+final class MessageSpanContexts {
+
+  private static final WeakIdentityMap<Message, SpanContext> contexts = new WeakIdentityMap<>();
+
+  private MessageSpanContexts() {
+  }
+
+  static void put(Message message, SpanContext spanContext) {
+    if (message == null || spanContext == null) {
+      return;
+    }
+    contexts.put(message, spanContext);
+  }
+
+  static SpanContext get(Message message) {
+    if (message == null) {
+      return null;
+    }
+    return contexts.get(message);
+  }
+
+  static int size() {
+    return contexts.size();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * {@link SpanContextMessage} for {@link BytesMessage}.
+ */
+public class SpanContextBytesMessage extends SpanContextMessage implements BytesMessage {
+
+  private final BytesMessage bytesMessage;
+
+  public SpanContextBytesMessage(BytesMessage bytesMessage, SpanContext spanContext) {
+    super(bytesMessage, spanContext);
+    this.bytesMessage = bytesMessage;
+  }
+
+  @Override
+  public long getBodyLength() throws JMSException {
+    return bytesMessage.getBodyLength();
+  }
+
+  @Override
+  public boolean readBoolean() throws JMSException {
+    return bytesMessage.readBoolean();
+  }
+
+  @Override
+  public byte readByte() throws JMSException {
+    return bytesMessage.readByte();
+  }
+
+  @Override
+  public int readUnsignedByte() throws JMSException {
+    return bytesMessage.readUnsignedByte();
+  }
+
+  @Override
+  public short readShort() throws JMSException {
+    return bytesMessage.readShort();
+  }
+
+  @Override
+  public int readUnsignedShort() throws JMSException {
+    return bytesMessage.readUnsignedShort();
+  }
+
+  @Override
+  public char readChar() throws JMSException {
+    return bytesMessage.readChar();
+  }
+
+  @Override
+  public int readInt() throws JMSException {
+    return bytesMessage.readInt();
+  }
+
+  @Override
+  public long readLong() throws JMSException {
+    return bytesMessage.readLong();
+  }
+
+  @Override
+  public float readFloat() throws JMSException {
+    return bytesMessage.readFloat();
+  }
+
+  @Override
+  public double readDouble() throws JMSException {
+    return bytesMessage.readDouble();
+  }
+
+  @Override
+  public String readUTF() throws JMSException {
+    return bytesMessage.readUTF();
+  }
+
+  @Override
+  public int readBytes(byte[] value) throws JMSException {
+    return bytesMessage.readBytes(value);
+  }
+
+  @Override
+  public int readBytes(byte[] value, int length) throws JMSException {
+    return bytesMessage.readBytes(value, length);
+  }
+
+  @Override
+  public void writeBoolean(boolean value) throws JMSException {
+    bytesMessage.writeBoolean(value);
+  }
+
+  @Override
+  public void writeByte(byte value) throws JMSException {
+    bytesMessage.writeByte(value);
+  }
+
+  @Override
+  public void writeShort(short value) throws JMSException {
+    bytesMessage.writeShort(value);
+  }
+
+  @Override
+  public void writeChar(char value) throws JMSException {
+    bytesMessage.writeChar(value);
+  }
+
+  @Override
+  public void writeInt(int value) throws JMSException {
+    bytesMessage.writeInt(value);
+  }
+
+  @Override
+  public void writeLong(long value) throws JMSException {
+    bytesMessage.writeLong(value);
+  }
+
+  @Override
+  public void writeFloat(float value) throws JMSException {
+    bytesMessage.writeFloat(value);
+  }
+
+  @Override
+  public void writeDouble(double value) throws JMSException {
+    bytesMessage.writeDouble(value);
+  }
+
+  @Override
+  public void writeUTF(String value) throws JMSException {
+    bytesMessage.writeUTF(value);
+  }
+
+  @Override
+  public void writeBytes(byte[] value) throws JMSException {
+    bytesMessage.writeBytes(value);
+  }
+
+  @Override
+  public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+    bytesMessage.writeBytes(value, offset, length);
+  }
+
+  @Override
+  public void writeObject(Object value) throws JMSException {
+    bytesMessage.writeObject(value);
+  }
+
+  @Override
+  public void reset() throws JMSException {
+    bytesMessage.reset();
+  }
+}
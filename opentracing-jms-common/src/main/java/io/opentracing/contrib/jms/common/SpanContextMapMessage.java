@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import java.util.Enumeration;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+
+/**
+ * {@link SpanContextMessage} for {@link MapMessage}.
+ */
+public class SpanContextMapMessage extends SpanContextMessage implements MapMessage {
+
+  private final MapMessage mapMessage;
+
+  public SpanContextMapMessage(MapMessage mapMessage, SpanContext spanContext) {
+    super(mapMessage, spanContext);
+    this.mapMessage = mapMessage;
+  }
+
+  @Override
+  public boolean getBoolean(String name) throws JMSException {
+    return mapMessage.getBoolean(name);
+  }
+
+  @Override
+  public byte getByte(String name) throws JMSException {
+    return mapMessage.getByte(name);
+  }
+
+  @Override
+  public short getShort(String name) throws JMSException {
+    return mapMessage.getShort(name);
+  }
+
+  @Override
+  public char getChar(String name) throws JMSException {
+    return mapMessage.getChar(name);
+  }
+
+  @Override
+  public int getInt(String name) throws JMSException {
+    return mapMessage.getInt(name);
+  }
+
+  @Override
+  public long getLong(String name) throws JMSException {
+    return mapMessage.getLong(name);
+  }
+
+  @Override
+  public float getFloat(String name) throws JMSException {
+    return mapMessage.getFloat(name);
+  }
+
+  @Override
+  public double getDouble(String name) throws JMSException {
+    return mapMessage.getDouble(name);
+  }
+
+  @Override
+  public String getString(String name) throws JMSException {
+    return mapMessage.getString(name);
+  }
+
+  @Override
+  public byte[] getBytes(String name) throws JMSException {
+    return mapMessage.getBytes(name);
+  }
+
+  @Override
+  public Object getObject(String name) throws JMSException {
+    return mapMessage.getObject(name);
+  }
+
+  @Override
+  public Enumeration getMapNames() throws JMSException {
+    return mapMessage.getMapNames();
+  }
+
+  @Override
+  public void setBoolean(String name, boolean value) throws JMSException {
+    mapMessage.setBoolean(name, value);
+  }
+
+  @Override
+  public void setByte(String name, byte value) throws JMSException {
+    mapMessage.setByte(name, value);
+  }
+
+  @Override
+  public void setShort(String name, short value) throws JMSException {
+    mapMessage.setShort(name, value);
+  }
+
+  @Override
+  public void setChar(String name, char value) throws JMSException {
+    mapMessage.setChar(name, value);
+  }
+
+  @Override
+  public void setInt(String name, int value) throws JMSException {
+    mapMessage.setInt(name, value);
+  }
+
+  @Override
+  public void setLong(String name, long value) throws JMSException {
+    mapMessage.setLong(name, value);
+  }
+
+  @Override
+  public void setFloat(String name, float value) throws JMSException {
+    mapMessage.setFloat(name, value);
+  }
+
+  @Override
+  public void setDouble(String name, double value) throws JMSException {
+    mapMessage.setDouble(name, value);
+  }
+
+  @Override
+  public void setString(String name, String value) throws JMSException {
+    mapMessage.setString(name, value);
+  }
+
+  @Override
+  public void setBytes(String name, byte[] value) throws JMSException {
+    mapMessage.setBytes(name, value);
+  }
+
+  @Override
+  public void setBytes(String name, byte[] value, int offset, int length) throws JMSException {
+    mapMessage.setBytes(name, value, offset, length);
+  }
+
+  @Override
+  public void setObject(String name, Object value) throws JMSException {
+    mapMessage.setObject(name, value);
+  }
+
+  @Override
+  public boolean itemExists(String name) throws JMSException {
+    return mapMessage.itemExists(name);
+  }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Enumeration;
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+
+/**
+ * Delegating {@link Message} which carries the span context of the consumer span, used instead of
+ * a {@link java.lang.reflect.Proxy} per received message.
+ * <p>
+ * Use {@link #wrap(Message, SpanContext)} to get the wrapper matching the JMS message type.
+ * Provider specific interfaces of the wrapped message are not exposed, use {@link #getMessage()}
+ * to access the original message.
+ */
+public class SpanContextMessage implements Message, SpanContextContainer {
+
+  private static final MethodHandle GET_JMS_DELIVERY_TIME =
+      jms2Method("getJMSDeliveryTime", MethodType.methodType(long.class));
+  private static final MethodHandle SET_JMS_DELIVERY_TIME =
+      jms2Method("setJMSDeliveryTime", MethodType.methodType(void.class, long.class));
+  private static final MethodHandle GET_BODY =
+      jms2Method("getBody", MethodType.methodType(Object.class, Class.class));
+  private static final MethodHandle IS_BODY_ASSIGNABLE_TO =
+      jms2Method("isBodyAssignableTo", MethodType.methodType(boolean.class, Class.class));
+
+  private final Message message;
+  private final SpanContext spanContext;
+
+  public SpanContextMessage(Message message, SpanContext spanContext) {
+    this.message = message;
+    this.spanContext = spanContext;
+  }
+
+  /**
+   * Wrap the message into the {@code SpanContextMessage} subtype matching its JMS message type.
+   *
+   * @param message     the JMS message
+   * @param spanContext the span context
+   * @return the wrapped message or {@code null} if {@code message} is {@code null}
+   */
+  public static Message wrap(Message message, SpanContext spanContext) {
+    if (message == null) {
+      return null;
+    }
+    if (message instanceof TextMessage) {
+      return new SpanContextTextMessage((TextMessage) message, spanContext);
+    }
+    if (message instanceof BytesMessage) {
+      return new SpanContextBytesMessage((BytesMessage) message, spanContext);
+    }
+    if (message instanceof MapMessage) {
+      return new SpanContextMapMessage((MapMessage) message, spanContext);
+    }
+    if (message instanceof ObjectMessage) {
+      return new SpanContextObjectMessage((ObjectMessage) message, spanContext);
+    }
+    if (message instanceof StreamMessage) {
+      return new SpanContextStreamMessage((StreamMessage) message, spanContext);
+    }
+    return new SpanContextMessage(message, spanContext);
+  }
+
+  @Override
+  public SpanContext getSpanContext() {
+    return spanContext;
+  }
+
+  /**
+   * @return the wrapped message
+   */
+  public Message getMessage() {
+    return message;
+  }
+
+  @Override
+  public String getJMSMessageID() throws JMSException {
+    return message.getJMSMessageID();
+  }
+
+  @Override
+  public void setJMSMessageID(String messageID) throws JMSException {
+    message.setJMSMessageID(messageID);
+  }
+
+  @Override
+  public long getJMSTimestamp() throws JMSException {
+    return message.getJMSTimestamp();
+  }
+
+  @Override
+  public void setJMSTimestamp(long timestamp) throws JMSException {
+    message.setJMSTimestamp(timestamp);
+  }
+
+  @Override
+  public byte[] getJMSCorrelationIDAsBytes() throws JMSException {
+    return message.getJMSCorrelationIDAsBytes();
+  }
+
+  @Override
+  public void setJMSCorrelationIDAsBytes(byte[] correlationID) throws JMSException {
+    message.setJMSCorrelationIDAsBytes(correlationID);
+  }
+
+  @Override
+  public void setJMSCorrelationID(String correlationID) throws JMSException {
+    message.setJMSCorrelationID(correlationID);
+  }
+
+  @Override
+  public String getJMSCorrelationID() throws JMSException {
+    return message.getJMSCorrelationID();
+  }
+
+  @Override
+  public Destination getJMSReplyTo() throws JMSException {
+    return message.getJMSReplyTo();
+  }
+
+  @Override
+  public void setJMSReplyTo(Destination replyTo) throws JMSException {
+    message.setJMSReplyTo(replyTo);
+  }
+
+  @Override
+  public Destination getJMSDestination() throws JMSException {
+    return message.getJMSDestination();
+  }
+
+  @Override
+  public void setJMSDestination(Destination destination) throws JMSException {
+    message.setJMSDestination(destination);
+  }
+
+  @Override
+  public int getJMSDeliveryMode() throws JMSException {
+    return message.getJMSDeliveryMode();
+  }
+
+  @Override
+  public void setJMSDeliveryMode(int deliveryMode) throws JMSException {
+    message.setJMSDeliveryMode(deliveryMode);
+  }
+
+  @Override
+  public boolean getJMSRedelivered() throws JMSException {
+    return message.getJMSRedelivered();
+  }
+
+  @Override
+  public void setJMSRedelivered(boolean redelivered) throws JMSException {
+    message.setJMSRedelivered(redelivered);
+  }
+
+  @Override
+  public String getJMSType() throws JMSException {
+    return message.getJMSType();
+  }
+
+  @Override
+  public void setJMSType(String type) throws JMSException {
+    message.setJMSType(type);
+  }
+
+  @Override
+  public long getJMSExpiration() throws JMSException {
+    return message.getJMSExpiration();
+  }
+
+  @Override
+  public void setJMSExpiration(long expiration) throws JMSException {
+    message.setJMSExpiration(expiration);
+  }
+
+  @Override
+  public int getJMSPriority() throws JMSException {
+    return message.getJMSPriority();
+  }
+
+  @Override
+  public void setJMSPriority(int priority) throws JMSException {
+    message.setJMSPriority(priority);
+  }
+
+  @Override
+  public void clearProperties() throws JMSException {
+    message.clearProperties();
+  }
+
+  @Override
+  public boolean propertyExists(String name) throws JMSException {
+    return message.propertyExists(name);
+  }
+
+  @Override
+  public boolean getBooleanProperty(String name) throws JMSException {
+    return message.getBooleanProperty(name);
+  }
+
+  @Override
+  public byte getByteProperty(String name) throws JMSException {
+    return message.getByteProperty(name);
+  }
+
+  @Override
+  public short getShortProperty(String name) throws JMSException {
+    return message.getShortProperty(name);
+  }
+
+  @Override
+  public int getIntProperty(String name) throws JMSException {
+    return message.getIntProperty(name);
+  }
+
+  @Override
+  public long getLongProperty(String name) throws JMSException {
+    return message.getLongProperty(name);
+  }
+
+  @Override
+  public float getFloatProperty(String name) throws JMSException {
+    return message.getFloatProperty(name);
+  }
+
+  @Override
+  public double getDoubleProperty(String name) throws JMSException {
+    return message.getDoubleProperty(name);
+  }
+
+  @Override
+  public String getStringProperty(String name) throws JMSException {
+    return message.getStringProperty(name);
+  }
+
+  @Override
+  public Object getObjectProperty(String name) throws JMSException {
+    return message.getObjectProperty(name);
+  }
+
+  @Override
+  public Enumeration getPropertyNames() throws JMSException {
+    return message.getPropertyNames();
+  }
+
+  @Override
+  public void setBooleanProperty(String name, boolean value) throws JMSException {
+    message.setBooleanProperty(name, value);
+  }
+
+  @Override
+  public void setByteProperty(String name, byte value) throws JMSException {
+    message.setByteProperty(name, value);
+  }
+
+  @Override
+  public void setShortProperty(String name, short value) throws JMSException {
+    message.setShortProperty(name, value);
+  }
+
+  @Override
+  public void setIntProperty(String name, int value) throws JMSException {
+    message.setIntProperty(name, value);
+  }
+
+  @Override
+  public void setLongProperty(String name, long value) throws JMSException {
+    message.setLongProperty(name, value);
+  }
+
+  @Override
+  public void setFloatProperty(String name, float value) throws JMSException {
+    message.setFloatProperty(name, value);
+  }
+
+  @Override
+  public void setDoubleProperty(String name, double value) throws JMSException {
+    message.setDoubleProperty(name, value);
+  }
+
+  @Override
+  public void setStringProperty(String name, String value) throws JMSException {
+    message.setStringProperty(name, value);
+  }
+
+  @Override
+  public void setObjectProperty(String name, Object value) throws JMSException {
+    message.setObjectProperty(name, value);
+  }
+
+  @Override
+  public void acknowledge() throws JMSException {
+    message.acknowledge();
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    message.clearBody();
+  }
+
+  // JMS 2.0 methods, delegated through method handles as this module is compiled against JMS 1.1
+
+  public long getJMSDeliveryTime() throws JMSException {
+    try {
+      return (long) jms2(GET_JMS_DELIVERY_TIME).invokeExact(message);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  public void setJMSDeliveryTime(long deliveryTime) throws JMSException {
+    try {
+      jms2(SET_JMS_DELIVERY_TIME).invokeExact(message, deliveryTime);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T getBody(Class<T> c) throws JMSException {
+    try {
+      return (T) (Object) jms2(GET_BODY).invokeExact(message, c);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public boolean isBodyAssignableTo(Class c) throws JMSException {
+    try {
+      return (boolean) jms2(IS_BODY_ASSIGNABLE_TO).invokeExact(message, c);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return message.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return message.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return message.toString();
+  }
+
+  private static MethodHandle jms2(MethodHandle handle) {
+    if (handle == null) {
+      throw new UnsupportedOperationException("JMS 2.0 API is not available");
+    }
+    return handle;
+  }
+
+  private static JMSException rethrow(Throwable t) {
+    if (t instanceof JMSException) {
+      return (JMSException) t;
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new IllegalStateException(t);
+  }
+
+  private static MethodHandle jms2Method(String name, MethodType type) {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Message.class, name, type);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
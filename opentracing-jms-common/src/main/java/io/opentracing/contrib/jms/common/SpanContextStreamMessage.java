@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import javax.jms.JMSException;
+import javax.jms.StreamMessage;
+
+/**
+ * {@link SpanContextMessage} for {@link StreamMessage}.
+ */
+public class SpanContextStreamMessage extends SpanContextMessage implements StreamMessage {
+
+  private final StreamMessage streamMessage;
+
+  public SpanContextStreamMessage(StreamMessage streamMessage, SpanContext spanContext) {
+    super(streamMessage, spanContext);
+    this.streamMessage = streamMessage;
+  }
+
+  @Override
+  public boolean readBoolean() throws JMSException {
+    return streamMessage.readBoolean();
+  }
+
+  @Override
+  public byte readByte() throws JMSException {
+    return streamMessage.readByte();
+  }
+
+  @Override
+  public short readShort() throws JMSException {
+    return streamMessage.readShort();
+  }
+
+  @Override
+  public char readChar() throws JMSException {
+    return streamMessage.readChar();
+  }
+
+  @Override
+  public int readInt() throws JMSException {
+    return streamMessage.readInt();
+  }
+
+  @Override
+  public long readLong() throws JMSException {
+    return streamMessage.readLong();
+  }
+
+  @Override
+  public float readFloat() throws JMSException {
+    return streamMessage.readFloat();
+  }
+
+  @Override
+  public double readDouble() throws JMSException {
+    return streamMessage.readDouble();
+  }
+
+  @Override
+  public String readString() throws JMSException {
+    return streamMessage.readString();
+  }
+
+  @Override
+  public int readBytes(byte[] value) throws JMSException {
+    return streamMessage.readBytes(value);
+  }
+
+  @Override
+  public Object readObject() throws JMSException {
+    return streamMessage.readObject();
+  }
+
+  @Override
+  public void writeBoolean(boolean value) throws JMSException {
+    streamMessage.writeBoolean(value);
+  }
+
+  @Override
+  public void writeByte(byte value) throws JMSException {
+    streamMessage.writeByte(value);
+  }
+
+  @Override
+  public void writeShort(short value) throws JMSException {
+    streamMessage.writeShort(value);
+  }
+
+  @Override
+  public void writeChar(char value) throws JMSException {
+    streamMessage.writeChar(value);
+  }
+
+  @Override
+  public void writeInt(int value) throws JMSException {
+    streamMessage.writeInt(value);
+  }
+
+  @Override
+  public void writeLong(long value) throws JMSException {
+    streamMessage.writeLong(value);
+  }
+
+  @Override
+  public void writeFloat(float value) throws JMSException {
+    streamMessage.writeFloat(value);
+  }
+
+  @Override
+  public void writeDouble(double value) throws JMSException {
+    streamMessage.writeDouble(value);
+  }
+
+  @Override
+  public void writeString(String value) throws JMSException {
+    streamMessage.writeString(value);
+  }
+
+  @Override
+  public void writeBytes(byte[] value) throws JMSException {
+    streamMessage.writeBytes(value);
+  }
+
+  @Override
+  public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+    streamMessage.writeBytes(value, offset, length);
+  }
+
+  @Override
+  public void writeObject(Object value) throws JMSException {
+    streamMessage.writeObject(value);
+  }
+
+  @Override
+  public void reset() throws JMSException {
+    streamMessage.reset();
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.SpanContext;
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+/**
+ * {@link SpanContextMessage} for {@link TextMessage}.
+ */
+public class SpanContextTextMessage extends SpanContextMessage implements TextMessage {
+
+  private final TextMessage textMessage;
+
+  public SpanContextTextMessage(TextMessage textMessage, SpanContext spanContext) {
+    super(textMessage, spanContext);
+    this.textMessage = textMessage;
+  }
+
+  @Override
+  public void setText(String text) throws JMSException {
+    textMessage.setText(text);
+  }
+
+  @Override
+  public String getText() throws JMSException {
+    return textMessage.getText();
+  }
+}
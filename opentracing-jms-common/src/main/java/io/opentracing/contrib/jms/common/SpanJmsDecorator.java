@@ -14,12 +14,18 @@
 package io.opentracing.contrib.jms.common;
 
 import io.opentracing.Span;
+import io.opentracing.noop.NoopSpan;
 import io.opentracing.tag.Tags;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.Message;
 
 /**
@@ -27,6 +33,24 @@ import javax.jms.Message;
  */
 public class SpanJmsDecorator {
 
+  /**
+   * Milliseconds between the send (or, on JMS 2, the delivery time) and the receive of a message,
+   * according to the consumer clock corrected by {@link #setClockSkewOffset}.
+   */
+  public static final String DWELL_TIME_TAG = "message_bus.dwell_time_ms";
+
+  /**
+   * {@code queue} or {@code topic}, telling apart a queue and a topic of the same
+   * {@code message_bus.destination}.
+   */
+  public static final String DESTINATION_TYPE_TAG = "message_bus.destination_type";
+
+  private static volatile long clockSkewOffsetMillis;
+  private static volatile boolean dwellTimeEnabled;
+  private static volatile JmsDeliveryTimeReader deliveryTimeReader;
+  private static volatile int maxStackDepth = Integer.MAX_VALUE;
+  private static volatile long errorDedupWindowNanos;
+  private static final ErrorSignatures errorSignatures = new ErrorSignatures();
 
   /**
    * Decorate span before a request is made.
@@ -36,7 +60,11 @@ public class SpanJmsDecorator {
    */
   public static void onRequest(Destination destination, Span span) {
     Tags.COMPONENT.set(span, TracingMessageUtils.COMPONENT_NAME);
-    Tags.MESSAGE_BUS_DESTINATION.set(span, destination.toString());
+    Tags.MESSAGE_BUS_DESTINATION.set(span, JmsDestinationNames.nameOf(destination));
+    String type = JmsDestinationNames.typeOf(destination);
+    if (type != null) {
+      span.setTag(DESTINATION_TYPE_TAG, type);
+    }
   }
 
 
@@ -48,6 +76,113 @@ public class SpanJmsDecorator {
    */
   public static void onResponse(Message message, Span span) {
     Tags.COMPONENT.set(span, TracingMessageUtils.COMPONENT_NAME);
+    if (dwellTimeEnabled) {
+      onDwellTime(message, span);
+    }
+  }
+
+  /**
+   * Offset added to the consumer clock when computing the dwell time, to compensate a known clock
+   * difference to the producers, e.g. a positive offset if the consumer clock is behind. Zero by
+   * default.
+   *
+   * @param offset the offset, may be negative
+   * @param unit   the unit of the offset
+   */
+  public static void setClockSkewOffset(long offset, TimeUnit unit) {
+    clockSkewOffsetMillis = unit.toMillis(offset);
+  }
+
+  /**
+   * Whether to tag consumer and listener spans with {@link #DWELL_TIME_TAG} and record the dwell
+   * time in {@link JmsDwellTimes}. Disabled by default, as it reads the message headers and records
+   * a histogram for every received message.
+   *
+   * @param enabled {@code true} to measure dwell times
+   */
+  public static void setDwellTimeEnabled(boolean enabled) {
+    dwellTimeEnabled = enabled;
+  }
+
+  /**
+   * Reader of {@code JMSDeliveryTime}, so delayed delivery is not counted as dwell time. Set by
+   * the {@code opentracing-jms-2} wrappers, JMS 1.1 messages have no delivery time.
+   *
+   * @param reader the reader, or {@code null} to only use {@code JMSTimestamp}
+   */
+  public static void setDeliveryTimeReader(JmsDeliveryTimeReader reader) {
+    deliveryTimeReader = reader;
+  }
+
+  private static void onDwellTime(Message message, Span span) {
+    long sent = sentTime(message);
+    if (sent <= 0) {
+      // timestamps disabled by the producer
+      return;
+    }
+    long dwellTime = Math.max(0, System.currentTimeMillis() + clockSkewOffsetMillis - sent);
+    if (!(span instanceof NoopSpan)) {
+      span.setTag(DWELL_TIME_TAG, dwellTime);
+    }
+    String destination = null;
+    try {
+      destination = JmsDestinationNames.keyOf(message.getJMSDestination());
+    } catch (JMSException ignored) {
+      // not recorded per destination
+    }
+    if (destination != null) {
+      JmsDwellTimes.record(destination, dwellTime);
+    }
+  }
+
+  /**
+   * The later of {@code JMSTimestamp} and, if a {@link JmsDeliveryTimeReader} is set,
+   * {@code JMSDeliveryTime}, so delayed delivery is not counted as dwell time. {@code 0} if the
+   * message has no timestamp.
+   */
+  private static long sentTime(Message message) {
+    long timestamp;
+    try {
+      timestamp = message.getJMSTimestamp();
+    } catch (JMSException e) {
+      return 0;
+    }
+    JmsDeliveryTimeReader reader = deliveryTimeReader;
+    if (timestamp <= 0 || reader == null) {
+      return timestamp;
+    }
+    try {
+      return Math.max(timestamp, reader.deliveryTime(message));
+    } catch (JMSException e) {
+      return timestamp;
+    }
+  }
+
+  /**
+   * Limit the number of stack frames rendered per exception in the {@code stack} error log field,
+   * including causes. Unlimited by default.
+   *
+   * @param depth the maximum number of frames, {@code 0} to omit the stack text and the
+   *              {@code error.object} field, which tracers may render with its full stack
+   */
+  public static void setMaxStackDepth(int depth) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("depth must not be negative: " + depth);
+    }
+    maxStackDepth = depth;
+  }
+
+  /**
+   * Log repeated exceptions, with the same class and message ignoring words with digits such as
+   * ids, only in short form (without stack and error object) within the given window. The first
+   * full log of the next window carries the number of repeats in {@code error.suppressed}.
+   * Disabled by default.
+   *
+   * @param window the window, {@code 0} to log every exception in full
+   * @param unit   the unit of the window
+   */
+  public static void setErrorDedupWindow(long window, TimeUnit unit) {
+    errorDedupWindowNanos = unit.toNanos(window);
   }
 
   /**
@@ -58,21 +193,73 @@ public class SpanJmsDecorator {
    * @param span span
    */
   public static void onError(Throwable throwable, Span span) {
+    if (span instanceof NoopSpan) {
+      return;
+    }
     Tags.ERROR.set(span, Boolean.TRUE);
-    span.log(errorLogs(throwable));
+    long window = errorDedupWindowNanos;
+    long suppressed = window > 0
+        ? errorSignatures.firstInWindow(throwable, System.nanoTime(), window)
+        : 0;
+    if (suppressed < 0) {
+      span.log(repeatedErrorLogs(throwable));
+    } else {
+      span.log(errorLogs(throwable, suppressed));
+    }
   }
 
-  private static Map<String, Object> errorLogs(Throwable throwable) {
-    Map<String, Object> errorLogs = new HashMap<>(4);
+  private static Map<String, Object> errorLogs(Throwable throwable, long suppressed) {
+    Map<String, Object> errorLogs = new HashMap<>(8);
     errorLogs.put("event", Tags.ERROR.getKey());
     errorLogs.put("error.kind", throwable.getClass().getName());
     errorLogs.put("message", throwable.getMessage());
-    errorLogs.put("error.object", throwable);
+    int depth = maxStackDepth;
+    if (depth > 0) {
+      errorLogs.put("error.object", throwable);
+    }
+    if (suppressed > 0) {
+      errorLogs.put("error.suppressed", suppressed);
+    }
+
+    if (depth == Integer.MAX_VALUE) {
+      StringWriter sw = new StringWriter();
+      throwable.printStackTrace(new PrintWriter(sw));
+      errorLogs.put("stack", sw.toString());
+    } else if (depth > 0) {
+      errorLogs.put("stack", stackTrace(throwable, depth));
+    }
 
-    StringWriter sw = new StringWriter();
-    throwable.printStackTrace(new PrintWriter(sw));
-    errorLogs.put("stack", sw.toString());
+    return errorLogs;
+  }
 
+  private static Map<String, Object> repeatedErrorLogs(Throwable throwable) {
+    Map<String, Object> errorLogs = new HashMap<>(4);
+    errorLogs.put("event", Tags.ERROR.getKey());
+    errorLogs.put("error.kind", throwable.getClass().getName());
+    errorLogs.put("message", throwable.getMessage());
     return errorLogs;
   }
+
+  /**
+   * Render at most {@code depth} frames of the exception and of each cause.
+   */
+  static String stackTrace(Throwable throwable, int depth) {
+    StringBuilder sb = new StringBuilder();
+    Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+    for (Throwable t = throwable; t != null && seen.add(t); t = t.getCause()) {
+      if (t != throwable) {
+        sb.append("Caused by: ");
+      }
+      sb.append(t).append('\n');
+      StackTraceElement[] frames = t.getStackTrace();
+      int frameCount = Math.min(depth, frames.length);
+      for (int i = 0; i < frameCount; i++) {
+        sb.append("\tat ").append(frames[i]).append('\n');
+      }
+      if (frames.length > frameCount) {
+        sb.append("\t... ").append(frames.length - frameCount).append(" more\n");
+      }
+    }
+    return sb.toString();
+  }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter split into cache line padded cells selected by thread, so concurrent writers rarely
+ * contend on the same cell. Reads sum all cells and are not atomic with respect to writes.
+ * <p>
+ * Replaced by a {@code LongAdder} on Java 11+, see {@code src/main/java11}.
+ */
+final class StripedCounter {
+
+  /**
+   * Longs per cell, one 64 byte cache line.
+   */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray cells = new AtomicLongArray(Stripes.COUNT * PADDING);
+
+  void add(long value) {
+    cells.addAndGet(Stripes.index() * PADDING, value);
+  }
+
+  void increment() {
+    add(1);
+  }
+
+  long sum() {
+    long sum = 0;
+    for (int i = 0; i < Stripes.COUNT; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+}
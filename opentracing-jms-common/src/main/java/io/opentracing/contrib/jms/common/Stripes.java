@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+/**
+ * Selects the stripe of the current thread for {@link StripedCounter} and {@link JmsHistogram}.
+ */
+final class Stripes {
+
+  /**
+   * Number of stripes, a power of two.
+   */
+  static final int COUNT = of(Runtime.getRuntime().availableProcessors());
+
+  private Stripes() {
+  }
+
+  /**
+   * @return the stripe of the current thread, from {@code 0} to {@code COUNT - 1}
+   */
+  static int index() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32 & (COUNT - 1));
+  }
+
+  /**
+   * @return the power of two of at least {@code processors}, limited to {@code 16}
+   */
+  static int of(int processors) {
+    int stripes = 1;
+    while (stripes < processors && stripes < 16) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+}
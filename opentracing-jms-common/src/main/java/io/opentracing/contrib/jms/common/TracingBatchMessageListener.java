@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
+import java.util.List;
+import javax.jms.Message;
+import org.slf4j.MDC;
+
+/**
+ * Tracing decorator for {@link BatchMessageListener}, creating one span per batch, see
+ * {@link TracingMessageUtils#startBatchSpan(List, Tracer, JmsTracingSampler)}.
+ */
+public class TracingBatchMessageListener implements BatchMessageListener {
+
+  private final BatchMessageListener batchMessageListener;
+  private final Tracer tracer;
+  private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
+
+  public TracingBatchMessageListener(BatchMessageListener batchMessageListener, Tracer tracer) {
+    this(batchMessageListener, tracer, false);
+  }
+
+  public TracingBatchMessageListener(BatchMessageListener batchMessageListener, Tracer tracer,
+      boolean traceInLog) {
+    this(batchMessageListener, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingBatchMessageListener(BatchMessageListener batchMessageListener, Tracer tracer,
+      boolean traceInLog, JmsTracingSampler sampler) {
+    this.batchMessageListener = batchMessageListener;
+    this.tracer = tracer;
+    this.traceInLog = traceInLog;
+    this.sampler = sampler;
+  }
+
+  @Override
+  public void onMessages(List<Message> messages) {
+    Span span = TracingMessageUtils.startBatchSpan(messages, tracer, sampler);
+    if (span == NoopSpan.INSTANCE) {
+      deliver(messages, span);
+      return;
+    }
+    if (traceInLog) {
+      MDC.put("spanId", span.context().toSpanId());
+      MDC.put("traceId", span.context().toTraceId());
+    }
+    try (Scope ignored = tracer.activateSpan(span)) {
+      deliver(messages, span);
+    } catch (Throwable e) {
+      SpanJmsDecorator.onError(e, span);
+      throw e;
+    } finally {
+      span.finish();
+      if (traceInLog) {
+        MDC.remove("spanId");
+        MDC.remove("traceId");
+      }
+    }
+  }
+
+  /**
+   * Call the listener, recording the batch once in {@link JmsMetrics} under the destination of its
+   * first message, so listener metrics count batches rather than messages.
+   */
+  private void deliver(List<Message> messages, Span span) {
+    Message first = messages.isEmpty() ? null : messages.get(0);
+    long startTime = JmsMetrics.startTime();
+    try {
+      batchMessageListener.onMessages(messages);
+    } catch (Throwable e) {
+      JmsMetrics.onMessageError(first, startTime);
+      throw e;
+    } finally {
+      JmsMetrics.onMessage(first, span, startTime);
+    }
+  }
+}
@@ -15,9 +15,6 @@ package io.opentracing.contrib.jms.common;
 
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
@@ -32,6 +29,8 @@ public class TracingMessageConsumer implements MessageConsumer {
   private final Tracer tracer;
   private final boolean proxyMessage;
   private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
+  private final TracingTransaction transaction;
 
   public TracingMessageConsumer(MessageConsumer messageConsumer, Tracer tracer) {
     this(messageConsumer, tracer, false, false);
@@ -44,10 +43,27 @@ public class TracingMessageConsumer implements MessageConsumer {
 
   public TracingMessageConsumer(MessageConsumer messageConsumer, Tracer tracer,
       boolean proxyMessage, boolean traceInLog) {
+    this(messageConsumer, tracer, proxyMessage, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingMessageConsumer(MessageConsumer messageConsumer, Tracer tracer,
+      boolean proxyMessage, boolean traceInLog, JmsTracingSampler sampler) {
+    this(messageConsumer, tracer, proxyMessage, traceInLog, sampler, null);
+  }
+
+  /**
+   * @param transaction the transaction of the transacted session of the consumer, counting
+   *                    received messages, or {@code null}
+   */
+  public TracingMessageConsumer(MessageConsumer messageConsumer, Tracer tracer,
+      boolean proxyMessage, boolean traceInLog, JmsTracingSampler sampler,
+      TracingTransaction transaction) {
     this.messageConsumer = messageConsumer;
     this.tracer = tracer;
     this.proxyMessage = proxyMessage;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
+    this.transaction = transaction;
   }
 
   @Override
@@ -65,38 +81,27 @@ public class TracingMessageConsumer implements MessageConsumer {
     if (listener instanceof TracingMessageConsumer) {
       messageConsumer.setMessageListener(listener);
     } else {
-      messageConsumer.setMessageListener(new TracingMessageListener(listener, tracer, traceInLog));
+      messageConsumer.setMessageListener(new TracingMessageListener(listener, tracer, traceInLog,
+          sampler));
     }
   }
 
   @Override
   public Message receive() throws JMSException {
-    Message message = messageConsumer.receive();
-    if (proxyMessage) {
-      return proxy(message, startAndFinishConsumerSpan(message));
-    }
-    startAndFinishConsumerSpan(message);
-    return message;
+    long startTime = JmsMetrics.startTime();
+    return onReceive(messageConsumer.receive(), startTime);
   }
 
   @Override
   public Message receive(long timeout) throws JMSException {
-    Message message = messageConsumer.receive(timeout);
-    if (proxyMessage) {
-      return proxy(message, startAndFinishConsumerSpan(message));
-    }
-    startAndFinishConsumerSpan(message);
-    return message;
+    long startTime = JmsMetrics.startTime();
+    return onReceive(messageConsumer.receive(timeout), startTime);
   }
 
   @Override
   public Message receiveNoWait() throws JMSException {
-    Message message = messageConsumer.receiveNoWait();
-    if (proxyMessage) {
-      return proxy(message, startAndFinishConsumerSpan(message));
-    }
-    startAndFinishConsumerSpan(message);
-    return message;
+    long startTime = JmsMetrics.startTime();
+    return onReceive(messageConsumer.receiveNoWait(), startTime);
   }
 
   @Override
@@ -104,28 +109,14 @@ public class TracingMessageConsumer implements MessageConsumer {
     messageConsumer.close();
   }
 
-  private SpanContext startAndFinishConsumerSpan(Message message) {
-    return TracingMessageUtils.startAndFinishConsumerSpan(message, tracer);
+  private Message onReceive(Message message, long startTime) {
+    SpanContext transactionContext = transaction != null ? transaction.onReceive(message) : null;
+    SpanContext context = startAndFinishConsumerSpan(message, transactionContext);
+    JmsMetrics.onReceive(message, context, startTime);
+    return proxyMessage ? SpanContextMessage.wrap(message, context) : message;
   }
 
-  private Message proxy(final Message message, final SpanContext spanContext) {
-    if (message == null) {
-      return null;
-    }
-    final Class<?>[] interfaces = message.getClass().getInterfaces();
-    Class<?>[] allInterfaces = new Class<?>[interfaces.length + 1];
-    System.arraycopy(interfaces, 0, allInterfaces, 0, interfaces.length);
-    allInterfaces[interfaces.length] = SpanContextContainer.class;
-
-    return (Message) Proxy.newProxyInstance(message.getClass().getClassLoader(), allInterfaces,
-        new InvocationHandler() {
-          @Override
-          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            if (method.getName().equals("getSpanContext")) {
-              return spanContext;
-            }
-            return method.invoke(message, args);
-          }
-        });
+  private SpanContext startAndFinishConsumerSpan(Message message, SpanContext transaction) {
+    return TracingMessageUtils.startAndFinishConsumerSpan(message, tracer, sampler, transaction);
   }
 }
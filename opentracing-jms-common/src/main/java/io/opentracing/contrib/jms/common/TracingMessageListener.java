@@ -16,6 +16,7 @@ package io.opentracing.contrib.jms.common;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import org.slf4j.MDC;
@@ -28,6 +29,7 @@ public class TracingMessageListener implements MessageListener {
   private final MessageListener messageListener;
   private final Tracer tracer;
   private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
 
   public TracingMessageListener(MessageListener messageListener, Tracer tracer) {
     this(messageListener, tracer, false);
@@ -35,14 +37,24 @@ public class TracingMessageListener implements MessageListener {
 
   public TracingMessageListener(MessageListener messageListener, Tracer tracer,
       boolean traceInLog) {
+    this(messageListener, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingMessageListener(MessageListener messageListener, Tracer tracer,
+      boolean traceInLog, JmsTracingSampler sampler) {
     this.messageListener = messageListener;
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
   }
 
   @Override
   public void onMessage(Message message) {
-    Span span = TracingMessageUtils.startListenerSpan(message, tracer);
+    Span span = TracingMessageUtils.startListenerSpan(message, tracer, sampler);
+    if (span == NoopSpan.INSTANCE) {
+      deliver(message, span);
+      return;
+    }
     if (traceInLog) {
       if (span != null) {
         MDC.put("spanId", span.context().toSpanId());
@@ -50,9 +62,7 @@ public class TracingMessageListener implements MessageListener {
       }
     }
     try (Scope ignored = tracer.activateSpan(span)) {
-      if (messageListener != null) {
-        messageListener.onMessage(message);
-      }
+      deliver(message, span);
     } finally {
       span.finish();
       if (traceInLog) {
@@ -62,4 +72,19 @@ public class TracingMessageListener implements MessageListener {
     }
 
   }
+
+  private void deliver(Message message, Span span) {
+    if (messageListener == null) {
+      return;
+    }
+    long startTime = JmsMetrics.startTime();
+    try {
+      messageListener.onMessage(message);
+    } catch (Throwable e) {
+      JmsMetrics.onMessageError(message, startTime);
+      throw e;
+    } finally {
+      JmsMetrics.onMessage(message, span, startTime);
+    }
+  }
 }
@@ -17,10 +17,13 @@ import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
 import io.opentracing.propagation.Format;
 import io.opentracing.tag.Tags;
+import java.util.List;
 
 import javax.jms.Destination;
+import javax.jms.JMSException;
 import javax.jms.Message;
 
 public class TracingMessageUtils {
@@ -29,6 +32,57 @@ public class TracingMessageUtils {
   public static final String OPERATION_NAME_SEND = "jms-send";
   public static final String OPERATION_NAME_RECEIVE = "jms-receive";
   public static final String OPERATION_NAME_ON_MESSAGE = "jms-on-message";
+  public static final String OPERATION_NAME_ON_BATCH = "jms-on-batch";
+  public static final String BATCH_SIZE_TAG = "message_bus.batch_size";
+
+  private static volatile JmsPropagationKeys propagationKeys;
+  private static volatile boolean extractOnSend;
+  private static volatile boolean binaryPropagation;
+  private static volatile boolean recordSpanContexts;
+
+  /**
+   * Restrict extraction to the given tracer propagation keys. Only these properties are then
+   * looked up on received messages instead of copying all message properties.
+   *
+   * @param keys the propagation keys, or {@code null} to extract from all message properties
+   */
+  public static void setPropagationKeys(JmsPropagationKeys keys) {
+    propagationKeys = keys;
+  }
+
+  /**
+   * Whether a span context already present on an outgoing message (e.g. a re-sent or forwarded
+   * message) should be used as parent of the send span. Disabled by default, the active span is
+   * used as parent without inspecting message properties.
+   *
+   * @param enabled {@code true} to extract from outgoing messages
+   */
+  public static void setExtractOnSend(boolean enabled) {
+    extractOnSend = enabled;
+  }
+
+  /**
+   * Whether to inject the span context into the single
+   * {@link JmsBinaryInjectAdapter#SPAN_CONTEXT_PROPERTY} property using
+   * {@link Format.Builtin#BINARY}, instead of one property per tracer key. The tracer needs to
+   * support the binary format. Extraction detects both forms regardless of this setting.
+   *
+   * @param enabled {@code true} to inject a single binary property
+   */
+  public static void setBinaryPropagation(boolean enabled) {
+    binaryPropagation = enabled;
+  }
+
+  /**
+   * Whether to record the consumer or listener span context of received messages, for
+   * {@link #spanContextOf(Message)}. Disabled by default, recording costs a lock and an allocation
+   * per message.
+   *
+   * @param enabled {@code true} to record span contexts of received messages
+   */
+  public static void setRecordSpanContexts(boolean enabled) {
+    recordSpanContexts = enabled;
+  }
 
   /**
    * Start message consumer {@code span} and finish it.
@@ -38,12 +92,47 @@ public class TracingMessageUtils {
    * @return the span context
    */
   public static SpanContext startAndFinishConsumerSpan(Message message, Tracer tracer) {
+    return startAndFinishConsumerSpan(message, tracer, JmsTracingSampler.always());
+  }
+
+  /**
+   * Start message consumer {@code span} and finish it, if sampled by the {@code sampler}.
+   *
+   * @param message the JMS message
+   * @param tracer  the tracer
+   * @param sampler the sampler
+   * @return the span context, or the upstream span context if not sampled, or {@code null} if
+   * tracing is disabled for the destination
+   */
+  public static SpanContext startAndFinishConsumerSpan(Message message, Tracer tracer,
+      JmsTracingSampler sampler) {
+    return startAndFinishConsumerSpan(message, tracer, sampler, null);
+  }
+
+  /**
+   * Start message consumer {@code span} as child of the {@code transaction} span context and finish
+   * it, if sampled by the {@code sampler}.
+   */
+  static SpanContext startAndFinishConsumerSpan(Message message, Tracer tracer,
+      JmsTracingSampler sampler, SpanContext transaction) {
     if (message == null) {
       return null;
     }
-    Span span = startConsumerSpan(message, tracer, OPERATION_NAME_RECEIVE);
-    span.finish();
-    return span.context();
+    Destination destination = destinationOf(message);
+    sampler = sampler.forDestination(destination);
+    if (!sampler.isEnabled(destination)) {
+      return null;
+    }
+    SpanContext parent = extract(message, tracer);
+    SpanContext context = parent;
+    if (sampler.isSampled(OPERATION_NAME_RECEIVE, destination, parent)) {
+      Span span = startConsumerSpan(message, destination, parent, transaction, tracer,
+          OPERATION_NAME_RECEIVE, sampler);
+      span.finish();
+      context = span.context();
+    }
+    recordSpanContext(message, context);
+    return context;
   }
 
   /**
@@ -54,7 +143,121 @@ public class TracingMessageUtils {
    * @return the span
    */
   public static Span startListenerSpan(Message message, Tracer tracer) {
-    return startConsumerSpan(message, tracer, OPERATION_NAME_ON_MESSAGE);
+    return startListenerSpan(message, tracer, JmsTracingSampler.always());
+  }
+
+  /**
+   * Start message listener {@code span}, if sampled by the {@code sampler}.
+   *
+   * @param message the JMS message
+   * @param tracer  the tracer
+   * @param sampler the sampler
+   * @return the span, or if not sampled a {@link NoopSpan} carrying the span context extracted
+   * from the message, to be activated so that downstream sends keep the trace, or
+   * {@link NoopSpan#INSTANCE} if there is none
+   */
+  public static Span startListenerSpan(Message message, Tracer tracer, JmsTracingSampler sampler) {
+    Destination destination = destinationOf(message);
+    sampler = sampler.forDestination(destination);
+    if (!sampler.isEnabled(destination)) {
+      return NoopSpan.INSTANCE;
+    }
+    SpanContext extracted = extractFromMessage(message, tracer, propagationKeys);
+    SpanContext parent = extracted != null ? extracted : activeContext(tracer);
+    if (!sampler.isSampled(OPERATION_NAME_ON_MESSAGE, destination, parent)) {
+      recordSpanContext(message, parent);
+      return extracted != null ? new PropagationSpan(extracted) : NoopSpan.INSTANCE;
+    }
+    Span span = startConsumerSpan(message, destination, parent, null, tracer,
+        OPERATION_NAME_ON_MESSAGE, sampler);
+    recordSpanContext(message, span.context());
+    return span;
+  }
+
+  /**
+   * Start one {@code span} for processing a batch of {@code messages}, if sampled by the
+   * {@code sampler}. The span has a {@code FollowsFrom} reference to the span context of every
+   * message which carries one, or to the active span if none does. The sampling decision is based
+   * on the destination and span context of the first message, the span contexts of the other
+   * messages are only extracted if the batch is sampled. Like other consumer spans the span is
+   * decorated by {@link SpanJmsDecorator#onResponse(Message, Span)}, with the dwell time of the
+   * first message.
+   * <p>
+   * Unlike {@link #startListenerSpan(Message, Tracer, JmsTracingSampler)},
+   * {@link #spanContextOf(Message)} doesn't return the span context for messages of the batch.
+   *
+   * @param messages the JMS messages, of the same destination
+   * @param tracer   the tracer
+   * @param sampler  the sampler
+   * @return the span, or if not sampled a {@link NoopSpan} carrying the span context of the first
+   * message, or {@link NoopSpan#INSTANCE} if there is none or {@code messages} is empty
+   */
+  public static Span startBatchSpan(List<? extends Message> messages, Tracer tracer,
+      JmsTracingSampler sampler) {
+    if (messages.isEmpty()) {
+      return NoopSpan.INSTANCE;
+    }
+    Message first = messages.get(0);
+    Destination destination = destinationOf(first);
+    sampler = sampler.forDestination(destination);
+    if (!sampler.isEnabled(destination)) {
+      return NoopSpan.INSTANCE;
+    }
+    JmsPropagationKeys keys = propagationKeys;
+    SpanContext firstContext = extractFromMessage(first, tracer, keys);
+    SpanContext parent = firstContext != null ? firstContext : activeContext(tracer);
+    if (!sampler.isSampled(OPERATION_NAME_ON_BATCH, destination, parent)) {
+      return firstContext != null ? new PropagationSpan(firstContext) : NoopSpan.INSTANCE;
+    }
+    Tracer.SpanBuilder builder = tracer
+        .buildSpan(sampler.operationName(OPERATION_NAME_ON_BATCH, destination))
+        .ignoreActiveSpan()
+        .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER)
+        .withTag(BATCH_SIZE_TAG, messages.size());
+    boolean referenced = firstContext != null;
+    if (referenced) {
+      builder.addReference(References.FOLLOWS_FROM, firstContext);
+    }
+    for (int i = 1; i < messages.size(); i++) {
+      SpanContext context = extractFromMessage(messages.get(i), tracer, keys);
+      if (context != null) {
+        builder.addReference(References.FOLLOWS_FROM, context);
+        referenced = true;
+      }
+    }
+    if (!referenced && parent != null) {
+      builder.addReference(References.FOLLOWS_FROM, parent);
+    }
+    Span span = builder.start();
+    SpanJmsDecorator.onResponse(first, span);
+    sampler.onStart(span, destination);
+    return span;
+  }
+
+  /**
+   * Get the span context of the consumer or listener span of a received {@code message}, without
+   * the need to proxy messages in {@link TracingMessageConsumer}. Requires
+   * {@link #setRecordSpanContexts(boolean)} unless the message is proxied.
+   *
+   * @param message the received JMS message
+   * @return the span context or {@code null} if the message wasn't received through a tracing
+   * consumer or listener, or span contexts are not recorded
+   */
+  public static SpanContext spanContextOf(Message message) {
+    if (message instanceof SpanContextContainer) {
+      return ((SpanContextContainer) message).getSpanContext();
+    }
+    return MessageSpanContexts.get(message);
+  }
+
+  /**
+   * Canonical name of the {@code destination}, as tagged by {@code message_bus.destination}.
+   *
+   * @param destination the destination, may be {@code null}
+   * @return the name, {@code null} if the destination is {@code null}
+   */
+  public static String destinationName(Destination destination) {
+    return JmsDestinationNames.nameOf(destination);
   }
 
   /**
@@ -65,10 +268,52 @@ public class TracingMessageUtils {
    * @return an extracted span context
    */
   public static SpanContext extract(Message message, Tracer tracer) {
-    SpanContext context = tracer.extract(Format.Builtin.TEXT_MAP, new JmsTextMapExtractAdapter(message));
+    return extract(message, tracer, propagationKeys);
+  }
+
+  /**
+   * Extract {@code spanContext} from the {@code message} or an active {@code span}, looking up only
+   * the given propagation keys.
+   *
+   * @param message the JMS message
+   * @param tracer  the tracer
+   * @param keys    the propagation keys, or {@code null} to extract from all message properties
+   * @return an extracted span context
+   */
+  public static SpanContext extract(Message message, Tracer tracer, JmsPropagationKeys keys) {
+    SpanContext context = extractFromMessage(message, tracer, keys);
+    return context != null ? context : activeContext(tracer);
+  }
+
+  private static SpanContext extractFromMessage(Message message, Tracer tracer,
+      JmsPropagationKeys keys) {
+    SpanContext context;
+    if (JmsBinaryExtractAdapter.hasSpanContext(message)) {
+      try {
+        context = tracer.extract(Format.Builtin.BINARY, new JmsBinaryExtractAdapter(message));
+      } catch (RuntimeException e) {
+        // a corrupt carrier must not fail consumption, treat it as no span context
+        return null;
+      }
+    } else {
+      JmsTextMapExtractAdapter carrier = keys == null
+          ? new JmsTextMapExtractAdapter(message)
+          : new JmsTextMapExtractAdapter(message, keys);
+      context = tracer.extract(Format.Builtin.TEXT_MAP, carrier);
+    }
     if (context != null && context.toTraceId() != null && context.toSpanId() != null) {
       return context;
     }
+    return null;
+  }
+
+  private static void recordSpanContext(Message message, SpanContext context) {
+    if (recordSpanContexts) {
+      MessageSpanContexts.put(message, context);
+    }
+  }
+
+  private static SpanContext activeContext(Tracer tracer) {
     Span span = tracer.activeSpan();
     return span != null ? span.context() : null;
   }
@@ -82,13 +327,79 @@ public class TracingMessageUtils {
    * @return the span
    */
   public static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer) {
-    SpanContext context = extract(message, tracer);
-    Span span = tracer.buildSpan(TracingMessageUtils.OPERATION_NAME_SEND)
+    return startAndInjectSpan(destination, message, tracer, extractOnSend);
+  }
+
+  /**
+   * Start message producer {@code span} and inject {@code spanContext} into the {@code message}.
+   *
+   * @param destination        the destination
+   * @param message            the JMS message
+   * @param tracer             the tracer
+   * @param extractFromMessage whether to use a span context already present on the message as
+   *                           parent, instead of only the active span
+   * @return the span
+   */
+  public static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer,
+      boolean extractFromMessage) {
+    return startAndInjectSpan(destination, message, tracer, extractFromMessage,
+        JmsTracingSampler.always());
+  }
+
+  /**
+   * Start message producer {@code span} and inject {@code spanContext} into the {@code message}, if
+   * sampled by the {@code sampler}. Otherwise only the upstream span context is injected, unless
+   * the sampler disables tracing for the destination.
+   *
+   * @param destination the destination
+   * @param message     the JMS message
+   * @param tracer      the tracer
+   * @param sampler     the sampler
+   * @return the span, or {@link NoopSpan#INSTANCE} if not sampled
+   */
+  public static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer,
+      JmsTracingSampler sampler) {
+    return startAndInjectSpan(destination, message, tracer, extractOnSend, sampler);
+  }
+
+  private static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer,
+      boolean extractFromMessage, JmsTracingSampler sampler) {
+    sampler = sampler.forDestination(destination);
+    if (!sampler.isEnabled(destination)) {
+      return NoopSpan.INSTANCE;
+    }
+    SpanContext context = extractFromMessage ? extract(message, tracer) : activeContext(tracer);
+    return startAndInjectSpan(destination, message, tracer, context, sampler);
+  }
+
+  /**
+   * Start message producer {@code span} as child of the {@code transaction} span context and
+   * inject it into the {@code message}, if sampled by the {@code sampler}.
+   */
+  static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer,
+      JmsTracingSampler sampler, SpanContext transaction) {
+    sampler = sampler.forDestination(destination);
+    if (!sampler.isEnabled(destination)) {
+      return NoopSpan.INSTANCE;
+    }
+    return startAndInjectSpan(destination, message, tracer, transaction, sampler);
+  }
+
+  private static Span startAndInjectSpan(Destination destination, Message message, Tracer tracer,
+      SpanContext context, JmsTracingSampler sampler) {
+    if (!sampler.isSampled(OPERATION_NAME_SEND, destination, context)) {
+      if (context != null) {
+        inject(context, message, tracer);
+      }
+      return NoopSpan.INSTANCE;
+    }
+    Span span = tracer.buildSpan(sampler.operationName(OPERATION_NAME_SEND, destination))
             .ignoreActiveSpan()
             .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_PRODUCER)
             .asChildOf(context)
             .start();
     SpanJmsDecorator.onRequest(destination, span);
+    sampler.onStart(span, destination);
     inject(span, message, tracer);
     return span;
   }
@@ -101,25 +412,56 @@ public class TracingMessageUtils {
    * @param tracer  the tracer
    */
   public static void inject(Span span, Message message, Tracer tracer) {
-    tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new JmsTextMapInjectAdapter(message));
+    inject(span.context(), message, tracer);
+  }
+
+  private static void inject(SpanContext context, Message message, Tracer tracer) {
+    if (binaryPropagation) {
+      JmsBinaryInjectAdapter carrier = new JmsBinaryInjectAdapter(message);
+      tracer.inject(context, Format.Builtin.BINARY, carrier);
+      carrier.flush();
+    } else {
+      tracer.inject(context, Format.Builtin.TEXT_MAP, new JmsTextMapInjectAdapter(message));
+    }
   }
 
   /**
    * Start message consumer {@code span} with {@code FollowsFrom} reference type.
    *
    * @param message       the JMS message
+   * @param destination   the destination of the message
+   * @param context       the extracted span context
+   * @param transaction   the span context of the transaction, the parent, or {@code null}
    * @param tracer        the tracer
-   * @param operationName the operation name
+   * @param operationName the default operation name
+   * @param sampler       the sampler
    * @return the span
    */
-  private static Span startConsumerSpan(Message message, Tracer tracer, String operationName) {
-    SpanContext context = extract(message, tracer);
-    Span span = tracer.buildSpan(operationName)
+  private static Span startConsumerSpan(Message message, Destination destination,
+      SpanContext context, SpanContext transaction, Tracer tracer, String operationName,
+      JmsTracingSampler sampler) {
+    Tracer.SpanBuilder builder = tracer.buildSpan(sampler.operationName(operationName, destination))
             .ignoreActiveSpan()
-            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER)
+            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER);
+    if (transaction != null) {
+      builder.asChildOf(transaction);
+    }
+    Span span = builder
             .addReference(References.FOLLOWS_FROM, context)
             .start();
     SpanJmsDecorator.onResponse(message, span);
+    sampler.onStart(span, destination);
     return span;
   }
+
+  static Destination destinationOf(Message message) {
+    if (message == null) {
+      return null;
+    }
+    try {
+      return message.getJMSDestination();
+    } catch (JMSException e) {
+      return null;
+    }
+  }
 }
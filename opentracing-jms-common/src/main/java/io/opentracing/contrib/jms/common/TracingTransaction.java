@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.tag.Tags;
+import javax.jms.Destination;
+import javax.jms.Message;
+
+/**
+ * Span of the current transaction of a transacted session, started by its first traced send or
+ * receive and finished by {@code commit}, {@code rollback} or {@code close} of the session. Commit
+ * and rollback get a child span of their own, the transaction span is tagged with the number of
+ * messages sent and received. The destination of the first send or receive decides sampling and
+ * operation name of the transaction span, which is the parent of the send and receive spans within
+ * the transaction. Being neither a producer nor a consumer span, it has no span kind and no
+ * destination tag, these stay on its children.
+ * <p>
+ * Like the session, not thread safe.
+ */
+public final class TracingTransaction {
+
+  public static final String OPERATION_NAME_TRANSACTION = "jms-transaction";
+  public static final String OPERATION_NAME_COMMIT = "jms-commit";
+  public static final String OPERATION_NAME_ROLLBACK = "jms-rollback";
+  public static final String SENT_TAG = "message_bus.transaction.sent";
+  public static final String RECEIVED_TAG = "message_bus.transaction.received";
+  public static final String OUTCOME_TAG = "message_bus.transaction.outcome";
+
+  private static volatile boolean collapseSends;
+
+  private final Tracer tracer;
+  private final JmsTracingSampler sampler;
+  private Span span;
+  private int sent;
+  private int received;
+
+  public TracingTransaction(Tracer tracer, JmsTracingSampler sampler) {
+    this.tracer = tracer;
+    this.sampler = sampler;
+  }
+
+  /**
+   * Whether sends within a transaction inject the span context of the transaction instead of
+   * creating a send span each. Disabled by default.
+   *
+   * @param enabled {@code true} to create no send spans within transactions
+   */
+  public static void setCollapseSends(boolean enabled) {
+    collapseSends = enabled;
+  }
+
+  /**
+   * Count a message sent in the transaction, starting it if needed, and start its send span as
+   * child of the transaction span. If sends are collapsed, the span context of the transaction is
+   * injected instead.
+   *
+   * @param destination the destination
+   * @param message     the JMS message
+   * @return the send span, or {@link NoopSpan#INSTANCE} if not sampled or collapsed
+   */
+  public Span startAndInjectSpan(Destination destination, Message message) {
+    Span transactionSpan = span(destination);
+    sent++;
+    if (transactionSpan instanceof NoopSpan) {
+      return TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler);
+    }
+    if (collapseSends) {
+      TracingMessageUtils.inject(transactionSpan, message, tracer);
+      return NoopSpan.INSTANCE;
+    }
+    return TracingMessageUtils.startAndInjectSpan(destination, message, tracer, sampler,
+        transactionSpan.context());
+  }
+
+  /**
+   * Count a message received in the transaction, starting it if needed.
+   *
+   * @param message the received message, {@code null} if none was received
+   * @return the span context of the transaction, the parent of the receive span, or {@code null}
+   * if not sampled
+   */
+  public SpanContext onReceive(Message message) {
+    if (message == null) {
+      return null;
+    }
+    Span transactionSpan = span(TracingMessageUtils.destinationOf(message));
+    received++;
+    return transactionSpan instanceof NoopSpan ? null : transactionSpan.context();
+  }
+
+  /**
+   * @return the commit span, {@code null} if no transaction was started
+   */
+  public Span startCommit() {
+    return startEnd(OPERATION_NAME_COMMIT);
+  }
+
+  /**
+   * @return the rollback span, {@code null} if no transaction was started
+   */
+  public Span startRollback() {
+    return startEnd(OPERATION_NAME_ROLLBACK);
+  }
+
+  /**
+   * Finish the commit span and the transaction.
+   *
+   * @param commitSpan the result of {@link #startCommit()}
+   * @param error      the exception thrown by commit, {@code null} if none
+   */
+  public void finishCommit(Span commitSpan, Throwable error) {
+    finish(commitSpan, error, "commit");
+  }
+
+  /**
+   * Finish the rollback span and the transaction.
+   *
+   * @param rollbackSpan the result of {@link #startRollback()}
+   * @param error        the exception thrown by rollback, {@code null} if none
+   */
+  public void finishRollback(Span rollbackSpan, Throwable error) {
+    finish(rollbackSpan, error, "rollback");
+  }
+
+  /**
+   * Finish the transaction of a closed session, which the provider rolls back.
+   */
+  public void onClose() {
+    if (span != null) {
+      finishTransaction("close");
+    }
+  }
+
+  private Span span(Destination destination) {
+    if (span == null) {
+      Span parent = tracer.activeSpan();
+      JmsTracingSampler sampler = this.sampler.forDestination(destination);
+      if (sampler.isEnabled(destination) && sampler.isSampled(OPERATION_NAME_TRANSACTION,
+          destination, parent != null ? parent.context() : null)) {
+        span = tracer.buildSpan(sampler.operationName(OPERATION_NAME_TRANSACTION, destination))
+            .withTag(Tags.COMPONENT.getKey(), TracingMessageUtils.COMPONENT_NAME)
+            .start();
+        sampler.onStart(span, destination);
+      } else {
+        span = NoopSpan.INSTANCE;
+      }
+    }
+    return span;
+  }
+
+  private Span startEnd(String operationName) {
+    if (span == null) {
+      return null;
+    }
+    if (span instanceof NoopSpan) {
+      return NoopSpan.INSTANCE;
+    }
+    return tracer.buildSpan(operationName)
+        .asChildOf(span)
+        .withTag(Tags.COMPONENT.getKey(), TracingMessageUtils.COMPONENT_NAME)
+        .start();
+  }
+
+  private void finish(Span endSpan, Throwable error, String outcome) {
+    if (endSpan == null) {
+      return;
+    }
+    if (error != null) {
+      SpanJmsDecorator.onError(error, endSpan);
+      Tags.ERROR.set(span, Boolean.TRUE);
+    }
+    endSpan.finish();
+    finishTransaction(outcome);
+  }
+
+  private void finishTransaction(String outcome) {
+    span.setTag(SENT_TAG, sent);
+    span.setTag(RECEIVED_TAG, received);
+    span.setTag(OUTCOME_TAG, outcome);
+    span.finish();
+    span = null;
+    sent = 0;
+    received = 0;
+  }
+}
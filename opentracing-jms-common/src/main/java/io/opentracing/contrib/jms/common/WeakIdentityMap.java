@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map with weakly referenced keys compared by identity, entries disappear once the key is garbage
+ * collected. The map is split into independently locked segments so threads don't contend on a
+ * single lock.
+ */
+final class WeakIdentityMap<K, V> {
+
+  private static final int SEGMENTS = 64;
+
+  private final Segment<K, V>[] segments;
+
+  @SuppressWarnings("unchecked")
+  WeakIdentityMap() {
+    segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment<>();
+    }
+  }
+
+  void put(K key, V value) {
+    int hash = System.identityHashCode(key);
+    segmentFor(hash).put(key, hash, value);
+  }
+
+  V get(K key) {
+    int hash = System.identityHashCode(key);
+    return segmentFor(hash).get(key, hash);
+  }
+
+  int size() {
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  private Segment<K, V> segmentFor(int hash) {
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  private static final class Segment<K, V> {
+
+    private final Map<Object, V> map = new HashMap<>();
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+    /**
+     * Reused under the segment lock so lookups don't allocate a weak reference.
+     */
+    private final LookupKey lookupKey = new LookupKey();
+
+    synchronized void put(K key, int hash, V value) {
+      expunge();
+      map.put(new Key<>(key, hash, queue), value);
+    }
+
+    synchronized V get(K key, int hash) {
+      lookupKey.key = key;
+      lookupKey.hash = hash;
+      try {
+        return map.get(lookupKey);
+      } finally {
+        lookupKey.key = null;
+      }
+    }
+
+    synchronized int size() {
+      expunge();
+      return map.size();
+    }
+
+    private void expunge() {
+      Reference<? extends K> reference;
+      while ((reference = queue.poll()) != null) {
+        map.remove(reference);
+      }
+    }
+  }
+
+  private static final class Key<K> extends WeakReference<K> {
+
+    private final int hash;
+
+    Key(K key, int hash, ReferenceQueue<K> queue) {
+      super(key, queue);
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      Object key = get();
+      if (obj instanceof LookupKey) {
+        return key != null && key == ((LookupKey) obj).key;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      return key != null && key == ((Key<?>) obj).get();
+    }
+  }
+
+  private static final class LookupKey {
+
+    private Object key;
+    private int hash;
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && key == ((Key<?>) obj).get();
+    }
+  }
+}
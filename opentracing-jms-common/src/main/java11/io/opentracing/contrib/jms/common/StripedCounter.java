@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Java 11+ version of the striped counter, backed by {@link LongAdder} which only stripes once
+ * writers contend and pads its cells with {@code @Contended}.
+ */
+final class StripedCounter {
+
+  private final LongAdder adder = new LongAdder();
+
+  void add(long value) {
+    adder.add(value);
+  }
+
+  void increment() {
+    adder.increment();
+  }
+
+  long sum() {
+    return adder.sum();
+  }
+}
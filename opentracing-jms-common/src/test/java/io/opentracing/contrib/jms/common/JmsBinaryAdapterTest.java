@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.mock.MockTracer.Propagator;
+import io.opentracing.util.ThreadLocalScopeManager;
+import java.nio.ByteBuffer;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class JmsBinaryAdapterTest {
+
+  private final MockTracer mockTracer =
+      new MockTracer(new ThreadLocalScopeManager(), Propagator.BINARY);
+
+  @After
+  public void after() {
+    TracingMessageUtils.setBinaryPropagation(false);
+  }
+
+  @Test
+  public void base64RoundTrip() {
+    for (int length = 0; length < 8; length++) {
+      byte[] data = new byte[length];
+      for (int i = 0; i < length; i++) {
+        data[i] = (byte) (i * 73 - 128);
+      }
+      assertArrayEquals(data, Base64.decode(Base64.encode(data, 0, length)));
+    }
+    assertEquals("Zm9vYmFy", Base64.encode("foobar".getBytes(), 0, 6));
+    assertEquals("Zm9vYg==", Base64.encode("foob".getBytes(), 0, 4));
+  }
+
+  @Test
+  public void injectSingleProperty() throws Exception {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    JmsBinaryInjectAdapter adapter = new JmsBinaryInjectAdapter(message);
+    ByteBuffer buffer = adapter.injectionBuffer(3);
+    buffer.put(new byte[]{1, 2, 3});
+    adapter.flush();
+
+    assertEquals(1, message.getProperties().size());
+    assertTrue(JmsBinaryExtractAdapter.hasSpanContext(message));
+    ByteBuffer extracted = new JmsBinaryExtractAdapter(message).extractionBuffer();
+    assertEquals(3, extracted.remaining());
+    assertEquals(3, extracted.get(2));
+  }
+
+  @Test
+  public void noSpanContext() {
+    assertFalse(JmsBinaryExtractAdapter.hasSpanContext(new ActiveMQTextMessage()));
+    assertFalse(JmsBinaryExtractAdapter.hasSpanContext(null));
+  }
+
+  @Test
+  public void injectAndExtractWithBaggage() throws Exception {
+    TracingMessageUtils.setBinaryPropagation(true);
+    MockSpan span = mockTracer.buildSpan("test").start();
+    span.setBaggageItem("tenant", "acme");
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    TracingMessageUtils.inject(span, message, mockTracer);
+
+    assertEquals(1, message.getProperties().size());
+    MockSpan.MockContext context =
+        (MockSpan.MockContext) TracingMessageUtils.extract(message, mockTracer);
+    assertNotNull(context);
+    assertEquals(span.context().spanId(), context.spanId());
+    assertEquals("acme", context.getBaggageItem("tenant"));
+  }
+
+  @Test
+  public void corruptSpanContextIsIgnored() throws Exception {
+    TracingMessageUtils.setBinaryPropagation(true);
+    // illegal character, truncated Base64 and valid Base64 of a malformed context
+    for (String value : new String[]{"not*base64", "Q", "QUJD"}) {
+      ActiveMQTextMessage message = new ActiveMQTextMessage();
+      message.setStringProperty(JmsBinaryInjectAdapter.SPAN_CONTEXT_PROPERTY, value);
+
+      assertNull(TracingMessageUtils.extract(message, mockTracer));
+    }
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setStringProperty(JmsBinaryInjectAdapter.SPAN_CONTEXT_PROPERTY, "Q");
+    assertEquals(0, new JmsBinaryExtractAdapter(message).extractionBuffer().remaining());
+  }
+}
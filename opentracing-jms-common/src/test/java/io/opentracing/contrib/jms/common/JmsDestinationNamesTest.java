@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTempQueue;
+import org.apache.activemq.command.ActiveMQTempTopic;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.Test;
+
+public class JmsDestinationNamesTest {
+
+  @Test
+  public void queueAndTopicNames() {
+    assertEquals("orders", JmsDestinationNames.nameOf(new ActiveMQQueue("orders")));
+    assertEquals("prices", JmsDestinationNames.nameOf(new ActiveMQTopic("prices")));
+    assertNull(JmsDestinationNames.nameOf(null));
+  }
+
+  @Test
+  public void nameIsCachedPerInstance() {
+    ActiveMQQueue queue = new ActiveMQQueue("orders");
+    assertSame(JmsDestinationNames.nameOf(queue), JmsDestinationNames.nameOf(queue));
+  }
+
+  @Test
+  public void temporaryDestinationsCollapse() {
+    int size = JmsDestinationNames.size();
+    assertEquals(JmsDestinationNames.TEMPORARY_QUEUE,
+        JmsDestinationNames.nameOf(new ActiveMQTempQueue("ID:1:1:1")));
+    assertEquals(JmsDestinationNames.TEMPORARY_QUEUE,
+        JmsDestinationNames.nameOf(new ActiveMQTempQueue("ID:1:1:2")));
+    assertEquals(JmsDestinationNames.TEMPORARY_TOPIC,
+        JmsDestinationNames.nameOf(new ActiveMQTempTopic("ID:1:1:3")));
+    assertTrue(JmsDestinationNames.size() <= size);
+  }
+
+  @Test
+  public void nameIsCachedAcrossInstances() {
+    assertSame(JmsDestinationNames.nameOf(new ActiveMQQueue("orders")),
+        JmsDestinationNames.nameOf(new ActiveMQQueue("orders")));
+    int size = JmsDestinationNames.size();
+    JmsDestinationNames.nameOf(new ActiveMQQueue("orders"));
+    assertEquals(size, JmsDestinationNames.size());
+  }
+
+  @Test
+  public void queueAndTopicKeysDiffer() {
+    assertEquals("queue:orders", JmsDestinationNames.keyOf(new ActiveMQQueue("orders")));
+    assertEquals("topic:orders", JmsDestinationNames.keyOf(new ActiveMQTopic("orders")));
+    assertEquals(JmsDestinationNames.TEMPORARY_TOPIC,
+        JmsDestinationNames.keyOf(new ActiveMQTempTopic("ID:1:1:3")));
+    assertNull(JmsDestinationNames.keyOf(null));
+  }
+
+  @Test
+  public void destinationTag() {
+    MockSpan span = new MockTracer().buildSpan("send").start();
+    SpanJmsDecorator.onRequest(new ActiveMQQueue("orders"), span);
+    assertEquals("orders", span.tags().get(Tags.MESSAGE_BUS_DESTINATION.getKey()));
+    assertEquals("queue", span.tags().get(SpanJmsDecorator.DESTINATION_TYPE_TAG));
+
+    span = new MockTracer().buildSpan("send").start();
+    SpanJmsDecorator.onRequest(new ActiveMQTopic("orders"), span);
+    assertEquals("topic", span.tags().get(SpanJmsDecorator.DESTINATION_TYPE_TAG));
+  }
+}
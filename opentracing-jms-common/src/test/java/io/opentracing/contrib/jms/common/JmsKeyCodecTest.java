@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static io.opentracing.contrib.jms.common.JmsTextMapInjectAdapter.DASH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+
+public class JmsKeyCodecTest {
+
+  private final JmsKeyCodec codec = new JmsKeyCodec(2);
+
+  @Test
+  public void keysWithoutDashAreNotCached() {
+    String key = "traceid";
+    assertSame(key, codec.encode(key));
+    assertSame(key, codec.decode(key));
+    assertEquals(0, codec.size());
+    assertEquals(0, codec.getMissCount());
+  }
+
+  @Test
+  public void encodeAndDecodeAreCached() {
+    String encoded = codec.encode("uber-trace-id");
+    assertEquals("uber" + DASH + "trace" + DASH + "id", encoded);
+    assertSame(encoded, codec.encode("uber-trace-id"));
+    assertEquals("uber-trace-id", codec.decode(encoded));
+    assertEquals(1, codec.getMissCount());
+    assertEquals(2, codec.getHitCount());
+  }
+
+  @Test
+  public void bounded() {
+    codec.encode("a-1");
+    codec.encode("a-2");
+    assertEquals("a" + DASH + "3", codec.encode("a-3"));
+    assertEquals("a" + DASH + "3", codec.encode("a-3"));
+    assertEquals(2, codec.size());
+    assertEquals(4, codec.getMissCount());
+  }
+}
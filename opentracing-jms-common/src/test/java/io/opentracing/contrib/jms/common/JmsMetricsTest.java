@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.management.MBeanServer;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsMetricsTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private final ActiveMQQueue queue = new ActiveMQQueue("metrics");
+
+  @Before
+  public void before() {
+    JmsMetrics.setEnabled(true);
+  }
+
+  @After
+  public void after() {
+    JmsMetrics.unregisterMBeans();
+    JmsMetrics.reset();
+    JmsMetrics.setEnabled(false);
+    JmsMetrics.setOperationListener(null);
+  }
+
+  @Test
+  public void disabled() {
+    JmsMetrics.setEnabled(false);
+    assertEquals(0, JmsMetrics.startTime());
+    JmsMetrics.onSend(queue, null, NoopSpan.INSTANCE, JmsMetrics.startTime());
+    assertNull(JmsMetrics.destination("queue:metrics"));
+  }
+
+  @Test
+  public void send() {
+    JmsMetrics.onSend(queue, null, NoopSpan.INSTANCE, JmsMetrics.startTime());
+    long startTime = JmsMetrics.startTime();
+    JmsMetrics.onSendError(queue, startTime);
+    JmsMetrics.onSend(queue, null, NoopSpan.INSTANCE, startTime);
+
+    JmsOperationMetrics send = JmsMetrics.destination("queue:metrics").send();
+    assertEquals(2, send.count());
+    assertEquals(1, send.errors());
+    assertEquals(2, send.latencyNanos().count());
+    assertTrue(JmsMetrics.destinations().contains("queue:metrics"));
+  }
+
+  @Test
+  public void listenerIndependentOfSampling() throws JMSException {
+    TracingMessageListener listener = new TracingMessageListener(new MessageListener() {
+      @Override
+      public void onMessage(Message message) {
+        throw new IllegalStateException();
+      }
+    }, mockTracer, false, JmsTracingSampler.never());
+
+    try {
+      listener.onMessage(message());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+
+    JmsOperationMetrics metrics = JmsMetrics.destination("queue:metrics").listener();
+    assertEquals(1, metrics.count());
+    assertEquals(1, metrics.errors());
+    assertEquals(0, mockTracer.finishedSpans().size());
+  }
+
+  @Test
+  public void operationListenerWithoutMetrics() throws JMSException {
+    JmsMetrics.setEnabled(false);
+    final List<Message> received = new ArrayList<>();
+    JmsMetrics.setOperationListener(new JmsOperationListener() {
+      @Override
+      public void onSend(Destination destination, Message message, Span span, long startTime,
+          long endTime) {
+      }
+
+      @Override
+      public void onReceive(Message message, SpanContext context, long startTime,
+          long endTime) {
+        received.add(message);
+      }
+
+      @Override
+      public void onMessage(Message message, Span span, long startTime, long endTime) {
+      }
+    });
+    Message message = message();
+    JmsMetrics.onReceive(message, null, JmsMetrics.startTime());
+
+    assertEquals(Collections.singletonList(message), received);
+    assertNull(JmsMetrics.destination("queue:metrics"));
+  }
+
+  @Test
+  public void receiveWithoutMessage() {
+    JmsMetrics.onReceive(null, null, JmsMetrics.startTime());
+    assertTrue(JmsMetrics.destinations().isEmpty());
+  }
+
+  @Test
+  public void mbean() throws Exception {
+    JmsMetrics.registerMBeans();
+    JmsMetrics.onReceive(message(), null, JmsMetrics.startTime());
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertEquals(1L, server.getAttribute(JmsMetrics.objectName("queue:metrics"), "ReceiveCount"));
+    assertNotNull(
+        server.getAttribute(JmsMetrics.objectName("queue:metrics"), "ReceiveWaitP99Micros"));
+
+    JmsMetrics.unregisterMBeans();
+    assertFalse(server.isRegistered(JmsMetrics.objectName("queue:metrics")));
+  }
+
+  @Test
+  public void stripes() {
+    assertEquals(1, Stripes.of(1));
+    assertEquals(8, Stripes.of(6));
+    assertEquals(16, Stripes.of(128));
+
+    StripedCounter counter = new StripedCounter();
+    counter.increment();
+    counter.add(41);
+    assertEquals(42, counter.sum());
+  }
+
+  @Test
+  public void histogramConcurrentRecords() throws InterruptedException {
+    final JmsHistogram histogram = new JmsHistogram();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      final long base = i * 1000;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 1; j <= 1000; j++) {
+            histogram.record(base + j);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(4000, histogram.count());
+    assertEquals(4000L * 4001 / 2, histogram.sum());
+    assertEquals(4000, histogram.max());
+    assertEquals(4000, histogram.valueAtPercentile(100));
+  }
+
+  private Message message() throws JMSException {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(queue);
+    return message;
+  }
+}
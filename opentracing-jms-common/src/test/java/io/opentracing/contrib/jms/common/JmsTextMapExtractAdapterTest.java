@@ -53,6 +53,13 @@ public class JmsTextMapExtractAdapterTest {
     assertFalse(iterator.hasNext());
   }
 
+  @Test
+  public void noStringProperties() throws JMSException {
+    message.setIntProperty("count", 1);
+    assertFalse(new JmsTextMapExtractAdapter(message).iterator().hasNext());
+    assertFalse(new JmsTextMapExtractAdapter(null).iterator().hasNext());
+  }
+
   @Test
   public void oneProperty() throws JMSException {
     message.setStringProperty("key", "value");
@@ -73,4 +80,31 @@ public class JmsTextMapExtractAdapterTest {
     assertEquals("value1", entry.getValue());
   }
 
+  @Test
+  public void lazyNoProperties() throws JMSException {
+    message.setStringProperty("app", "value");
+    JmsTextMapExtractAdapter adapter =
+        new JmsTextMapExtractAdapter(message, new JmsPropagationKeys("trace-id", "span-id"));
+    assertFalse(adapter.iterator().hasNext());
+  }
+
+  @Test
+  public void lazyOnlyRequestedKeys() throws JMSException {
+    message.setStringProperty("app", "value");
+    message.setStringProperty("span" + DASH + "id", "2");
+    JmsTextMapExtractAdapter adapter =
+        new JmsTextMapExtractAdapter(message, new JmsPropagationKeys("trace-id", "span-id"));
+    Iterator<Map.Entry<String, String>> iterator = adapter.iterator();
+    Map.Entry<String, String> entry = iterator.next();
+    assertEquals("span-id", entry.getKey());
+    assertEquals("2", entry.getValue());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void lazyNullMessage() {
+    JmsTextMapExtractAdapter adapter =
+        new JmsTextMapExtractAdapter(null, new JmsPropagationKeys("trace-id"));
+    assertFalse(adapter.iterator().hasNext());
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.Span;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsTracingPolicyRegistryTest {
+
+  private static final JmsTracingPolicy EXACT =
+      JmsTracingPolicy.enabled().withOperationName("exact");
+  private static final JmsTracingPolicy PREFIX = JmsTracingPolicy.sampled(0.5);
+  private static final JmsTracingPolicy LONGER_PREFIX = JmsTracingPolicy.sampled(0.25);
+  private static final JmsTracingPolicy GLOB = JmsTracingPolicy.disabled();
+
+  private final MockTracer mockTracer = new MockTracer();
+
+  private JmsTracingPolicyRegistry registry;
+
+  @Before
+  public void before() {
+    mockTracer.reset();
+    registry = new JmsTracingPolicyRegistry()
+        .register("orders", EXACT)
+        .register("telemetry.*", PREFIX)
+        .register("telemetry.cpu.*", LONGER_PREFIX)
+        .register("*.audit?", GLOB);
+  }
+
+  @Test
+  public void matchPrecedence() {
+    assertSame(EXACT, registry.policyFor(new ActiveMQQueue("orders")));
+    assertSame(PREFIX, registry.policyFor(new ActiveMQTopic("telemetry.mem")));
+    assertSame(LONGER_PREFIX, registry.policyFor(new ActiveMQTopic("telemetry.cpu.0")));
+    assertSame(PREFIX, registry.policyFor(new ActiveMQTopic("telemetry.audit1")));
+    assertSame(GLOB, registry.policyFor(new ActiveMQQueue("billing.audit1")));
+    assertSame(JmsTracingPolicy.enabled(), registry.policyFor(new ActiveMQQueue("orders2")));
+    assertSame(JmsTracingPolicy.enabled(), registry.policyFor(new ActiveMQQueue("billing.audit")));
+    assertSame(JmsTracingPolicy.enabled(), registry.policyFor(null));
+  }
+
+  @Test
+  public void registerInvalidatesCache() {
+    ActiveMQQueue queue = new ActiveMQQueue("payments");
+    assertSame(JmsTracingPolicy.enabled(), registry.policyFor(queue));
+    registry.register("pay*", GLOB);
+    assertSame(GLOB, registry.policyFor(queue));
+  }
+
+  @Test
+  public void disabledDestinationIsNotPropagated() throws Exception {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan parent = mockTracer.buildSpan("parent").start();
+    mockTracer.scopeManager().activate(parent);
+
+    Span span = TracingMessageUtils.startAndInjectSpan(new ActiveMQQueue("billing.audit1"),
+        message, mockTracer, registry);
+    assertSame(NoopSpan.INSTANCE, span);
+    assertTrue(message.getProperties().isEmpty());
+
+    message.setJMSDestination(new ActiveMQQueue("billing.audit1"));
+    assertNull(TracingMessageUtils.startAndFinishConsumerSpan(message, mockTracer, registry));
+    assertTrue(mockTracer.finishedSpans().isEmpty());
+  }
+
+  @Test
+  public void operationNameAndTags() throws Exception {
+    registry.register("orders", EXACT.withTag("team", "checkout"));
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(new ActiveMQQueue("orders"));
+
+    MockSpan span = (MockSpan) TracingMessageUtils.startListenerSpan(message, mockTracer, registry);
+    assertEquals("exact", span.operationName());
+    assertEquals("checkout", span.tags().get("team"));
+  }
+
+  @Test
+  public void policyLookedUpOncePerOperation() throws Exception {
+    final AtomicInteger lookups = new AtomicInteger();
+    JmsTracingPolicyRegistry counting = new JmsTracingPolicyRegistry() {
+      @Override
+      public JmsTracingPolicy policyFor(Destination destination) {
+        lookups.incrementAndGet();
+        return super.policyFor(destination);
+      }
+    }.register("orders", EXACT.withTag("team", "checkout"));
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(new ActiveMQQueue("orders"));
+
+    TracingMessageUtils.startListenerSpan(message, mockTracer, counting).finish();
+    assertEquals(1, lookups.get());
+    TracingMessageUtils.startAndInjectSpan(new ActiveMQQueue("orders"), message, mockTracer,
+        counting).finish();
+    assertEquals(2, lookups.get());
+    assertEquals("exact", mockTracer.finishedSpans().get(1).operationName());
+  }
+
+  @Test
+  public void sampleRate() {
+    JmsTracingPolicyRegistry never = new JmsTracingPolicyRegistry(JmsTracingPolicy.sampled(0));
+    assertTrue(never.isEnabled(new ActiveMQQueue("queue")));
+    assertFalse(never.isSampled(TracingMessageUtils.OPERATION_NAME_SEND,
+        new ActiveMQQueue("queue"), null));
+    assertTrue(registry.isSampled(TracingMessageUtils.OPERATION_NAME_SEND,
+        new ActiveMQQueue("orders"), null));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import javax.jms.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTempQueue;
+import org.junit.Test;
+
+public class JmsTracingSamplerTest {
+
+  private static final String OPERATION = TracingMessageUtils.OPERATION_NAME_SEND;
+
+  private final Destination queue = new ActiveMQQueue("queue");
+
+  @Test
+  public void alwaysAndNever() {
+    assertTrue(JmsTracingSampler.always().isSampled(OPERATION, queue, null));
+    assertFalse(JmsTracingSampler.never().isSampled(OPERATION, queue, null));
+  }
+
+  @Test
+  public void parentSampled() {
+    SpanContext parent = new MockTracer().buildSpan("parent").start().context();
+    assertTrue(JmsTracingSampler.parentSampled().isSampled(OPERATION, queue, parent));
+    assertFalse(JmsTracingSampler.parentSampled().isSampled(OPERATION, queue, null));
+  }
+
+  @Test
+  public void probabilistic() {
+    assertTrue(JmsTracingSampler.probabilistic(1).isSampled(OPERATION, queue, null));
+    assertFalse(JmsTracingSampler.probabilistic(0).isSampled(OPERATION, queue, null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void probabilisticOutOfRange() {
+    JmsTracingSampler.probabilistic(1.5);
+  }
+
+  @Test
+  public void rateLimitedPerDestination() {
+    JmsTracingSampler sampler = JmsTracingSampler.rateLimited(1);
+    Destination other = new ActiveMQQueue("other");
+
+    assertTrue(sampler.isSampled(OPERATION, queue, null));
+    assertFalse(sampler.isSampled(OPERATION, queue, null));
+    assertTrue(sampler.isSampled(OPERATION, other, null));
+    assertFalse(sampler.isSampled(OPERATION, other, null));
+  }
+
+  @Test
+  public void rateLimitedEvictsIdleDestinations() {
+    JmsTracingSampler.RateLimitingSampler sampler = new JmsTracingSampler.RateLimitingSampler(1);
+    long now = System.nanoTime();
+    for (int i = 0; i < JmsTracingSampler.RateLimitingSampler.MAX_DESTINATIONS; i++) {
+      sampler.limiterFor(new ActiveMQQueue("queue" + i), now).tryAcquire(now);
+    }
+    assertEquals(JmsTracingSampler.RateLimitingSampler.MAX_DESTINATIONS, sampler.size());
+    JmsTracingSampler.RateLimiter overflow = sampler.limiterFor(new ActiveMQQueue("more"), now);
+    assertSame(overflow, sampler.limiterFor(new ActiveMQQueue("other"), now));
+
+    long later = now + 2000000000L;
+    assertNotSame(overflow, sampler.limiterFor(new ActiveMQQueue("more"), later));
+    assertEquals(1, sampler.size());
+  }
+
+  @Test
+  public void rateLimitedTemporaryQueuesShareLimiter() {
+    JmsTracingSampler.RateLimitingSampler sampler = new JmsTracingSampler.RateLimitingSampler(1);
+    long now = System.nanoTime();
+    assertSame(sampler.limiterFor(new ActiveMQTempQueue("ID:1:1"), now),
+        sampler.limiterFor(new ActiveMQTempQueue("ID:2:1"), now));
+    assertEquals(1, sampler.size());
+  }
+
+  @Test
+  public void rateLimiterRefills() {
+    JmsTracingSampler.RateLimiter limiter = new JmsTracingSampler.RateLimiter(1);
+    long now = System.nanoTime();
+    assertTrue(limiter.tryAcquire(now));
+    assertFalse(limiter.tryAcquire(now));
+    assertTrue(limiter.tryAcquire(now + 1000000000L));
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockTracer;
+import javax.jms.BytesMessage;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQMapMessage;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQObjectMessage;
+import org.apache.activemq.command.ActiveMQStreamMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.Test;
+
+
+public class SpanContextMessageTest {
+
+  private final SpanContext spanContext = new MockTracer().buildSpan("test").start().context();
+
+  @Test
+  public void wrapNull() {
+    assertNull(SpanContextMessage.wrap(null, spanContext));
+  }
+
+  @Test
+  public void wrapKeepsMessageType() {
+    assertTrue(SpanContextMessage.wrap(new ActiveMQTextMessage(), spanContext)
+        instanceof TextMessage);
+    assertTrue(SpanContextMessage.wrap(new ActiveMQBytesMessage(), spanContext)
+        instanceof BytesMessage);
+    assertTrue(SpanContextMessage.wrap(new ActiveMQMapMessage(), spanContext)
+        instanceof MapMessage);
+    assertTrue(SpanContextMessage.wrap(new ActiveMQObjectMessage(), spanContext)
+        instanceof ObjectMessage);
+    assertTrue(SpanContextMessage.wrap(new ActiveMQStreamMessage(), spanContext)
+        instanceof StreamMessage);
+    assertSame(SpanContextMessage.class,
+        SpanContextMessage.wrap(new ActiveMQMessage(), spanContext).getClass());
+  }
+
+  @Test
+  public void delegates() throws Exception {
+    ActiveMQTextMessage original = new ActiveMQTextMessage();
+    original.setText("text");
+    original.setStringProperty("key", "value");
+
+    Message message = SpanContextMessage.wrap(original, spanContext);
+    assertSame(spanContext, ((SpanContextContainer) message).getSpanContext());
+    assertSame(original, ((SpanContextMessage) message).getMessage());
+    assertEquals("text", ((TextMessage) message).getText());
+    assertEquals("value", message.getStringProperty("key"));
+    assertEquals(original.hashCode(), message.hashCode());
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.tag.Tags;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpanJmsDecoratorTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+
+  @Before
+  public void before() {
+    SpanJmsDecorator.setDwellTimeEnabled(true);
+  }
+
+  @After
+  public void after() {
+    SpanJmsDecorator.setMaxStackDepth(Integer.MAX_VALUE);
+    SpanJmsDecorator.setErrorDedupWindow(0, TimeUnit.SECONDS);
+    SpanJmsDecorator.setClockSkewOffset(0, TimeUnit.MILLISECONDS);
+    SpanJmsDecorator.setDwellTimeEnabled(false);
+    SpanJmsDecorator.setDeliveryTimeReader(null);
+    JmsDwellTimes.reset();
+  }
+
+  @Test
+  public void onError() {
+    JMSException exception = new JMSException("broker down");
+    Map<String, ?> fields = errorLog(exception);
+    assertEquals(JMSException.class.getName(), fields.get("error.kind"));
+    assertEquals(exception, fields.get("error.object"));
+    assertTrue(((String) fields.get("stack")).contains("at "));
+  }
+
+  @Test
+  public void maxStackDepth() {
+    SpanJmsDecorator.setMaxStackDepth(2);
+    Exception exception = new IllegalStateException("outer", new JMSException("inner"));
+    String stack = (String) errorLog(exception).get("stack");
+    assertTrue(stack.startsWith(IllegalStateException.class.getName() + ": outer"));
+    assertTrue(stack.contains("Caused by: " + JMSException.class.getName() + ": inner"));
+    assertEquals(4, stack.split("\tat ").length - 1);
+  }
+
+  @Test
+  public void noStack() {
+    SpanJmsDecorator.setMaxStackDepth(0);
+    Map<String, ?> fields = errorLog(new JMSException("broker down"));
+    assertFalse(fields.containsKey("stack"));
+    assertFalse(fields.containsKey("error.object"));
+    assertEquals(JMSException.class.getName(), fields.get("error.kind"));
+  }
+
+  @Test
+  public void dedupWindow() {
+    SpanJmsDecorator.setErrorDedupWindow(1, TimeUnit.HOURS);
+    Map<String, ?> first = errorLog(newException());
+    Map<String, ?> repeated = errorLog(newException());
+
+    assertTrue(first.containsKey("stack"));
+    assertFalse(repeated.containsKey("stack"));
+    assertFalse(repeated.containsKey("error.object"));
+    assertEquals(JMSException.class.getName(), repeated.get("error.kind"));
+  }
+
+  @Test
+  public void suppressedCountOfPreviousWindow() {
+    ErrorSignatures signatures = new ErrorSignatures();
+    JMSException exception = newException();
+    assertEquals(0, signatures.firstInWindow(exception, 0, 10));
+    assertEquals(-1, signatures.firstInWindow(exception, 5, 10));
+    assertEquals(-1, signatures.firstInWindow(newException(), 6, 10));
+    assertEquals(2, signatures.firstInWindow(exception, 10, 10));
+  }
+
+  @Test
+  public void signatureWithoutMessageUsesTopFrame() {
+    ErrorSignatures signatures = new ErrorSignatures();
+    assertEquals(0, signatures.firstInWindow(new IllegalStateException(), 0, 10));
+    assertEquals(0, signatures.firstInWindow(new IllegalStateException(), 0, 10));
+    assertEquals(2, signatures.size());
+  }
+
+  @Test
+  public void signatureIgnoresIds() {
+    ErrorSignatures signatures = new ErrorSignatures();
+    assertEquals(0, signatures.firstInWindow(
+        new JMSException("Send of ID:broker-4711-1:1:1 failed"), 0, 10));
+    assertEquals(-1, signatures.firstInWindow(
+        new JMSException("Send of ID:broker-4711-2:7:3 failed"), 1, 10));
+    assertEquals(0, signatures.firstInWindow(new JMSException("Broker down"), 2, 10));
+    assertEquals("ID:host-#-#:#", ErrorSignatures.normalize("ID:host-4711-1:1"));
+  }
+
+  @Test
+  public void oldestSignaturesEvictedInBatch() {
+    ErrorSignatures signatures = new ErrorSignatures();
+    for (int i = 0; i < ErrorSignatures.MAX_SIGNATURES; i++) {
+      signatures.firstInWindow(new JMSException("error " + letters(i)), i, 1000);
+    }
+
+    // no window passed, the oldest are evicted down to EVICT_TO
+    signatures.firstInWindow(new JMSException("new"), 500, 1000);
+    assertEquals(ErrorSignatures.EVICT_TO + 1, signatures.size());
+    int oldest = ErrorSignatures.MAX_SIGNATURES - ErrorSignatures.EVICT_TO;
+    assertEquals(0, signatures.firstInWindow(new JMSException("error " + letters(0)), 501, 1000));
+    assertEquals(-1,
+        signatures.firstInWindow(new JMSException("error " + letters(oldest)), 502, 1000));
+  }
+
+  @Test
+  public void passedSignaturesEvicted() {
+    ErrorSignatures signatures = new ErrorSignatures();
+    for (int i = 0; i < ErrorSignatures.MAX_SIGNATURES; i++) {
+      signatures.firstInWindow(new JMSException("error " + letters(i)), i, 1000);
+    }
+    signatures.firstInWindow(new JMSException("new"), 10_000, 1000);
+    assertEquals(1, signatures.size());
+  }
+
+  @Test
+  public void noopSpanIsNotDecorated() {
+    SpanJmsDecorator.onError(new JMSException("broker down"), NoopSpan.INSTANCE);
+  }
+
+  @Test
+  public void dwellTime() throws JMSException {
+    MockSpan span = receive(System.currentTimeMillis() - 60_000);
+    long dwellTime = (Long) span.tags().get(SpanJmsDecorator.DWELL_TIME_TAG);
+    assertTrue(dwellTime >= 60_000 && dwellTime < 70_000);
+
+    JmsHistogram histogram = JmsDwellTimes.histogram("queue:dwell");
+    assertNotNull(histogram);
+    assertEquals(1, histogram.count());
+    assertEquals(dwellTime, histogram.max());
+  }
+
+  @Test
+  public void dwellTimeWithClockSkewOffset() throws JMSException {
+    SpanJmsDecorator.setClockSkewOffset(-1, TimeUnit.HOURS);
+    MockSpan span = receive(System.currentTimeMillis() - 60_000);
+    assertEquals(0L, span.tags().get(SpanJmsDecorator.DWELL_TIME_TAG));
+  }
+
+  @Test
+  public void noDwellTimeWithoutTimestamp() throws JMSException {
+    MockSpan span = receive(0);
+    assertFalse(span.tags().containsKey(SpanJmsDecorator.DWELL_TIME_TAG));
+    assertNull(JmsDwellTimes.histogram("queue:dwell"));
+  }
+
+  @Test
+  public void dwellTimeFromDeliveryTime() throws JMSException {
+    final long deliveryTime = System.currentTimeMillis() + 60_000;
+    SpanJmsDecorator.setDeliveryTimeReader(new JmsDeliveryTimeReader() {
+      @Override
+      public long deliveryTime(Message message) {
+        return deliveryTime;
+      }
+    });
+    MockSpan span = receive(System.currentTimeMillis() - 60_000);
+    assertEquals(0L, span.tags().get(SpanJmsDecorator.DWELL_TIME_TAG));
+  }
+
+  @Test
+  public void dwellTimeDisabled() throws JMSException {
+    SpanJmsDecorator.setDwellTimeEnabled(false);
+    MockSpan span = receive(System.currentTimeMillis());
+    assertFalse(span.tags().containsKey(SpanJmsDecorator.DWELL_TIME_TAG));
+  }
+
+  @Test
+  public void histogramPercentiles() {
+    JmsHistogram histogram = new JmsHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100, histogram.count());
+    assertEquals(5050, histogram.sum());
+    assertEquals(100, histogram.max());
+    assertEquals(63, histogram.valueAtPercentile(50));
+    assertEquals(100, histogram.valueAtPercentile(99));
+    assertEquals(1, histogram.valueAtPercentile(0));
+    assertEquals(1, histogram.bucketCount(JmsHistogram.bucketOf(1)));
+  }
+
+  private MockSpan receive(long timestamp) throws JMSException {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(new ActiveMQQueue("dwell"));
+    message.setJMSTimestamp(timestamp);
+    MockSpan span = mockTracer.buildSpan("receive").start();
+    SpanJmsDecorator.onResponse(message, span);
+    return span;
+  }
+
+  /**
+   * Digit free message part, as words with digits are ignored by the error signature.
+   */
+  private static String letters(int i) {
+    return "" + (char) ('a' + i / 26 / 26) + (char) ('a' + i / 26 % 26) + (char) ('a' + i % 26);
+  }
+
+  private JMSException newException() {
+    return new JMSException("broker down");
+  }
+
+  private Map<String, ?> errorLog(Exception exception) {
+    MockSpan span = mockTracer.buildSpan("send").start();
+    SpanJmsDecorator.onError(exception, span);
+    assertEquals(Boolean.TRUE, span.tags().get(Tags.ERROR.getKey()));
+    assertEquals(1, span.logEntries().size());
+    Map<String, ?> fields = span.logEntries().get(0).fields();
+    assertNull(fields.get("error"));
+    return fields;
+  }
+}
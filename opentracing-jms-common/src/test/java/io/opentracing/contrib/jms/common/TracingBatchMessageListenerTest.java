@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.opentracing.References;
+import io.opentracing.SpanContext;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.jms.Message;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TracingBatchMessageListenerTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private final List<MockSpan> activeSpans = new ArrayList<>();
+  private final BatchMessageListener batchMessageListener = new BatchMessageListener() {
+    @Override
+    public void onMessages(List<Message> messages) {
+      activeSpans.add((MockSpan) mockTracer.activeSpan());
+    }
+  };
+
+  @Before
+  public void before() {
+    mockTracer.reset();
+  }
+
+  @After
+  public void after() {
+    SpanJmsDecorator.setDwellTimeEnabled(false);
+    JmsMetrics.reset();
+    JmsMetrics.setEnabled(false);
+  }
+
+  @Test
+  public void oneSpanFollowingFromEveryMessage() throws Exception {
+    MockSpan first = mockTracer.buildSpan("send").start();
+    MockSpan second = mockTracer.buildSpan("send").start();
+    List<Message> messages = Arrays.<Message>asList(message(first), message(null), message(second));
+
+    new TracingBatchMessageListener(batchMessageListener, mockTracer).onMessages(messages);
+
+    assertEquals(1, mockTracer.finishedSpans().size());
+    MockSpan span = mockTracer.finishedSpans().get(0);
+    assertSame(span, activeSpans.get(0));
+    assertEquals(TracingMessageUtils.OPERATION_NAME_ON_BATCH, span.operationName());
+    assertEquals(Tags.SPAN_KIND_CONSUMER, span.tags().get(Tags.SPAN_KIND.getKey()));
+    assertEquals(3, span.tags().get(TracingMessageUtils.BATCH_SIZE_TAG));
+    assertEquals(TracingMessageUtils.COMPONENT_NAME, span.tags().get(Tags.COMPONENT.getKey()));
+    assertNull(span.tags().get(Tags.MESSAGE_BUS_DESTINATION.getKey()));
+
+    Set<Long> referenced = new HashSet<>();
+    for (MockSpan.Reference reference : span.references()) {
+      assertEquals(References.FOLLOWS_FROM, reference.getReferenceType());
+      referenced.add(reference.getContext().spanId());
+    }
+    assertEquals(new HashSet<>(Arrays.asList(first.context().spanId(),
+        second.context().spanId())), referenced);
+    assertNull(mockTracer.activeSpan());
+  }
+
+  @Test
+  public void notSampled() throws Exception {
+    new TracingBatchMessageListener(batchMessageListener, mockTracer, false,
+        JmsTracingSampler.never()).onMessages(Arrays.<Message>asList(message(null)));
+
+    assertEquals(1, activeSpans.size());
+    assertNull(activeSpans.get(0));
+    assertTrue(mockTracer.finishedSpans().isEmpty());
+  }
+
+  @Test
+  public void notSampledPropagatesFirstContext() throws Exception {
+    MockSpan first = mockTracer.buildSpan("send").start();
+    final List<SpanContext> activeContexts = new ArrayList<>();
+    BatchMessageListener listener = new BatchMessageListener() {
+      @Override
+      public void onMessages(List<Message> messages) {
+        activeContexts.add(mockTracer.activeSpan().context());
+      }
+    };
+
+    new TracingBatchMessageListener(listener, mockTracer, false, JmsTracingSampler.never())
+        .onMessages(Arrays.<Message>asList(message(first), message(null)));
+
+    MockSpan.MockContext context = (MockSpan.MockContext) activeContexts.get(0);
+    assertEquals(first.context().spanId(), context.spanId());
+    assertTrue(mockTracer.finishedSpans().isEmpty());
+    assertNull(mockTracer.activeSpan());
+  }
+
+  @Test
+  public void errorTagged() throws Exception {
+    BatchMessageListener failing = new BatchMessageListener() {
+      @Override
+      public void onMessages(List<Message> messages) {
+        throw new IllegalStateException("failed");
+      }
+    };
+    try {
+      new TracingBatchMessageListener(failing, mockTracer)
+          .onMessages(Arrays.<Message>asList(message(null)));
+      fail();
+    } catch (IllegalStateException expected) {
+      // rethrown
+    }
+
+    MockSpan span = mockTracer.finishedSpans().get(0);
+    assertEquals(Boolean.TRUE, span.tags().get(Tags.ERROR.getKey()));
+  }
+
+  @Test
+  public void dwellTimeOfFirstMessage() throws Exception {
+    SpanJmsDecorator.setDwellTimeEnabled(true);
+    Message first = message(null);
+    first.setJMSTimestamp(System.currentTimeMillis() - 5000);
+    Message second = message(null);
+    second.setJMSTimestamp(System.currentTimeMillis());
+
+    new TracingBatchMessageListener(batchMessageListener, mockTracer)
+        .onMessages(Arrays.asList(first, second));
+
+    Number dwellTime = (Number) mockTracer.finishedSpans().get(0).tags()
+        .get(SpanJmsDecorator.DWELL_TIME_TAG);
+    assertTrue(dwellTime.longValue() >= 5000);
+  }
+
+  @Test
+  public void metricsRecordedOncePerBatch() throws Exception {
+    JmsMetrics.setEnabled(true);
+    BatchMessageListener failing = new BatchMessageListener() {
+      @Override
+      public void onMessages(List<Message> messages) {
+        throw new IllegalStateException("failed");
+      }
+    };
+    new TracingBatchMessageListener(batchMessageListener, mockTracer)
+        .onMessages(Arrays.asList(message(null), message(null)));
+    try {
+      new TracingBatchMessageListener(failing, mockTracer, false, JmsTracingSampler.never())
+          .onMessages(Arrays.asList(message(null), message(null)));
+      fail();
+    } catch (IllegalStateException expected) {
+      // rethrown
+    }
+
+    JmsOperationMetrics metrics = JmsMetrics.destination("queue:batch").listener();
+    assertEquals(2, metrics.count());
+    assertEquals(1, metrics.errors());
+  }
+
+  private Message message(MockSpan span) throws Exception {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(new ActiveMQQueue("batch"));
+    if (span != null) {
+      TracingMessageUtils.inject(span, message, mockTracer);
+    }
+    return message;
+  }
+}
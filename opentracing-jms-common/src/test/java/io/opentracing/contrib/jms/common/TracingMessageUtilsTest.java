@@ -17,12 +17,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.propagation.Format;
 import io.opentracing.tag.Tags;
 import java.io.IOException;
 import javax.jms.Destination;
@@ -69,6 +73,17 @@ public class TracingMessageUtilsTest {
     assertEquals(span.context().spanId(), context.spanId());
   }
 
+  @Test
+  public void extractContextFromMessageWithPropagationKeys() {
+    MockSpan span = mockTracer.buildSpan("test").start();
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    TracingMessageUtils.inject(span, message, mockTracer);
+    MockSpan.MockContext context = (MockSpan.MockContext) TracingMessageUtils
+        .extract(message, mockTracer, new JmsPropagationKeys("traceid", "spanid"));
+    assertNotNull(context);
+    assertEquals(span.context().spanId(), context.spanId());
+  }
+
   @Test
   public void startAndFinishConsumerSpan() {
     MockSpan span = mockTracer.buildSpan("test").start();
@@ -115,6 +130,30 @@ public class TracingMessageUtilsTest {
     assertEquals(span.context().spanId(), injected.parentId());
   }
 
+  @Test
+  public void startAndInjectSpanIgnoresMessageContextByDefault() {
+    Destination destination = new ActiveMQQueue("queue");
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan previous = mockTracer.buildSpan("previous").start();
+    TracingMessageUtils.inject(previous, message, mockTracer);
+
+    MockSpan injected =
+        (MockSpan) TracingMessageUtils.startAndInjectSpan(destination, message, mockTracer);
+    assertEquals(0, injected.parentId());
+  }
+
+  @Test
+  public void startAndInjectSpanExtractFromMessage() {
+    Destination destination = new ActiveMQQueue("queue");
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan previous = mockTracer.buildSpan("previous").start();
+    TracingMessageUtils.inject(previous, message, mockTracer);
+
+    MockSpan injected =
+        (MockSpan) TracingMessageUtils.startAndInjectSpan(destination, message, mockTracer, true);
+    assertEquals(previous.context().spanId(), injected.parentId());
+  }
+
   @Test
   public void startListenerSpanWithoutParent() {
     ActiveMQTextMessage message = new ActiveMQTextMessage();
@@ -141,4 +180,105 @@ public class TracingMessageUtilsTest {
     assertEquals(span.parentId(), parent.context().spanId());
   }
 
+  @Test
+  public void startAndInjectSpanNotSampledPropagatesParent() throws Exception {
+    Destination destination = new ActiveMQQueue("queue");
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan parent = mockTracer.buildSpan("parent").start();
+    mockTracer.scopeManager().activate(parent);
+
+    Span span = TracingMessageUtils
+        .startAndInjectSpan(destination, message, mockTracer, JmsTracingSampler.never());
+    assertSame(NoopSpan.INSTANCE, span);
+
+    MockSpan.MockContext extracted = (MockSpan.MockContext) mockTracer
+        .extract(Format.Builtin.TEXT_MAP, new JmsTextMapExtractAdapter(message));
+    assertEquals(parent.context().spanId(), extracted.spanId());
+  }
+
+  @Test
+  public void startAndInjectSpanNotSampledWithoutParent() throws Exception {
+    Destination destination = new ActiveMQQueue("queue");
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+
+    Span span = TracingMessageUtils
+        .startAndInjectSpan(destination, message, mockTracer, JmsTracingSampler.parentSampled());
+    assertSame(NoopSpan.INSTANCE, span);
+    assertTrue(message.getProperties().isEmpty());
+  }
+
+  @Test
+  public void startAndFinishConsumerSpanNotSampled() {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan previous = mockTracer.buildSpan("previous").start();
+    TracingMessageUtils.inject(previous, message, mockTracer);
+
+    SpanContext context = TracingMessageUtils
+        .startAndFinishConsumerSpan(message, mockTracer, JmsTracingSampler.never());
+    assertEquals(previous.context().spanId(), ((MockSpan.MockContext) context).spanId());
+    assertTrue(mockTracer.finishedSpans().isEmpty());
+  }
+
+  @Test
+  public void startListenerSpanNotSampled() {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    Span span = TracingMessageUtils
+        .startListenerSpan(message, mockTracer, JmsTracingSampler.parentSampled());
+    assertSame(NoopSpan.INSTANCE, span);
+  }
+
+  @Test
+  public void startListenerSpanNotSampledPropagatesParent() {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    MockSpan upstream = mockTracer.buildSpan("send").start();
+    TracingMessageUtils.inject(upstream, message, mockTracer);
+
+    Span span = TracingMessageUtils
+        .startListenerSpan(message, mockTracer, JmsTracingSampler.never());
+    assertTrue(span instanceof NoopSpan);
+    try (Scope ignored = mockTracer.activateSpan(span)) {
+      MockSpan send = (MockSpan) TracingMessageUtils
+          .startAndInjectSpan(new ActiveMQQueue("downstream"), new ActiveMQTextMessage(),
+              mockTracer);
+      assertEquals(upstream.context().traceId(), send.context().traceId());
+      assertEquals(upstream.context().spanId(), send.parentId());
+    }
+    assertTrue(mockTracer.finishedSpans().isEmpty());
+  }
+
+  @Test
+  public void spanContextOfReceivedMessage() throws Exception {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSMessageID("ID:1");
+    ActiveMQTextMessage equalMessage = new ActiveMQTextMessage();
+    equalMessage.setJMSMessageID("ID:1");
+    assertNull(TracingMessageUtils.spanContextOf(message));
+
+    TracingMessageUtils.setRecordSpanContexts(true);
+    try {
+      SpanContext context = TracingMessageUtils.startAndFinishConsumerSpan(message, mockTracer);
+      assertSame(context, TracingMessageUtils.spanContextOf(message));
+      assertNull(TracingMessageUtils.spanContextOf(equalMessage));
+
+      Span span = TracingMessageUtils.startListenerSpan(equalMessage, mockTracer);
+      assertSame(span.context(), TracingMessageUtils.spanContextOf(equalMessage));
+    } finally {
+      TracingMessageUtils.setRecordSpanContexts(false);
+    }
+  }
+
+  @Test
+  public void spanContextNotRecordedByDefault() {
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    assertNotNull(TracingMessageUtils.startAndFinishConsumerSpan(message, mockTracer));
+    assertNull(TracingMessageUtils.spanContextOf(message));
+  }
+
+  @Test
+  public void spanContextOfWrappedMessage() {
+    SpanContext context = mockTracer.buildSpan("test").start().context();
+    assertSame(context, TracingMessageUtils
+        .spanContextOf(SpanContextMessage.wrap(new ActiveMQTextMessage(), context)));
+  }
+
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.jfr;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.JmsOperationListener;
+import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+
+/**
+ * Emits the JDK Flight Recorder events {@code jms.Send}, {@code jms.Receive} and
+ * {@code jms.OnMessage} for the operations of the tracing wrappers, whether or not the span is
+ * sampled. Events are only filled in while a recording has them enabled.
+ * <p>
+ * Events are committed once the operation has completed, with its duration in the
+ * {@code operationDuration} field.
+ * <pre>{@code
+ * JfrOperationListener.install();
+ * }</pre>
+ */
+public final class JfrOperationListener implements JmsOperationListener {
+
+  /**
+   * Register a {@code JfrOperationListener} with {@link JmsMetrics}.
+   */
+  public static void install() {
+    JmsMetrics.setOperationListener(new JfrOperationListener());
+  }
+
+  @Override
+  public void onSend(Destination destination, Message message, Span span, long startTime,
+      long endTime) {
+    JmsSendEvent event = new JmsSendEvent();
+    if (event.isEnabled()) {
+      commit(event, TracingMessageUtils.destinationName(destination), message,
+          span != null ? span.context() : null, endTime - startTime);
+    }
+  }
+
+  @Override
+  public void onReceive(Message message, SpanContext context, long startTime, long endTime) {
+    JmsReceiveEvent event = new JmsReceiveEvent();
+    if (event.isEnabled()) {
+      commit(event, destinationName(message), message, context, endTime - startTime);
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, Span span, long startTime, long endTime) {
+    JmsOnMessageEvent event = new JmsOnMessageEvent();
+    if (event.isEnabled()) {
+      // if not sampled, the span carries the upstream context if any
+      commit(event, destinationName(message), message, span != null ? span.context() : null,
+          endTime - startTime);
+    }
+  }
+
+  private static void commit(JmsEvent event, String destination, Message message,
+      SpanContext context, long duration) {
+    event.destination = destination;
+    event.messageType = messageType(message);
+    event.sizeHint = sizeHint(message);
+    event.traceId = context != null && !isEmpty(context.toTraceId()) ? context.toTraceId() : null;
+    event.operationDuration = duration;
+    event.commit();
+  }
+
+  static String messageType(Message message) {
+    if (message instanceof TextMessage) {
+      return "TextMessage";
+    }
+    if (message instanceof BytesMessage) {
+      return "BytesMessage";
+    }
+    if (message instanceof MapMessage) {
+      return "MapMessage";
+    }
+    if (message instanceof ObjectMessage) {
+      return "ObjectMessage";
+    }
+    if (message instanceof StreamMessage) {
+      return "StreamMessage";
+    }
+    return message != null ? "Message" : null;
+  }
+
+  /**
+   * @return the text length or the length of a readable bytes message, otherwise {@code -1}
+   */
+  static long sizeHint(Message message) {
+    try {
+      if (message instanceof TextMessage) {
+        String text = ((TextMessage) message).getText();
+        return text != null ? text.length() : 0;
+      }
+      if (message instanceof BytesMessage) {
+        return ((BytesMessage) message).getBodyLength();
+      }
+    } catch (JMSException | RuntimeException e) {
+      // e.g. a bytes message in write-only mode
+    }
+    return -1;
+  }
+
+  private static String destinationName(Message message) {
+    try {
+      return TracingMessageUtils.destinationName(message.getJMSDestination());
+    } catch (JMSException e) {
+      return null;
+    }
+  }
+
+  private static boolean isEmpty(String value) {
+    return value == null || value.isEmpty();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Fields common to all JMS events. Events are committed when the operation has completed, its
+ * duration is in {@link #operationDuration}, as the built-in {@code duration} field is reserved
+ * and the listener is not called at the start of the operation.
+ */
+@Category("JMS")
+@StackTrace(false)
+abstract class JmsEvent extends Event {
+
+  @Label("Destination")
+  String destination;
+
+  @Label("Message Type")
+  String messageType;
+
+  @Label("Size Hint")
+  @Description("Text length in characters or body length in bytes, -1 if not known")
+  long sizeHint;
+
+  @Label("Trace Id")
+  String traceId;
+
+  @Label("Operation Duration")
+  @Description("Duration of the send, receive or listener invocation")
+  @Timespan(Timespan.NANOSECONDS)
+  long operationDuration;
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.TracingMessageConsumer;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JfrOperationListenerTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private final ActiveMQQueue queue = new ActiveMQQueue("jfr");
+  private Recording recording;
+
+  @Before
+  public void before() {
+    JfrOperationListener.install();
+    recording = new Recording();
+    recording.enable("jms.Send");
+    recording.enable("jms.Receive");
+    recording.enable("jms.OnMessage");
+    recording.start();
+  }
+
+  @After
+  public void after() {
+    JmsMetrics.setOperationListener(null);
+    recording.close();
+  }
+
+  @Test
+  public void send() throws Exception {
+    MockSpan span = mockTracer.buildSpan("send").start();
+    ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setText("Hello world");
+    new JfrOperationListener().onSend(queue, message, span, 100, 350);
+
+    RecordedEvent event = single("jms.Send");
+    assertEquals("jfr", event.getString("destination"));
+    assertEquals("TextMessage", event.getString("messageType"));
+    assertEquals(11, event.getLong("sizeHint"));
+    assertEquals(span.context().toTraceId(), event.getString("traceId"));
+    assertEquals(250, event.getDuration("operationDuration").toNanos());
+  }
+
+  @Test
+  public void sendNotSampled() throws Exception {
+    new JfrOperationListener().onSend(queue, new ActiveMQBytesMessage(), NoopSpan.INSTANCE, 0, 1);
+
+    RecordedEvent event = single("jms.Send");
+    assertEquals("BytesMessage", event.getString("messageType"));
+    assertEquals(-1, event.getLong("sizeHint"));
+    assertNull(event.getString("traceId"));
+  }
+
+  @Test
+  public void receive() throws Exception {
+    final ActiveMQTextMessage message = new ActiveMQTextMessage();
+    message.setJMSDestination(queue);
+    TracingMessageConsumer consumer = new TracingMessageConsumer(new StubConsumer(message),
+        mockTracer);
+    consumer.receiveNoWait();
+
+    RecordedEvent event = single("jms.Receive");
+    assertEquals("jfr", event.getString("destination"));
+    assertEquals(mockTracer.finishedSpans().get(0).context().toTraceId(),
+        event.getString("traceId"));
+  }
+
+  private RecordedEvent single(String name) throws Exception {
+    recording.stop();
+    Path file = Files.createTempFile("jms", ".jfr");
+    try {
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals(1, events.size());
+      assertEquals(name, events.get(0).getEventType().getName());
+      return events.get(0);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static class StubConsumer implements MessageConsumer {
+
+    private final Message message;
+
+    StubConsumer(Message message) {
+      this.message = message;
+    }
+
+    @Override
+    public String getMessageSelector() {
+      return null;
+    }
+
+    @Override
+    public MessageListener getMessageListener() {
+      return null;
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) {
+    }
+
+    @Override
+    public Message receive() {
+      return message;
+    }
+
+    @Override
+    public Message receive(long timeout) {
+      return message;
+    }
+
+    @Override
+    public Message receiveNoWait() {
+      return message;
+    }
+
+    @Override
+    public void close() throws JMSException {
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.spring;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * Connection factory delegating to the {@link ConnectionFactory} bean, looked up on first use so
+ * that it doesn't need to exist when the {@code JmsTemplate} is created. The bean is resolved
+ * without a lock, concurrent first uses may each look it up, later uses only read a volatile field.
+ */
+final class LazyConnectionFactory implements ConnectionFactory {
+
+  private final BeanFactory beanFactory;
+  private volatile ConnectionFactory target;
+
+  LazyConnectionFactory(BeanFactory beanFactory) {
+    this.beanFactory = beanFactory;
+  }
+
+  ConnectionFactory target() {
+    ConnectionFactory connectionFactory = target;
+    if (connectionFactory == null) {
+      // throws if JMS is used without a ConnectionFactory bean
+      connectionFactory = beanFactory.getBean(ConnectionFactory.class);
+      target = connectionFactory;
+    }
+    return connectionFactory;
+  }
+
+  @Override
+  public Connection createConnection() throws JMSException {
+    return target().createConnection();
+  }
+
+  @Override
+  public Connection createConnection(String userName, String password) throws JMSException {
+    return target().createConnection(userName, password);
+  }
+
+  @Override
+  public JMSContext createContext() {
+    return target().createContext();
+  }
+
+  @Override
+  public JMSContext createContext(String userName, String password) {
+    return target().createContext(userName, password);
+  }
+
+  @Override
+  public JMSContext createContext(String userName, String password, int sessionMode) {
+    return target().createContext(userName, password, sessionMode);
+  }
+
+  @Override
+  public JMSContext createContext(int sessionMode) {
+    return target().createContext(sessionMode);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.spring;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
+import io.opentracing.contrib.jms2.TracingSession;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import org.springframework.jms.connection.CachingConnectionFactory;
+
+/**
+ * {@link CachingConnectionFactory} tracing its physical sessions, so that the cached sessions,
+ * producers and consumers are wrapped once instead of on every {@code JmsTemplate} operation.
+ * {@link TracingJmsTemplate} doesn't wrap connections of this factory again.
+ * <p>
+ * Consumers of listener containers using this factory are traced as well, which adds receive spans
+ * to the spans of {@link TracingMessagingMessageListenerAdapter}.
+ */
+public class TracingCachingConnectionFactory extends CachingConnectionFactory {
+
+  private final Tracer tracer;
+  private final boolean traceInLog;
+  private final JmsTracingSampler sampler;
+
+  public TracingCachingConnectionFactory(ConnectionFactory targetConnectionFactory,
+      Tracer tracer) {
+    this(targetConnectionFactory, tracer, false);
+  }
+
+  public TracingCachingConnectionFactory(ConnectionFactory targetConnectionFactory, Tracer tracer,
+      boolean traceInLog) {
+    this(targetConnectionFactory, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingCachingConnectionFactory(ConnectionFactory targetConnectionFactory, Tracer tracer,
+      boolean traceInLog, JmsTracingSampler sampler) {
+    super(targetConnectionFactory);
+    this.tracer = tracer;
+    this.traceInLog = traceInLog;
+    this.sampler = sampler;
+  }
+
+  @Override
+  protected Session createSession(Connection connection, Integer mode) throws JMSException {
+    return new TracingSession(super.createSession(connection, mode), tracer, traceInLog, sampler);
+  }
+}
@@ -14,9 +14,8 @@
 package io.opentracing.contrib.jms.spring;
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import javax.jms.ConnectionFactory;
-import org.springframework.aop.framework.ProxyFactory;
-import org.springframework.aop.target.AbstractLazyCreationTargetSource;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,17 +30,21 @@ public class TracingJmsConfiguration {
 
   private final ObjectProvider<MessageConverter> messageConverter;
 
+  private final ObjectProvider<JmsTracingSampler> sampler;
+
   @Value("${io.opentracing.contrib.jms.spring.traceInLog:false}")
   private boolean traceInLog;
 
-  public TracingJmsConfiguration(ObjectProvider<MessageConverter> messageConverter) {
+  public TracingJmsConfiguration(ObjectProvider<MessageConverter> messageConverter,
+      ObjectProvider<JmsTracingSampler> sampler) {
     this.messageConverter = messageConverter;
+    this.sampler = sampler;
   }
 
   @Bean
   public TracingMessagingMessageListenerAdapter createTracingMessagingMessageListenerAdapter(
       Tracer tracer) {
-    return new TracingMessagingMessageListenerAdapter(tracer, traceInLog);
+    return new TracingMessagingMessageListenerAdapter(tracer, traceInLog, sampler());
   }
 
   @Bean
@@ -58,11 +61,12 @@ public class TracingJmsConfiguration {
 
   @Bean
   public JmsTemplate jmsTemplate(BeanFactory beanFactory, Tracer tracer) {
-    // we create lazy proxy, to avoid dependency and config order
+    // the ConnectionFactory bean is looked up on first use, to avoid dependency and config order
     // if JMS is used, and ConnectionFactory bean is not present,
     // it will throw an error on first use, so imo, we should be all good
-    ConnectionFactory connectionFactory = createProxy(beanFactory);
-    JmsTemplate ret = new TracingJmsTemplate(connectionFactory, tracer, traceInLog);
+    ConnectionFactory connectionFactory = new LazyConnectionFactory(beanFactory);
+    JmsTemplate ret = new TracingJmsTemplate(connectionFactory, tracer, traceInLog,
+        sampler());
     MessageConverter mc = messageConverter.getIfAvailable();
     if (mc != null) {
       ret.setMessageConverter(mc);
@@ -70,17 +74,8 @@ public class TracingJmsConfiguration {
     return ret;
   }
 
-  private ConnectionFactory createProxy(final BeanFactory beanFactory) {
-    return (ConnectionFactory) ProxyFactory.getProxy(new AbstractLazyCreationTargetSource() {
-      @Override
-      public synchronized Class<?> getTargetClass() {
-        return ConnectionFactory.class;
-      }
-
-      @Override
-      protected Object createObject() throws Exception {
-        return beanFactory.getBean(ConnectionFactory.class);
-      }
-    });
+  private JmsTracingSampler sampler() {
+    JmsTracingSampler s = sampler.getIfAvailable();
+    return s != null ? s : JmsTracingSampler.always();
   }
 }
@@ -15,6 +15,7 @@ package io.opentracing.contrib.jms.spring;
 
 
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms2.TracingConnection;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -28,6 +29,8 @@ public class TracingJmsTemplate extends JmsTemplate {
 
   private final boolean traceInLog;
 
+  private final JmsTracingSampler sampler;
+
   public TracingJmsTemplate(Tracer tracer) {
     this(tracer, false);
   }
@@ -35,17 +38,38 @@ public class TracingJmsTemplate extends JmsTemplate {
   public TracingJmsTemplate(Tracer tracer, boolean traceInLog) {
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = JmsTracingSampler.always();
   }
 
   public TracingJmsTemplate(ConnectionFactory connectionFactory, Tracer tracer,
       boolean traceInLog) {
+    this(connectionFactory, tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  public TracingJmsTemplate(ConnectionFactory connectionFactory, Tracer tracer,
+      boolean traceInLog, JmsTracingSampler sampler) {
     super(connectionFactory);
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
   }
 
   @Override
   protected Connection createConnection() throws JMSException {
-    return new TracingConnection(super.createConnection(), tracer, traceInLog);
+    Connection connection = super.createConnection();
+    if (isTracing(getConnectionFactory())) {
+      return connection;
+    }
+    return new TracingConnection(connection, tracer, traceInLog, sampler);
+  }
+
+  /**
+   * Whether sessions of the {@code connectionFactory} are already traced, and cached.
+   */
+  private static boolean isTracing(ConnectionFactory connectionFactory) {
+    if (connectionFactory instanceof LazyConnectionFactory) {
+      connectionFactory = ((LazyConnectionFactory) connectionFactory).target();
+    }
+    return connectionFactory instanceof TracingCachingConnectionFactory;
   }
 }
@@ -13,62 +13,98 @@
  */
 package io.opentracing.contrib.jms.spring;
 
+import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import io.opentracing.contrib.jms.common.JmsMetrics;
+import io.opentracing.contrib.jms.common.JmsTracingSampler;
 import io.opentracing.contrib.jms.common.TracingMessageListener;
 import io.opentracing.contrib.jms.common.TracingMessageUtils;
+import io.opentracing.noop.NoopSpan;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
-import javax.jms.MessageListener;
 import javax.jms.Session;
+import org.slf4j.MDC;
 import org.springframework.jms.listener.adapter.MessagingMessageListenerAdapter;
 
 public class TracingMessagingMessageListenerAdapter extends MessagingMessageListenerAdapter {
 
   protected Tracer tracer;
   protected boolean traceInLog;
+  protected JmsTracingSampler sampler;
 
   protected TracingMessagingMessageListenerAdapter(Tracer tracer) {
     this(tracer, false);
   }
 
   protected TracingMessagingMessageListenerAdapter(Tracer tracer, boolean traceInLog) {
+    this(tracer, traceInLog, JmsTracingSampler.always());
+  }
+
+  protected TracingMessagingMessageListenerAdapter(Tracer tracer, boolean traceInLog,
+      JmsTracingSampler sampler) {
     this.tracer = tracer;
     this.traceInLog = traceInLog;
+    this.sampler = sampler;
   }
 
+  /**
+   * Traces like {@link TracingMessageListener}, inline so that no listener is allocated per
+   * message.
+   */
   @Override
-  public void onMessage(final Message jmsMessage, final Session session) throws JMSException {
-    TracingMessageListener listener = new TracingMessageListener(new MessageListener() {
-      @Override
-      public void onMessage(Message message) {
-        onMessageInternal(message, session);
+  public void onMessage(Message jmsMessage, Session session) throws JMSException {
+    Span span = TracingMessageUtils.startListenerSpan(jmsMessage, tracer, sampler);
+    if (span == NoopSpan.INSTANCE) {
+      deliver(jmsMessage, session, span);
+      return;
+    }
+    if (traceInLog) {
+      MDC.put("spanId", span.context().toSpanId());
+      MDC.put("traceId", span.context().toTraceId());
+    }
+    try (Scope ignored = tracer.activateSpan(span)) {
+      deliver(jmsMessage, session, span);
+    } finally {
+      span.finish();
+      if (traceInLog) {
+        MDC.remove("spanId");
+        MDC.remove("traceId");
       }
-    }, tracer, traceInLog);
-    listener.onMessage(jmsMessage);
+    }
   }
 
-  private void onMessageInternal(Message jmsMessage, Session session) {
+  private void deliver(Message jmsMessage, Session session, Span span) throws JMSException {
+    long startTime = JmsMetrics.startTime();
     try {
       super.onMessage(jmsMessage, session);
-    } catch (JMSException e) {
-      throw new IllegalStateException(e);
+    } catch (Throwable e) {
+      JmsMetrics.onMessageError(jmsMessage, startTime);
+      throw e;
+    } finally {
+      JmsMetrics.onMessage(jmsMessage, span, startTime);
     }
   }
 
   @Override
   protected void sendResponse(Session session, Destination destination, Message response)
       throws JMSException {
-    Span span = TracingMessageUtils.startAndInjectSpan(destination, response, tracer);
+    Span span = TracingMessageUtils.startAndInjectSpan(destination, response, tracer,
+        sampler);
+    long startTime = JmsMetrics.startTime();
     try {
       super.sendResponse(session, destination, response);
+    } catch (Throwable e) {
+      JmsMetrics.onSendError(destination, startTime);
+      throw e;
     } finally {
       span.finish();
+      JmsMetrics.onSend(destination, response, span, startTime);
     }
   }
 
   protected TracingMessagingMessageListenerAdapter newInstance() {
-    return new TracingMessagingMessageListenerAdapter(tracer, traceInLog);
+    return new TracingMessagingMessageListenerAdapter(tracer, traceInLog, sampler);
   }
 }
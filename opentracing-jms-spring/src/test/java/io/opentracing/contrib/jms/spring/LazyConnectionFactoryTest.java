@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.spring;
+
+import static org.junit.Assert.assertSame;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.BeanFactory;
+
+public class LazyConnectionFactoryTest {
+
+  @Test
+  public void looksUpConnectionFactoryOnce() throws Exception {
+    BeanFactory beanFactory = Mockito.mock(BeanFactory.class);
+    ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+    Connection connection = Mockito.mock(Connection.class);
+    Mockito.when(beanFactory.getBean(ConnectionFactory.class)).thenReturn(connectionFactory);
+    Mockito.when(connectionFactory.createConnection()).thenReturn(connection);
+
+    LazyConnectionFactory lazy = new LazyConnectionFactory(beanFactory);
+    Mockito.verifyZeroInteractions(beanFactory);
+
+    assertSame(connection, lazy.createConnection());
+    assertSame(connection, lazy.createConnection());
+    Mockito.verify(beanFactory, Mockito.times(1)).getBean(ConnectionFactory.class);
+    Mockito.verify(connectionFactory, Mockito.times(2)).createConnection();
+  }
+}
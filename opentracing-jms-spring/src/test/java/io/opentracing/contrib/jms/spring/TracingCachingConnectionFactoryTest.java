@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.spring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.contrib.jms2.TracingSession;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.tag.Tags;
+import java.util.List;
+import javax.jms.Connection;
+import javax.jms.Session;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jms.connection.SessionProxy;
+import org.springframework.jms.core.JmsTemplate;
+
+public class TracingCachingConnectionFactoryTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private TracingCachingConnectionFactory connectionFactory;
+
+  @Before
+  public void before() {
+    connectionFactory = new TracingCachingConnectionFactory(
+        new ActiveMQConnectionFactory("vm://caching?broker.persistent=false"), mockTracer);
+  }
+
+  @After
+  public void after() {
+    connectionFactory.destroy();
+  }
+
+  @Test
+  public void reusesTracingSession() throws Exception {
+    Connection connection = connectionFactory.createConnection();
+    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    Session target = ((SessionProxy) session).getTargetSession();
+    session.close();
+
+    Session next = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    assertTrue(target instanceof TracingSession);
+    assertSame(target, ((SessionProxy) next).getTargetSession());
+    next.close();
+  }
+
+  @Test
+  public void templateDoesNotWrapAgain() {
+    JmsTemplate jmsTemplate = new TracingJmsTemplate(connectionFactory, mockTracer, false);
+    jmsTemplate.setReceiveTimeout(5000);
+
+    jmsTemplate.convertAndSend("TEST.CACHING", "first");
+    jmsTemplate.convertAndSend("TEST.CACHING", "second");
+    assertEquals("first", jmsTemplate.receiveAndConvert("TEST.CACHING"));
+    assertEquals("second", jmsTemplate.receiveAndConvert("TEST.CACHING"));
+
+    List<MockSpan> spans = mockTracer.finishedSpans();
+    assertEquals(4, spans.size());
+    int producers = 0;
+    for (MockSpan span : spans) {
+      if (Tags.SPAN_KIND_PRODUCER.equals(span.tags().get(Tags.SPAN_KIND.getKey()))) {
+        producers++;
+      }
+    }
+    assertEquals(2, producers);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jms.Destination;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.Topic;
+
+/**
+ * Queues and topic subscriptions shared by the connections of one
+ * {@link InMemoryConnectionFactory}. Messages are not persisted, don't expire and are delivered
+ * immediately.
+ */
+final class InMemoryBroker {
+
+  private final ConcurrentMap<String, Mailbox> queues = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, List<Mailbox>> topics = new ConcurrentHashMap<>();
+  private final AtomicLong ids = new AtomicLong();
+
+  String nextMessageId() {
+    return "ID:in-memory-" + ids.incrementAndGet();
+  }
+
+  String nextTemporaryName(String prefix) {
+    return prefix + ids.incrementAndGet();
+  }
+
+  Mailbox queue(String name) {
+    Mailbox mailbox = queues.get(name);
+    if (mailbox == null) {
+      Mailbox created = new Mailbox();
+      mailbox = queues.putIfAbsent(name, created);
+      if (mailbox == null) {
+        mailbox = created;
+      }
+    }
+    return mailbox;
+  }
+
+  void deleteQueue(String name) {
+    queues.remove(name);
+  }
+
+  Mailbox subscribe(String topic) {
+    Mailbox mailbox = new Mailbox();
+    subscriptions(topic).add(mailbox);
+    return mailbox;
+  }
+
+  void unsubscribe(String topic, Mailbox mailbox) {
+    subscriptions(topic).remove(mailbox);
+  }
+
+  void deleteTopic(String name) {
+    topics.remove(name);
+  }
+
+  private List<Mailbox> subscriptions(String topic) {
+    List<Mailbox> subscriptions = topics.get(topic);
+    if (subscriptions == null) {
+      List<Mailbox> created = new CopyOnWriteArrayList<>();
+      subscriptions = topics.putIfAbsent(topic, created);
+      if (subscriptions == null) {
+        subscriptions = created;
+      }
+    }
+    return subscriptions;
+  }
+
+  /**
+   * Deliver the {@code message}, a delivery copy, to the queue or to every topic subscription.
+   */
+  void send(Destination destination, InMemoryMessage message) throws JMSException {
+    if (destination instanceof Queue) {
+      queue(((Queue) destination).getQueueName()).deliver(message);
+    } else if (destination instanceof Topic) {
+      // copy before delivering, a listener may modify the message
+      Object[] subscriptions = subscriptions(((Topic) destination).getTopicName()).toArray();
+      for (int i = 0; i < subscriptions.length; i++) {
+        ((Mailbox) subscriptions[i]).deliver(i == subscriptions.length - 1
+            ? message : InMemoryMessage.deliveryCopy(message));
+      }
+    } else {
+      throw new InvalidDestinationException("Unsupported destination " + destination);
+    }
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotReadableException;
+import javax.jms.MessageNotWriteableException;
+
+/**
+ * Bytes message, written until {@link #reset()} or sent, read after.
+ */
+class InMemoryBytesMessage extends InMemoryMessage implements BytesMessage {
+
+  private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  private DataOutputStream out = new DataOutputStream(bytes);
+  private byte[] body;
+  private DataInputStream in;
+
+  InMemoryBytesMessage() {
+  }
+
+  private InMemoryBytesMessage(byte[] body) {
+    this.body = body;
+    this.in = new DataInputStream(new ByteArrayInputStream(body));
+    this.out = null;
+    this.bytes = null;
+  }
+
+  static InMemoryBytesMessage of(byte[] body) {
+    return new InMemoryBytesMessage(body.clone());
+  }
+
+  @Override
+  InMemoryMessage copy() {
+    return copyProperties(new InMemoryBytesMessage(body()));
+  }
+
+  private byte[] body() {
+    return body != null ? body : bytes.toByteArray();
+  }
+
+  private DataInputStream in() throws MessageNotReadableException {
+    if (in == null) {
+      throw new MessageNotReadableException("Message is in write-only mode");
+    }
+    return in;
+  }
+
+  private DataOutputStream out() throws JMSException {
+    checkBodyWriteable();
+    if (out == null) {
+      throw new MessageNotWriteableException("Message is in read-only mode");
+    }
+    return out;
+  }
+
+  @Override
+  public long getBodyLength() throws JMSException {
+    in();
+    return body.length;
+  }
+
+  @Override
+  public boolean readBoolean() throws JMSException {
+    try {
+      return in().readBoolean();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public byte readByte() throws JMSException {
+    try {
+      return in().readByte();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public int readUnsignedByte() throws JMSException {
+    try {
+      return in().readUnsignedByte();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public short readShort() throws JMSException {
+    try {
+      return in().readShort();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public int readUnsignedShort() throws JMSException {
+    try {
+      return in().readUnsignedShort();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public char readChar() throws JMSException {
+    try {
+      return in().readChar();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public int readInt() throws JMSException {
+    try {
+      return in().readInt();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public long readLong() throws JMSException {
+    try {
+      return in().readLong();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public float readFloat() throws JMSException {
+    try {
+      return in().readFloat();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public double readDouble() throws JMSException {
+    try {
+      return in().readDouble();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public String readUTF() throws JMSException {
+    try {
+      return in().readUTF();
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public int readBytes(byte[] value) throws JMSException {
+    return readBytes(value, value.length);
+  }
+
+  @Override
+  public int readBytes(byte[] value, int length) throws JMSException {
+    try {
+      return in().read(value, 0, length);
+    } catch (IOException e) {
+      throw readFailed(e);
+    }
+  }
+
+  @Override
+  public void writeBoolean(boolean value) throws JMSException {
+    try {
+      out().writeBoolean(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeByte(byte value) throws JMSException {
+    try {
+      out().writeByte(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeShort(short value) throws JMSException {
+    try {
+      out().writeShort(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeChar(char value) throws JMSException {
+    try {
+      out().writeChar(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeInt(int value) throws JMSException {
+    try {
+      out().writeInt(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeLong(long value) throws JMSException {
+    try {
+      out().writeLong(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeFloat(float value) throws JMSException {
+    try {
+      out().writeFloat(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeDouble(double value) throws JMSException {
+    try {
+      out().writeDouble(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeUTF(String value) throws JMSException {
+    try {
+      out().writeUTF(value);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeBytes(byte[] value) throws JMSException {
+    writeBytes(value, 0, value.length);
+  }
+
+  @Override
+  public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+    try {
+      out().write(value, offset, length);
+    } catch (IOException e) {
+      throw writeFailed(e);
+    }
+  }
+
+  @Override
+  public void writeObject(Object value) throws JMSException {
+    if (value instanceof Boolean) {
+      writeBoolean((Boolean) value);
+    } else if (value instanceof Byte) {
+      writeByte((Byte) value);
+    } else if (value instanceof Short) {
+      writeShort((Short) value);
+    } else if (value instanceof Character) {
+      writeChar((Character) value);
+    } else if (value instanceof Integer) {
+      writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      writeLong((Long) value);
+    } else if (value instanceof Float) {
+      writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      writeDouble((Double) value);
+    } else if (value instanceof String) {
+      writeUTF((String) value);
+    } else if (value instanceof byte[]) {
+      writeBytes((byte[]) value);
+    } else {
+      throw new MessageFormatException("Unsupported type " + value);
+    }
+  }
+
+  @Override
+  public void reset() {
+    body = body();
+    in = new DataInputStream(new ByteArrayInputStream(body));
+    out = null;
+    bytes = null;
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    super.clearBody();
+    bytes = new ByteArrayOutputStream();
+    out = new DataOutputStream(bytes);
+    body = null;
+    in = null;
+  }
+
+  @Override
+  public <T> T getBody(Class<T> c) throws JMSException {
+    if (!isBodyAssignableTo(c)) {
+      throw new MessageFormatException("Cannot assign bytes body to " + c);
+    }
+    byte[] value = body();
+    return value.length == 0 ? null : c.cast(value.clone());
+  }
+
+  @Override
+  public boolean isBodyAssignableTo(Class c) {
+    return body().length == 0 || c.isAssignableFrom(byte[].class);
+  }
+
+  private static JMSException readFailed(IOException e) {
+    JMSException exception = e instanceof EOFException
+        ? new MessageEOFException("End of message body") : new JMSException(e.getMessage());
+    exception.setLinkedException(e);
+    return exception;
+  }
+
+  private static JMSException writeFailed(IOException e) {
+    JMSException exception = new JMSException(e.getMessage());
+    exception.setLinkedException(e);
+    return exception;
+  }
+}
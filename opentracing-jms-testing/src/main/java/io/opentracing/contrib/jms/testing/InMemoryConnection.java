@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+/**
+ * Connection to an {@link InMemoryBroker}. Like on a real connection messages are delivered to
+ * consumers only after {@link #start()}.
+ */
+class InMemoryConnection implements Connection {
+
+  private final InMemoryBroker broker;
+  private final List<InMemorySession> sessions = new CopyOnWriteArrayList<>();
+  private volatile boolean started;
+  private volatile boolean closed;
+  private String clientId;
+  private ExceptionListener exceptionListener;
+
+  InMemoryConnection(InMemoryBroker broker) {
+    this.broker = broker;
+  }
+
+  InMemoryBroker broker() {
+    return broker;
+  }
+
+  boolean isStarted() {
+    return started;
+  }
+
+  void removeSession(InMemorySession session) {
+    sessions.remove(session);
+  }
+
+  @Override
+  public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+    if (closed) {
+      throw new IllegalStateException("Connection is closed");
+    }
+    InMemorySession session = new InMemorySession(this, transacted, acknowledgeMode);
+    sessions.add(session);
+    return session;
+  }
+
+  @Override
+  public Session createSession(int sessionMode) throws JMSException {
+    return createSession(sessionMode == Session.SESSION_TRANSACTED, sessionMode);
+  }
+
+  @Override
+  public Session createSession() throws JMSException {
+    return createSession(false, Session.AUTO_ACKNOWLEDGE);
+  }
+
+  @Override
+  public String getClientID() {
+    return clientId;
+  }
+
+  @Override
+  public void setClientID(String clientId) {
+    this.clientId = clientId;
+  }
+
+  @Override
+  public ConnectionMetaData getMetaData() {
+    throw new UnsupportedOperationException("Connection metadata is not supported");
+  }
+
+  @Override
+  public ExceptionListener getExceptionListener() {
+    return exceptionListener;
+  }
+
+  @Override
+  public void setExceptionListener(ExceptionListener listener) {
+    this.exceptionListener = listener;
+  }
+
+  @Override
+  public void start() {
+    started = true;
+    for (InMemorySession session : sessions) {
+      session.start();
+    }
+  }
+
+  @Override
+  public void stop() {
+    started = false;
+  }
+
+  @Override
+  public void close() {
+    started = false;
+    closed = true;
+    for (InMemorySession session : sessions) {
+      session.close();
+    }
+  }
+
+  @Override
+  public ConnectionConsumer createConnectionConsumer(Destination destination,
+      String messageSelector, ServerSessionPool sessionPool, int maxMessages) {
+    throw new UnsupportedOperationException("Connection consumers are not supported");
+  }
+
+  @Override
+  public ConnectionConsumer createSharedConnectionConsumer(Topic topic, String subscriptionName,
+      String messageSelector, ServerSessionPool sessionPool, int maxMessages) {
+    throw new UnsupportedOperationException("Connection consumers are not supported");
+  }
+
+  @Override
+  public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName,
+      String messageSelector, ServerSessionPool sessionPool, int maxMessages) {
+    throw new UnsupportedOperationException("Connection consumers are not supported");
+  }
+
+  @Override
+  public ConnectionConsumer createSharedDurableConnectionConsumer(Topic topic,
+      String subscriptionName, String messageSelector, ServerSessionPool sessionPool,
+      int maxMessages) {
+    throw new UnsupportedOperationException("Connection consumers are not supported");
+  }
+}
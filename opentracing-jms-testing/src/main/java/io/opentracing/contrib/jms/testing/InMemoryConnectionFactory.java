@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+
+/**
+ * Broker-free JMS {@link ConnectionFactory} for tests and benchmarks. Connections of the same
+ * factory share queues and topics held in memory, in lock-free queues.
+ * <p>
+ * Message headers and properties behave as on a real provider: the provider headers are set on
+ * send, consumers receive a copy of the message with read-only properties and body, and property
+ * names, types and conversions follow the JMS rules. Messages are delivered immediately, are not
+ * persisted and don't expire. Consumers with a message listener receive messages in the sending
+ * thread, which keeps benchmarks deterministic.
+ * <p>
+ * Message selectors, durable and shared subscriptions, queue browsers, stream messages and
+ * redelivery are not supported.
+ */
+public class InMemoryConnectionFactory implements ConnectionFactory {
+
+  private final InMemoryBroker broker = new InMemoryBroker();
+
+  @Override
+  public Connection createConnection() {
+    return new InMemoryConnection(broker);
+  }
+
+  @Override
+  public Connection createConnection(String userName, String password) {
+    return createConnection();
+  }
+
+  @Override
+  public JMSContext createContext() {
+    return createContext(JMSContext.AUTO_ACKNOWLEDGE);
+  }
+
+  @Override
+  public JMSContext createContext(String userName, String password) {
+    return createContext();
+  }
+
+  @Override
+  public JMSContext createContext(String userName, String password, int sessionMode) {
+    return createContext(sessionMode);
+  }
+
+  @Override
+  public JMSContext createContext(int sessionMode) {
+    return new InMemoryJMSContext(new InMemoryConnection(broker), sessionMode);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import static io.opentracing.contrib.jms.testing.InMemoryJMSContext.runtime;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+
+class InMemoryJMSConsumer implements JMSConsumer {
+
+  private final MessageConsumer consumer;
+
+  InMemoryJMSConsumer(MessageConsumer consumer) {
+    this.consumer = consumer;
+  }
+
+  @Override
+  public String getMessageSelector() {
+    return null;
+  }
+
+  @Override
+  public MessageListener getMessageListener() {
+    try {
+      return consumer.getMessageListener();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) {
+    try {
+      consumer.setMessageListener(listener);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public Message receive() {
+    try {
+      return consumer.receive();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public Message receive(long timeout) {
+    try {
+      return consumer.receive(timeout);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public Message receiveNoWait() {
+    try {
+      return consumer.receiveNoWait();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      consumer.close();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public <T> T receiveBody(Class<T> c) {
+    return body(receive(), c);
+  }
+
+  @Override
+  public <T> T receiveBody(Class<T> c, long timeout) {
+    return body(receive(timeout), c);
+  }
+
+  @Override
+  public <T> T receiveBodyNoWait(Class<T> c) {
+    return body(receiveNoWait(), c);
+  }
+
+  private static <T> T body(Message message, Class<T> c) {
+    if (message == null) {
+      return null;
+    }
+    try {
+      return message.getBody(c);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+}
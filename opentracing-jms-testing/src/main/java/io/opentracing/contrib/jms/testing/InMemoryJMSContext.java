@@ -0,0 +1,321 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jms.BytesMessage;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+/**
+ * {@link JMSContext} on an {@link InMemoryConnection} and one {@link InMemorySession}, the
+ * connection is closed with the last context using it.
+ */
+class InMemoryJMSContext implements JMSContext {
+
+  private final InMemoryConnection connection;
+  private final AtomicInteger connectionUsers;
+  private final InMemorySession session;
+  private volatile boolean autoStart = true;
+
+  InMemoryJMSContext(InMemoryConnection connection, int sessionMode) {
+    this(connection, new AtomicInteger(), sessionMode);
+  }
+
+  private InMemoryJMSContext(InMemoryConnection connection, AtomicInteger connectionUsers,
+      int sessionMode) {
+    this.connection = connection;
+    this.connectionUsers = connectionUsers;
+    try {
+      this.session = (InMemorySession) connection.createSession(sessionMode);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    connectionUsers.incrementAndGet();
+  }
+
+  InMemorySession session() {
+    return session;
+  }
+
+  @Override
+  public JMSContext createContext(int sessionMode) {
+    return new InMemoryJMSContext(connection, connectionUsers, sessionMode);
+  }
+
+  @Override
+  public JMSProducer createProducer() {
+    try {
+      return new InMemoryJMSProducer(this, session.createProducer(null));
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public String getClientID() {
+    return connection.getClientID();
+  }
+
+  @Override
+  public void setClientID(String clientId) {
+    connection.setClientID(clientId);
+  }
+
+  @Override
+  public ConnectionMetaData getMetaData() {
+    return connection.getMetaData();
+  }
+
+  @Override
+  public ExceptionListener getExceptionListener() {
+    return connection.getExceptionListener();
+  }
+
+  @Override
+  public void setExceptionListener(ExceptionListener listener) {
+    connection.setExceptionListener(listener);
+  }
+
+  @Override
+  public void start() {
+    connection.start();
+  }
+
+  @Override
+  public void stop() {
+    connection.stop();
+  }
+
+  @Override
+  public void setAutoStart(boolean autoStart) {
+    this.autoStart = autoStart;
+  }
+
+  @Override
+  public boolean getAutoStart() {
+    return autoStart;
+  }
+
+  @Override
+  public void close() {
+    session.close();
+    if (connectionUsers.decrementAndGet() == 0) {
+      connection.close();
+    }
+  }
+
+  @Override
+  public BytesMessage createBytesMessage() {
+    return session.createBytesMessage();
+  }
+
+  @Override
+  public MapMessage createMapMessage() {
+    return session.createMapMessage();
+  }
+
+  @Override
+  public Message createMessage() {
+    return session.createMessage();
+  }
+
+  @Override
+  public ObjectMessage createObjectMessage() {
+    return createObjectMessage(null);
+  }
+
+  @Override
+  public ObjectMessage createObjectMessage(Serializable object) {
+    try {
+      return session.createObjectMessage(object);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public StreamMessage createStreamMessage() {
+    return session.createStreamMessage();
+  }
+
+  @Override
+  public TextMessage createTextMessage() {
+    return session.createTextMessage();
+  }
+
+  @Override
+  public TextMessage createTextMessage(String text) {
+    return session.createTextMessage(text);
+  }
+
+  @Override
+  public boolean getTransacted() {
+    return session.getTransacted();
+  }
+
+  @Override
+  public int getSessionMode() {
+    return session.getAcknowledgeMode();
+  }
+
+  @Override
+  public void commit() {
+    try {
+      session.commit();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public void rollback() {
+    try {
+      session.rollback();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public void recover() {
+    session.recover();
+  }
+
+  @Override
+  public JMSConsumer createConsumer(Destination destination) {
+    try {
+      JMSConsumer consumer = new InMemoryJMSConsumer(session.createConsumer(destination));
+      if (autoStart) {
+        connection.start();
+      }
+      return consumer;
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSConsumer createConsumer(Destination destination, String messageSelector) {
+    try {
+      JMSConsumer consumer = new InMemoryJMSConsumer(
+          session.createConsumer(destination, messageSelector));
+      if (autoStart) {
+        connection.start();
+      }
+      return consumer;
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSConsumer createConsumer(Destination destination, String messageSelector,
+      boolean noLocal) {
+    return createConsumer(destination, messageSelector);
+  }
+
+  @Override
+  public Queue createQueue(String queueName) {
+    return session.createQueue(queueName);
+  }
+
+  @Override
+  public Topic createTopic(String topicName) {
+    return session.createTopic(topicName);
+  }
+
+  @Override
+  public JMSConsumer createDurableConsumer(Topic topic, String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public JMSConsumer createDurableConsumer(Topic topic, String name, String messageSelector,
+      boolean noLocal) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public JMSConsumer createSharedDurableConsumer(Topic topic, String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public JMSConsumer createSharedDurableConsumer(Topic topic, String name,
+      String messageSelector) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) {
+    throw new UnsupportedOperationException("Shared subscriptions are not supported");
+  }
+
+  @Override
+  public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName,
+      String messageSelector) {
+    throw new UnsupportedOperationException("Shared subscriptions are not supported");
+  }
+
+  @Override
+  public QueueBrowser createBrowser(Queue queue) {
+    return session.createBrowser(queue);
+  }
+
+  @Override
+  public QueueBrowser createBrowser(Queue queue, String messageSelector) {
+    return session.createBrowser(queue, messageSelector);
+  }
+
+  @Override
+  public TemporaryQueue createTemporaryQueue() {
+    return session.createTemporaryQueue();
+  }
+
+  @Override
+  public TemporaryTopic createTemporaryTopic() {
+    return session.createTemporaryTopic();
+  }
+
+  @Override
+  public void unsubscribe(String name) {
+    session.unsubscribe(name);
+  }
+
+  @Override
+  public void acknowledge() {
+  }
+
+  static JMSRuntimeException runtime(JMSException e) {
+    return new JMSRuntimeException(e.getMessage(), e.getErrorCode(), e);
+  }
+}
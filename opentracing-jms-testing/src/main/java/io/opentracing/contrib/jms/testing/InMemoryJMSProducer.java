@@ -0,0 +1,414 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import static io.opentracing.contrib.jms.testing.InMemoryJMSContext.runtime;
+
+import java.io.Serializable;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+/**
+ * {@link JMSProducer} on an anonymous {@link InMemoryMessageProducer}. Properties are kept in a
+ * message, so they follow the same rules as message properties.
+ */
+class InMemoryJMSProducer implements JMSProducer {
+
+  private final InMemoryJMSContext context;
+  private final MessageProducer producer;
+  private final InMemoryMessage properties = new InMemoryMessage();
+  private CompletionListener completionListener;
+
+  InMemoryJMSProducer(InMemoryJMSContext context, MessageProducer producer) {
+    this.context = context;
+    this.producer = producer;
+  }
+
+  @Override
+  public JMSProducer send(Destination destination, Message message) {
+    try {
+      Enumeration<?> names = properties.getPropertyNames();
+      while (names.hasMoreElements()) {
+        String name = (String) names.nextElement();
+        message.setObjectProperty(name, properties.getObjectProperty(name));
+      }
+      if (properties.getJMSCorrelationID() != null) {
+        message.setJMSCorrelationID(properties.getJMSCorrelationID());
+      }
+      if (properties.getJMSType() != null) {
+        message.setJMSType(properties.getJMSType());
+      }
+      if (properties.getJMSReplyTo() != null) {
+        message.setJMSReplyTo(properties.getJMSReplyTo());
+      }
+      if (completionListener != null) {
+        producer.send(destination, message, completionListener);
+      } else {
+        producer.send(destination, message);
+      }
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public JMSProducer send(Destination destination, String body) {
+    return send(destination, context.createTextMessage(body));
+  }
+
+  @Override
+  public JMSProducer send(Destination destination, Map<String, Object> body) {
+    try {
+      return send(destination, InMemoryMapMessage.of(body));
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer send(Destination destination, byte[] body) {
+    return send(destination, InMemoryBytesMessage.of(body));
+  }
+
+  @Override
+  public JMSProducer send(Destination destination, Serializable body) {
+    return send(destination, context.createObjectMessage(body));
+  }
+
+  @Override
+  public JMSProducer setDisableMessageID(boolean value) {
+    try {
+      producer.setDisableMessageID(value);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public boolean getDisableMessageID() {
+    try {
+      return producer.getDisableMessageID();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setDisableMessageTimestamp(boolean value) {
+    try {
+      producer.setDisableMessageTimestamp(value);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public boolean getDisableMessageTimestamp() {
+    try {
+      return producer.getDisableMessageTimestamp();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setDeliveryMode(int deliveryMode) {
+    try {
+      producer.setDeliveryMode(deliveryMode);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public int getDeliveryMode() {
+    try {
+      return producer.getDeliveryMode();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setPriority(int priority) {
+    try {
+      producer.setPriority(priority);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public int getPriority() {
+    try {
+      return producer.getPriority();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setTimeToLive(long timeToLive) {
+    try {
+      producer.setTimeToLive(timeToLive);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public long getTimeToLive() {
+    try {
+      return producer.getTimeToLive();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setDeliveryDelay(long deliveryDelay) {
+    try {
+      producer.setDeliveryDelay(deliveryDelay);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public long getDeliveryDelay() {
+    try {
+      return producer.getDeliveryDelay();
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public JMSProducer setAsync(CompletionListener completionListener) {
+    this.completionListener = completionListener;
+    return this;
+  }
+
+  @Override
+  public CompletionListener getAsync() {
+    return completionListener;
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, boolean value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, byte value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, short value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, int value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, long value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, float value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, double value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, String value) {
+    return setProperty(name, (Object) value);
+  }
+
+  @Override
+  public JMSProducer setProperty(String name, Object value) {
+    try {
+      properties.setObjectProperty(name, value);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+    return this;
+  }
+
+  @Override
+  public JMSProducer clearProperties() {
+    properties.clearProperties();
+    return this;
+  }
+
+  @Override
+  public boolean propertyExists(String name) {
+    return properties.propertyExists(name);
+  }
+
+  @Override
+  public boolean getBooleanProperty(String name) {
+    try {
+      return properties.getBooleanProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public byte getByteProperty(String name) {
+    try {
+      return properties.getByteProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public short getShortProperty(String name) {
+    try {
+      return properties.getShortProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public int getIntProperty(String name) {
+    try {
+      return properties.getIntProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public long getLongProperty(String name) {
+    try {
+      return properties.getLongProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public float getFloatProperty(String name) {
+    try {
+      return properties.getFloatProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public double getDoubleProperty(String name) {
+    try {
+      return properties.getDoubleProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public String getStringProperty(String name) {
+    try {
+      return properties.getStringProperty(name);
+    } catch (JMSException e) {
+      throw runtime(e);
+    }
+  }
+
+  @Override
+  public Object getObjectProperty(String name) {
+    return properties.getObjectProperty(name);
+  }
+
+  @Override
+  public Set<String> getPropertyNames() {
+    Set<String> names = new LinkedHashSet<>();
+    Enumeration<?> enumeration = properties.getPropertyNames();
+    while (enumeration.hasMoreElements()) {
+      names.add((String) enumeration.nextElement());
+    }
+    return names;
+  }
+
+  @Override
+  public JMSProducer setJMSCorrelationIDAsBytes(byte[] correlationId) {
+    properties.setJMSCorrelationIDAsBytes(correlationId);
+    return this;
+  }
+
+  @Override
+  public byte[] getJMSCorrelationIDAsBytes() {
+    return properties.getJMSCorrelationIDAsBytes();
+  }
+
+  @Override
+  public JMSProducer setJMSCorrelationID(String correlationId) {
+    properties.setJMSCorrelationID(correlationId);
+    return this;
+  }
+
+  @Override
+  public String getJMSCorrelationID() {
+    return properties.getJMSCorrelationID();
+  }
+
+  @Override
+  public JMSProducer setJMSType(String type) {
+    properties.setJMSType(type);
+    return this;
+  }
+
+  @Override
+  public String getJMSType() {
+    return properties.getJMSType();
+  }
+
+  @Override
+  public JMSProducer setJMSReplyTo(Destination replyTo) {
+    properties.setJMSReplyTo(replyTo);
+    return this;
+  }
+
+  @Override
+  public Destination getJMSReplyTo() {
+    return properties.getJMSReplyTo();
+  }
+}
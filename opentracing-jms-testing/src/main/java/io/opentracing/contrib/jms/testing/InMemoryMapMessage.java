@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.MessageFormatException;
+
+class InMemoryMapMessage extends InMemoryMessage implements MapMessage {
+
+  private Map<String, Object> map = new LinkedHashMap<>();
+
+  static InMemoryMapMessage of(Map<String, Object> map) throws JMSException {
+    InMemoryMapMessage message = new InMemoryMapMessage();
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      message.setObject(entry.getKey(), entry.getValue());
+    }
+    return message;
+  }
+
+  @Override
+  InMemoryMessage copy() {
+    InMemoryMapMessage copy = copyProperties(new InMemoryMapMessage());
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      Object value = entry.getValue();
+      copy.map.put(entry.getKey(), value instanceof byte[] ? ((byte[]) value).clone() : value);
+    }
+    return copy;
+  }
+
+  @Override
+  public boolean getBoolean(String name) throws JMSException {
+    return toBoolean(name, map.get(name));
+  }
+
+  @Override
+  public byte getByte(String name) throws JMSException {
+    return toByte(name, map.get(name));
+  }
+
+  @Override
+  public short getShort(String name) throws JMSException {
+    return toShort(name, map.get(name));
+  }
+
+  @Override
+  public char getChar(String name) throws JMSException {
+    Object value = map.get(name);
+    if (value == null) {
+      throw new NullPointerException("No value for " + name);
+    }
+    if (!(value instanceof Character)) {
+      throw new MessageFormatException("Cannot convert " + name + " to char");
+    }
+    return (Character) value;
+  }
+
+  @Override
+  public int getInt(String name) throws JMSException {
+    return toInt(name, map.get(name));
+  }
+
+  @Override
+  public long getLong(String name) throws JMSException {
+    return toLong(name, map.get(name));
+  }
+
+  @Override
+  public float getFloat(String name) throws JMSException {
+    return toFloat(name, map.get(name));
+  }
+
+  @Override
+  public double getDouble(String name) throws JMSException {
+    return toDouble(name, map.get(name));
+  }
+
+  @Override
+  public String getString(String name) throws JMSException {
+    return InMemoryMessage.toString(name, map.get(name));
+  }
+
+  @Override
+  public byte[] getBytes(String name) throws JMSException {
+    Object value = map.get(name);
+    if (value != null && !(value instanceof byte[])) {
+      throw new MessageFormatException("Cannot convert " + name + " to byte[]");
+    }
+    return value == null ? null : ((byte[]) value).clone();
+  }
+
+  @Override
+  public Object getObject(String name) {
+    return map.get(name);
+  }
+
+  @Override
+  public Enumeration getMapNames() {
+    return Collections.enumeration(new ArrayList<>(map.keySet()));
+  }
+
+  @Override
+  public void setBoolean(String name, boolean value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setByte(String name, byte value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setShort(String name, short value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setChar(String name, char value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setInt(String name, int value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setLong(String name, long value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setFloat(String name, float value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setDouble(String name, double value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setString(String name, String value) throws JMSException {
+    put(name, value);
+  }
+
+  @Override
+  public void setBytes(String name, byte[] value) throws JMSException {
+    put(name, value == null ? null : value.clone());
+  }
+
+  @Override
+  public void setBytes(String name, byte[] value, int offset, int length) throws JMSException {
+    byte[] copy = new byte[length];
+    System.arraycopy(value, offset, copy, 0, length);
+    put(name, copy);
+  }
+
+  @Override
+  public void setObject(String name, Object value) throws JMSException {
+    if (value != null && !isPrimitiveOrString(value) && !(value instanceof Character)
+        && !(value instanceof byte[])) {
+      throw new MessageFormatException("Unsupported map value type " + value.getClass());
+    }
+    put(name, value instanceof byte[] ? ((byte[]) value).clone() : value);
+  }
+
+  @Override
+  public boolean itemExists(String name) {
+    return map.containsKey(name);
+  }
+
+  private void put(String name, Object value) throws JMSException {
+    checkBodyWriteable();
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Map name must not be empty");
+    }
+    map.put(name, value);
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    super.clearBody();
+    map.clear();
+  }
+
+  @Override
+  public <T> T getBody(Class<T> c) throws JMSException {
+    if (!isBodyAssignableTo(c)) {
+      throw new MessageFormatException("Cannot assign map body to " + c);
+    }
+    return map.isEmpty() ? null : c.cast(new LinkedHashMap<>(map));
+  }
+
+  @Override
+  public boolean isBodyAssignableTo(Class c) {
+    return map.isEmpty() || c.isAssignableFrom(Map.class);
+  }
+}
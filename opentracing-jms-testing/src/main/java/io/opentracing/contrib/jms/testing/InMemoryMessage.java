@@ -0,0 +1,494 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.jms.BytesMessage;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.ObjectMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+
+/**
+ * Message without body, base of the other message types. Properties follow the JMS rules for
+ * names, value types, type conversions and read-only properties of received messages.
+ */
+class InMemoryMessage implements Message {
+
+  private static final Set<String> RESERVED_NAMES = new HashSet<>(Arrays.asList("NULL", "TRUE",
+      "FALSE", "NOT", "AND", "OR", "BETWEEN", "LIKE", "IN", "IS", "ESCAPE"));
+
+  private String messageId;
+  private long timestamp;
+  private String correlationId;
+  private Destination replyTo;
+  private Destination destination;
+  private int deliveryMode = DeliveryMode.PERSISTENT;
+  private boolean redelivered;
+  private String type;
+  private long expiration;
+  private long deliveryTime;
+  private int priority = Message.DEFAULT_PRIORITY;
+  private Map<String, Object> properties = new LinkedHashMap<>();
+  private boolean propertiesReadOnly;
+  boolean bodyReadOnly;
+
+  /**
+   * Copy of the {@code message} as it is delivered to consumers, with read-only properties and
+   * body. Foreign messages are supported without body or with a text body.
+   */
+  static InMemoryMessage deliveryCopy(Message message) throws JMSException {
+    InMemoryMessage copy;
+    if (message instanceof InMemoryMessage) {
+      copy = ((InMemoryMessage) message).copy();
+    } else if (message instanceof TextMessage) {
+      copy = new InMemoryTextMessage(((TextMessage) message).getText());
+    } else if (message instanceof BytesMessage || message instanceof MapMessage
+        || message instanceof ObjectMessage || message instanceof StreamMessage) {
+      throw new MessageFormatException("Unsupported foreign message " + message.getClass());
+    } else {
+      copy = new InMemoryMessage();
+    }
+    copy.copyHeaders(message);
+    if (!(message instanceof InMemoryMessage)) {
+      Enumeration<?> names = message.getPropertyNames();
+      while (names.hasMoreElements()) {
+        String name = (String) names.nextElement();
+        copy.properties.put(name, message.getObjectProperty(name));
+      }
+    }
+    copy.propertiesReadOnly = true;
+    copy.bodyReadOnly = true;
+    return copy;
+  }
+
+  InMemoryMessage copy() {
+    return copyProperties(new InMemoryMessage());
+  }
+
+  <M extends InMemoryMessage> M copyProperties(M copy) {
+    ((InMemoryMessage) copy).properties = new LinkedHashMap<>(properties);
+    return copy;
+  }
+
+  private void copyHeaders(Message message) throws JMSException {
+    messageId = message.getJMSMessageID();
+    timestamp = message.getJMSTimestamp();
+    correlationId = message.getJMSCorrelationID();
+    replyTo = message.getJMSReplyTo();
+    destination = message.getJMSDestination();
+    deliveryMode = message.getJMSDeliveryMode();
+    redelivered = message.getJMSRedelivered();
+    type = message.getJMSType();
+    expiration = message.getJMSExpiration();
+    deliveryTime = message.getJMSDeliveryTime();
+    priority = message.getJMSPriority();
+  }
+
+  void checkBodyWriteable() throws MessageNotWriteableException {
+    if (bodyReadOnly) {
+      throw new MessageNotWriteableException("Message body is read-only");
+    }
+  }
+
+  @Override
+  public String getJMSMessageID() {
+    return messageId;
+  }
+
+  @Override
+  public void setJMSMessageID(String id) {
+    this.messageId = id;
+  }
+
+  @Override
+  public long getJMSTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public void setJMSTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  @Override
+  public byte[] getJMSCorrelationIDAsBytes() {
+    return correlationId == null ? null : correlationId.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void setJMSCorrelationIDAsBytes(byte[] correlationId) {
+    this.correlationId = correlationId == null
+        ? null : new String(correlationId, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void setJMSCorrelationID(String correlationId) {
+    this.correlationId = correlationId;
+  }
+
+  @Override
+  public String getJMSCorrelationID() {
+    return correlationId;
+  }
+
+  @Override
+  public Destination getJMSReplyTo() {
+    return replyTo;
+  }
+
+  @Override
+  public void setJMSReplyTo(Destination replyTo) {
+    this.replyTo = replyTo;
+  }
+
+  @Override
+  public Destination getJMSDestination() {
+    return destination;
+  }
+
+  @Override
+  public void setJMSDestination(Destination destination) {
+    this.destination = destination;
+  }
+
+  @Override
+  public int getJMSDeliveryMode() {
+    return deliveryMode;
+  }
+
+  @Override
+  public void setJMSDeliveryMode(int deliveryMode) {
+    this.deliveryMode = deliveryMode;
+  }
+
+  @Override
+  public boolean getJMSRedelivered() {
+    return redelivered;
+  }
+
+  @Override
+  public void setJMSRedelivered(boolean redelivered) {
+    this.redelivered = redelivered;
+  }
+
+  @Override
+  public String getJMSType() {
+    return type;
+  }
+
+  @Override
+  public void setJMSType(String type) {
+    this.type = type;
+  }
+
+  @Override
+  public long getJMSExpiration() {
+    return expiration;
+  }
+
+  @Override
+  public void setJMSExpiration(long expiration) {
+    this.expiration = expiration;
+  }
+
+  @Override
+  public long getJMSDeliveryTime() {
+    return deliveryTime;
+  }
+
+  @Override
+  public void setJMSDeliveryTime(long deliveryTime) {
+    this.deliveryTime = deliveryTime;
+  }
+
+  @Override
+  public int getJMSPriority() {
+    return priority;
+  }
+
+  @Override
+  public void setJMSPriority(int priority) {
+    this.priority = priority;
+  }
+
+  @Override
+  public void clearProperties() {
+    properties.clear();
+    propertiesReadOnly = false;
+  }
+
+  @Override
+  public boolean propertyExists(String name) {
+    return properties.containsKey(name);
+  }
+
+  @Override
+  public boolean getBooleanProperty(String name) throws JMSException {
+    return toBoolean(name, properties.get(name));
+  }
+
+  @Override
+  public byte getByteProperty(String name) throws JMSException {
+    return toByte(name, properties.get(name));
+  }
+
+  @Override
+  public short getShortProperty(String name) throws JMSException {
+    return toShort(name, properties.get(name));
+  }
+
+  @Override
+  public int getIntProperty(String name) throws JMSException {
+    return toInt(name, properties.get(name));
+  }
+
+  @Override
+  public long getLongProperty(String name) throws JMSException {
+    return toLong(name, properties.get(name));
+  }
+
+  @Override
+  public float getFloatProperty(String name) throws JMSException {
+    return toFloat(name, properties.get(name));
+  }
+
+  @Override
+  public double getDoubleProperty(String name) throws JMSException {
+    return toDouble(name, properties.get(name));
+  }
+
+  @Override
+  public String getStringProperty(String name) throws JMSException {
+    return toString(name, properties.get(name));
+  }
+
+  @Override
+  public Object getObjectProperty(String name) {
+    return properties.get(name);
+  }
+
+  @Override
+  public Enumeration getPropertyNames() {
+    return Collections.enumeration(new ArrayList<>(properties.keySet()));
+  }
+
+  @Override
+  public void setBooleanProperty(String name, boolean value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setByteProperty(String name, byte value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setShortProperty(String name, short value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setIntProperty(String name, int value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setLongProperty(String name, long value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setFloatProperty(String name, float value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setDoubleProperty(String name, double value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setStringProperty(String name, String value) throws JMSException {
+    setProperty(name, value);
+  }
+
+  @Override
+  public void setObjectProperty(String name, Object value) throws JMSException {
+    if (value != null && !isPrimitiveOrString(value)) {
+      throw new MessageFormatException("Unsupported property type " + value.getClass());
+    }
+    setProperty(name, value);
+  }
+
+  static boolean isPrimitiveOrString(Object value) {
+    return value instanceof String || value instanceof Boolean || value instanceof Byte
+        || value instanceof Short || value instanceof Integer || value instanceof Long
+        || value instanceof Float || value instanceof Double;
+  }
+
+  private void setProperty(String name, Object value) throws JMSException {
+    if (propertiesReadOnly) {
+      throw new MessageNotWriteableException("Message properties are read-only");
+    }
+    checkName(name);
+    properties.put(name, value);
+  }
+
+  /**
+   * Property and map message names are Java identifiers and no message selector keywords.
+   */
+  static void checkName(String name) {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Property name must not be empty");
+    }
+    if (!Character.isJavaIdentifierStart(name.charAt(0))) {
+      throw new IllegalArgumentException("Invalid property name " + name);
+    }
+    for (int i = 1; i < name.length(); i++) {
+      if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+        throw new IllegalArgumentException("Invalid property name " + name);
+      }
+    }
+    if (RESERVED_NAMES.contains(name.toUpperCase(Locale.ROOT))) {
+      throw new IllegalArgumentException("Reserved property name " + name);
+    }
+  }
+
+  @Override
+  public void acknowledge() {
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    bodyReadOnly = false;
+  }
+
+  @Override
+  public <T> T getBody(Class<T> c) throws JMSException {
+    return null;
+  }
+
+  @Override
+  public boolean isBodyAssignableTo(Class c) throws JMSException {
+    return true;
+  }
+
+  // JMS conversion rules of property and map message values, the absent value converts as null
+
+  static boolean toBoolean(String name, Object value) throws JMSException {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value == null || value instanceof String) {
+      return Boolean.valueOf((String) value);
+    }
+    throw cannotConvert(name, value, "boolean");
+  }
+
+  static byte toByte(String name, Object value) throws JMSException {
+    if (value instanceof Byte) {
+      return (Byte) value;
+    }
+    if (value == null || value instanceof String) {
+      return Byte.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "byte");
+  }
+
+  static short toShort(String name, Object value) throws JMSException {
+    if (value instanceof Byte || value instanceof Short) {
+      return ((Number) value).shortValue();
+    }
+    if (value == null || value instanceof String) {
+      return Short.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "short");
+  }
+
+  static int toInt(String name, Object value) throws JMSException {
+    if (value instanceof Byte || value instanceof Short || value instanceof Integer) {
+      return ((Number) value).intValue();
+    }
+    if (value == null || value instanceof String) {
+      return Integer.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "int");
+  }
+
+  static long toLong(String name, Object value) throws JMSException {
+    if (value instanceof Byte || value instanceof Short || value instanceof Integer
+        || value instanceof Long) {
+      return ((Number) value).longValue();
+    }
+    if (value == null || value instanceof String) {
+      return Long.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "long");
+  }
+
+  static float toFloat(String name, Object value) throws JMSException {
+    if (value instanceof Float) {
+      return (Float) value;
+    }
+    if (value == null || value instanceof String) {
+      return Float.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "float");
+  }
+
+  static double toDouble(String name, Object value) throws JMSException {
+    if (value instanceof Float || value instanceof Double) {
+      return ((Number) value).doubleValue();
+    }
+    if (value == null || value instanceof String) {
+      return Double.valueOf(numeric(name, value));
+    }
+    throw cannotConvert(name, value, "double");
+  }
+
+  static String toString(String name, Object value) throws JMSException {
+    if (value instanceof byte[]) {
+      throw cannotConvert(name, value, "String");
+    }
+    return value == null ? null : value.toString();
+  }
+
+  private static String numeric(String name, Object value) {
+    if (value == null) {
+      throw new NumberFormatException("No value for " + name);
+    }
+    return (String) value;
+  }
+
+  private static MessageFormatException cannotConvert(String name, Object value, String type) {
+    return new MessageFormatException(
+        "Cannot convert " + value.getClass().getSimpleName() + " " + name + " to " + type);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+
+/**
+ * Consumer polling its mailbox, or draining it into the message listener in the sending thread.
+ * Listener exceptions are ignored, messages are not redelivered.
+ */
+class InMemoryMessageConsumer implements MessageConsumer {
+
+  private static final int SPINS = 64;
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final InMemorySession session;
+  private final Mailbox mailbox;
+  private final String topicName;
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private volatile MessageListener listener;
+  private volatile boolean closed;
+
+  /**
+   * @param topicName the topic of the subscription, {@code null} when consuming from a queue
+   */
+  InMemoryMessageConsumer(InMemorySession session, Mailbox mailbox, String topicName) {
+    this.session = session;
+    this.mailbox = mailbox;
+    this.topicName = topicName;
+  }
+
+  @Override
+  public String getMessageSelector() {
+    return null;
+  }
+
+  @Override
+  public MessageListener getMessageListener() {
+    return listener;
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) throws JMSException {
+    checkOpen();
+    this.listener = listener;
+    if (listener != null) {
+      mailbox.addListener(this);
+    } else {
+      mailbox.removeListener(this);
+    }
+  }
+
+  @Override
+  public Message receive() throws JMSException {
+    return receive(0);
+  }
+
+  /**
+   * Poll the mailbox, spinning briefly and then parking with growing intervals.
+   */
+  @Override
+  public Message receive(long timeout) throws JMSException {
+    checkOpen();
+    long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+    long park = 1000;
+    for (int i = 0; ; i++) {
+      Message message = receiveNoWait();
+      if (message != null || closed) {
+        return message;
+      }
+      if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+      if (i < SPINS) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(park);
+        park = Math.min(park * 2, MAX_PARK_NANOS);
+      }
+    }
+  }
+
+  @Override
+  public Message receiveNoWait() throws JMSException {
+    checkOpen();
+    if (!session.connection().isStarted()) {
+      return null;
+    }
+    return mailbox.poll();
+  }
+
+  /**
+   * Drain the mailbox into the listener, unless the connection is stopped or another thread is
+   * draining already. That thread then picks up the messages delivered meanwhile.
+   *
+   * @return whether this consumer took the messages
+   */
+  boolean drain(Mailbox from) {
+    boolean drained = false;
+    while (true) {
+      MessageListener current = listener;
+      if (current == null || !session.connection().isStarted()
+          || !draining.compareAndSet(false, true)) {
+        return drained;
+      }
+      drained = true;
+      try {
+        InMemoryMessage message;
+        while (listener == current && (message = from.poll()) != null) {
+          try {
+            current.onMessage(message);
+          } catch (RuntimeException ignored) {
+            // not redelivered
+          }
+        }
+      } finally {
+        draining.set(false);
+      }
+      if (from.isEmpty() || listener != current) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Called when the connection is started.
+   */
+  void start() {
+    if (listener != null) {
+      mailbox.dispatch();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    mailbox.removeListener(this);
+    if (topicName != null) {
+      session.unsubscribe(topicName, mailbox);
+    }
+    session.removeConsumer(this);
+  }
+
+  private void checkOpen() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("Consumer is closed");
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import javax.jms.CompletionListener;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+/**
+ * Producer setting the message headers like a provider does on send. Completion listeners are
+ * called before {@code send} returns.
+ */
+class InMemoryMessageProducer implements MessageProducer {
+
+  private final InMemorySession session;
+  private final Destination destination;
+  private boolean disableMessageId;
+  private boolean disableMessageTimestamp;
+  private int deliveryMode = DeliveryMode.PERSISTENT;
+  private int priority = Message.DEFAULT_PRIORITY;
+  private long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+  private long deliveryDelay = Message.DEFAULT_DELIVERY_DELAY;
+  private volatile boolean closed;
+
+  InMemoryMessageProducer(InMemorySession session, Destination destination) {
+    this.session = session;
+    this.destination = destination;
+  }
+
+  @Override
+  public void setDisableMessageID(boolean value) {
+    this.disableMessageId = value;
+  }
+
+  @Override
+  public boolean getDisableMessageID() {
+    return disableMessageId;
+  }
+
+  @Override
+  public void setDisableMessageTimestamp(boolean value) {
+    this.disableMessageTimestamp = value;
+  }
+
+  @Override
+  public boolean getDisableMessageTimestamp() {
+    return disableMessageTimestamp;
+  }
+
+  @Override
+  public void setDeliveryMode(int deliveryMode) {
+    this.deliveryMode = deliveryMode;
+  }
+
+  @Override
+  public int getDeliveryMode() {
+    return deliveryMode;
+  }
+
+  @Override
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  @Override
+  public int getPriority() {
+    return priority;
+  }
+
+  @Override
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  @Override
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  @Override
+  public void setDeliveryDelay(long deliveryDelay) {
+    this.deliveryDelay = deliveryDelay;
+  }
+
+  @Override
+  public long getDeliveryDelay() {
+    return deliveryDelay;
+  }
+
+  @Override
+  public Destination getDestination() {
+    return destination;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  @Override
+  public void send(Message message) throws JMSException {
+    send(message, deliveryMode, priority, timeToLive);
+  }
+
+  @Override
+  public void send(Message message, int deliveryMode, int priority, long timeToLive)
+      throws JMSException {
+    if (destination == null) {
+      throw new UnsupportedOperationException("Producer has no destination");
+    }
+    doSend(destination, message, deliveryMode, priority, timeToLive);
+  }
+
+  @Override
+  public void send(Destination destination, Message message) throws JMSException {
+    send(destination, message, deliveryMode, priority, timeToLive);
+  }
+
+  @Override
+  public void send(Destination destination, Message message, int deliveryMode, int priority,
+      long timeToLive) throws JMSException {
+    if (this.destination != null) {
+      throw new UnsupportedOperationException("Producer has a destination");
+    }
+    if (destination == null) {
+      throw new InvalidDestinationException("Destination must not be null");
+    }
+    doSend(destination, message, deliveryMode, priority, timeToLive);
+  }
+
+  @Override
+  public void send(Message message, CompletionListener listener) throws JMSException {
+    send(message, deliveryMode, priority, timeToLive, listener);
+  }
+
+  @Override
+  public void send(Message message, int deliveryMode, int priority, long timeToLive,
+      CompletionListener listener) throws JMSException {
+    try {
+      send(message, deliveryMode, priority, timeToLive);
+    } catch (JMSException e) {
+      listener.onException(message, e);
+      return;
+    }
+    listener.onCompletion(message);
+  }
+
+  @Override
+  public void send(Destination destination, Message message, CompletionListener listener)
+      throws JMSException {
+    send(destination, message, deliveryMode, priority, timeToLive, listener);
+  }
+
+  @Override
+  public void send(Destination destination, Message message, int deliveryMode, int priority,
+      long timeToLive, CompletionListener listener) throws JMSException {
+    try {
+      send(destination, message, deliveryMode, priority, timeToLive);
+    } catch (JMSException e) {
+      listener.onException(message, e);
+      return;
+    }
+    listener.onCompletion(message);
+  }
+
+  private void doSend(Destination destination, Message message, int deliveryMode, int priority,
+      long timeToLive) throws JMSException {
+    if (closed) {
+      throw new IllegalStateException("Producer is closed");
+    }
+    long now = System.currentTimeMillis();
+    message.setJMSDestination(destination);
+    message.setJMSDeliveryMode(deliveryMode);
+    message.setJMSPriority(priority);
+    message.setJMSExpiration(timeToLive > 0 ? now + timeToLive : 0);
+    message.setJMSTimestamp(disableMessageTimestamp ? 0 : now);
+    message.setJMSDeliveryTime(now + deliveryDelay);
+    message.setJMSMessageID(disableMessageId ? null : session.broker().nextMessageId());
+    session.send(destination, InMemoryMessage.deliveryCopy(message));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.ObjectMessage;
+
+/**
+ * Object message holding the serialized form of the object, like a message sent over the wire.
+ */
+class InMemoryObjectMessage extends InMemoryMessage implements ObjectMessage {
+
+  private byte[] serialized;
+
+  InMemoryObjectMessage(Serializable object) throws JMSException {
+    setObject(object);
+  }
+
+  private InMemoryObjectMessage(byte[] serialized) {
+    this.serialized = serialized;
+  }
+
+  @Override
+  InMemoryMessage copy() {
+    return copyProperties(new InMemoryObjectMessage(serialized));
+  }
+
+  @Override
+  public void setObject(Serializable object) throws JMSException {
+    checkBodyWriteable();
+    if (object == null) {
+      serialized = null;
+      return;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    } catch (IOException e) {
+      throw failed("Cannot serialize " + object.getClass(), e);
+    }
+    serialized = bytes.toByteArray();
+  }
+
+  @Override
+  public Serializable getObject() throws JMSException {
+    if (serialized == null) {
+      return null;
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      return (Serializable) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw failed("Cannot deserialize object", e);
+    }
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    super.clearBody();
+    serialized = null;
+  }
+
+  @Override
+  public <T> T getBody(Class<T> c) throws JMSException {
+    Serializable object = getObject();
+    if (object != null && !c.isInstance(object)) {
+      throw new MessageFormatException("Cannot assign object body to " + c);
+    }
+    return c.cast(object);
+  }
+
+  @Override
+  public boolean isBodyAssignableTo(Class c) throws JMSException {
+    Serializable object = getObject();
+    return object == null || c.isInstance(object);
+  }
+
+  private static JMSException failed(String message, Exception e) {
+    MessageFormatException exception = new MessageFormatException(message);
+    exception.setLinkedException(e);
+    return exception;
+  }
+}
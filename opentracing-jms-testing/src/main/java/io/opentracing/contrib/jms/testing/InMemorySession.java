@@ -0,0 +1,334 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+
+/**
+ * Session of an {@link InMemoryConnection}. In a transacted session sent messages are delivered
+ * on {@link #commit()} and discarded on {@link #rollback()}, received messages are acknowledged
+ * on receipt in all modes. Message selectors, durable and shared subscriptions, browsers and
+ * stream messages are not supported.
+ */
+class InMemorySession implements Session {
+
+  private final InMemoryConnection connection;
+  private final int acknowledgeMode;
+  private final List<InMemoryMessageConsumer> consumers = new CopyOnWriteArrayList<>();
+  private final List<PendingSend> pending = new ArrayList<>();
+  private volatile boolean closed;
+
+  InMemorySession(InMemoryConnection connection, boolean transacted, int acknowledgeMode) {
+    this.connection = connection;
+    this.acknowledgeMode = transacted ? Session.SESSION_TRANSACTED : acknowledgeMode;
+  }
+
+  InMemoryConnection connection() {
+    return connection;
+  }
+
+  InMemoryBroker broker() {
+    return connection.broker();
+  }
+
+  void send(Destination destination, InMemoryMessage message) throws JMSException {
+    checkOpen();
+    if (acknowledgeMode == Session.SESSION_TRANSACTED) {
+      pending.add(new PendingSend(destination, message));
+    } else {
+      broker().send(destination, message);
+    }
+  }
+
+  void unsubscribe(String topicName, Mailbox mailbox) {
+    broker().unsubscribe(topicName, mailbox);
+  }
+
+  void removeConsumer(InMemoryMessageConsumer consumer) {
+    consumers.remove(consumer);
+  }
+
+  void start() {
+    for (InMemoryMessageConsumer consumer : consumers) {
+      consumer.start();
+    }
+  }
+
+  @Override
+  public BytesMessage createBytesMessage() {
+    return new InMemoryBytesMessage();
+  }
+
+  @Override
+  public MapMessage createMapMessage() {
+    return new InMemoryMapMessage();
+  }
+
+  @Override
+  public Message createMessage() {
+    return new InMemoryMessage();
+  }
+
+  @Override
+  public ObjectMessage createObjectMessage() throws JMSException {
+    return new InMemoryObjectMessage(null);
+  }
+
+  @Override
+  public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+    return new InMemoryObjectMessage(object);
+  }
+
+  @Override
+  public StreamMessage createStreamMessage() {
+    throw new UnsupportedOperationException("StreamMessage is not supported");
+  }
+
+  @Override
+  public TextMessage createTextMessage() {
+    return new InMemoryTextMessage(null);
+  }
+
+  @Override
+  public TextMessage createTextMessage(String text) {
+    return new InMemoryTextMessage(text);
+  }
+
+  @Override
+  public boolean getTransacted() {
+    return acknowledgeMode == Session.SESSION_TRANSACTED;
+  }
+
+  @Override
+  public int getAcknowledgeMode() {
+    return acknowledgeMode;
+  }
+
+  @Override
+  public void commit() throws JMSException {
+    checkTransacted();
+    List<PendingSend> sends = new ArrayList<>(pending);
+    pending.clear();
+    for (PendingSend send : sends) {
+      broker().send(send.destination, send.message);
+    }
+  }
+
+  @Override
+  public void rollback() throws JMSException {
+    checkTransacted();
+    pending.clear();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    for (InMemoryMessageConsumer consumer : consumers) {
+      consumer.close();
+    }
+    pending.clear();
+    closed = true;
+    connection.removeSession(this);
+  }
+
+  @Override
+  public void recover() {
+  }
+
+  @Override
+  public MessageListener getMessageListener() {
+    throw new UnsupportedOperationException("Session message listeners are not supported");
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) {
+    throw new UnsupportedOperationException("Session message listeners are not supported");
+  }
+
+  @Override
+  public void run() {
+    throw new UnsupportedOperationException("Session message listeners are not supported");
+  }
+
+  @Override
+  public MessageProducer createProducer(Destination destination) throws JMSException {
+    checkOpen();
+    return new InMemoryMessageProducer(this, destination);
+  }
+
+  @Override
+  public MessageConsumer createConsumer(Destination destination) throws JMSException {
+    checkOpen();
+    InMemoryMessageConsumer consumer;
+    if (destination instanceof Queue) {
+      Mailbox mailbox = broker().queue(((Queue) destination).getQueueName());
+      consumer = new InMemoryMessageConsumer(this, mailbox, null);
+    } else if (destination instanceof Topic) {
+      String topicName = ((Topic) destination).getTopicName();
+      consumer = new InMemoryMessageConsumer(this, broker().subscribe(topicName), topicName);
+    } else {
+      throw new InvalidDestinationException("Unsupported destination " + destination);
+    }
+    consumers.add(consumer);
+    return consumer;
+  }
+
+  @Override
+  public MessageConsumer createConsumer(Destination destination, String messageSelector)
+      throws JMSException {
+    checkNoSelector(messageSelector);
+    return createConsumer(destination);
+  }
+
+  @Override
+  public MessageConsumer createConsumer(Destination destination, String messageSelector,
+      boolean noLocal) throws JMSException {
+    checkNoSelector(messageSelector);
+    return createConsumer(destination);
+  }
+
+  @Override
+  public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) {
+    throw new UnsupportedOperationException("Shared subscriptions are not supported");
+  }
+
+  @Override
+  public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName,
+      String messageSelector) {
+    throw new UnsupportedOperationException("Shared subscriptions are not supported");
+  }
+
+  @Override
+  public Queue createQueue(String queueName) {
+    return new InMemoryQueue(queueName);
+  }
+
+  @Override
+  public Topic createTopic(String topicName) {
+    return new InMemoryTopic(topicName);
+  }
+
+  @Override
+  public TopicSubscriber createDurableSubscriber(Topic topic, String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public TopicSubscriber createDurableSubscriber(Topic topic, String name,
+      String messageSelector, boolean noLocal) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public MessageConsumer createDurableConsumer(Topic topic, String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public MessageConsumer createDurableConsumer(Topic topic, String name, String messageSelector,
+      boolean noLocal) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public MessageConsumer createSharedDurableConsumer(Topic topic, String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public MessageConsumer createSharedDurableConsumer(Topic topic, String name,
+      String messageSelector) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  @Override
+  public QueueBrowser createBrowser(Queue queue) {
+    throw new UnsupportedOperationException("Queue browsers are not supported");
+  }
+
+  @Override
+  public QueueBrowser createBrowser(Queue queue, String messageSelector) {
+    throw new UnsupportedOperationException("Queue browsers are not supported");
+  }
+
+  @Override
+  public TemporaryQueue createTemporaryQueue() {
+    return new InMemoryTemporaryQueue(broker(), broker().nextTemporaryName("temp-queue-"));
+  }
+
+  @Override
+  public TemporaryTopic createTemporaryTopic() {
+    return new InMemoryTemporaryTopic(broker(), broker().nextTemporaryName("temp-topic-"));
+  }
+
+  @Override
+  public void unsubscribe(String name) {
+    throw new UnsupportedOperationException("Durable subscriptions are not supported");
+  }
+
+  private void checkOpen() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("Session is closed");
+    }
+  }
+
+  private void checkTransacted() throws JMSException {
+    checkOpen();
+    if (acknowledgeMode != Session.SESSION_TRANSACTED) {
+      throw new IllegalStateException("Session is not transacted");
+    }
+  }
+
+  private static void checkNoSelector(String messageSelector) {
+    if (messageSelector != null && !messageSelector.trim().isEmpty()) {
+      throw new UnsupportedOperationException("Message selectors are not supported");
+    }
+  }
+
+  private static class PendingSend {
+
+    private final Destination destination;
+    private final InMemoryMessage message;
+
+    PendingSend(Destination destination, InMemoryMessage message) {
+      this.destination = destination;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.TextMessage;
+
+class InMemoryTextMessage extends InMemoryMessage implements TextMessage {
+
+  private String text;
+
+  InMemoryTextMessage(String text) {
+    this.text = text;
+  }
+
+  @Override
+  InMemoryMessage copy() {
+    return copyProperties(new InMemoryTextMessage(text));
+  }
+
+  @Override
+  public void setText(String text) throws JMSException {
+    checkBodyWriteable();
+    this.text = text;
+  }
+
+  @Override
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public void clearBody() throws JMSException {
+    super.clearBody();
+    text = null;
+  }
+
+  @Override
+  public <T> T getBody(Class<T> c) throws JMSException {
+    if (!isBodyAssignableTo(c)) {
+      throw new MessageFormatException("Cannot assign text body to " + c);
+    }
+    return c.cast(text);
+  }
+
+  @Override
+  public boolean isBodyAssignableTo(Class c) {
+    return text == null || c.isAssignableFrom(String.class);
+  }
+}
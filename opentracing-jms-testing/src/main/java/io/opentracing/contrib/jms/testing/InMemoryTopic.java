@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import javax.jms.Topic;
+
+class InMemoryTopic implements Topic {
+
+  private final String name;
+
+  InMemoryTopic(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String getTopicName() {
+    return name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof InMemoryTopic && name.equals(((InMemoryTopic) o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "topic://" + name;
+  }
+}
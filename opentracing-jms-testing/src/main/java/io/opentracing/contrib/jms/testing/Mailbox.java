@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Messages of a queue or of one topic subscription. Consumers with a message listener are handed
+ * messages in the sending thread, round robin, other consumers poll.
+ */
+final class Mailbox {
+
+  private final ConcurrentLinkedQueue<InMemoryMessage> messages = new ConcurrentLinkedQueue<>();
+  private final CopyOnWriteArrayList<InMemoryMessageConsumer> listeners =
+      new CopyOnWriteArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  void deliver(InMemoryMessage message) {
+    messages.offer(message);
+    dispatch();
+  }
+
+  InMemoryMessage poll() {
+    return messages.poll();
+  }
+
+  boolean isEmpty() {
+    return messages.isEmpty();
+  }
+
+  int size() {
+    return messages.size();
+  }
+
+  void addListener(InMemoryMessageConsumer consumer) {
+    listeners.addIfAbsent(consumer);
+    dispatch();
+  }
+
+  void removeListener(InMemoryMessageConsumer consumer) {
+    listeners.remove(consumer);
+  }
+
+  /**
+   * Let one listening consumer drain the messages. A consumer already draining in another thread
+   * picks up the new messages before it returns.
+   */
+  void dispatch() {
+    if (messages.isEmpty()) {
+      return;
+    }
+    Object[] consumers = listeners.toArray();
+    if (consumers.length == 0) {
+      return;
+    }
+    int start = next.getAndIncrement() & Integer.MAX_VALUE;
+    for (int i = 0; i < consumers.length; i++) {
+      if (((InMemoryMessageConsumer) consumers[(start + i) % consumers.length]).drain(this)) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.jms.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.opentracing.contrib.jms2.TracingConnectionFactory;
+import io.opentracing.contrib.jms2.TracingJMSContext;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.jms.Connection;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryConnectionFactoryTest {
+
+  private final MockTracer mockTracer = new MockTracer();
+  private final InMemoryConnectionFactory connectionFactory = new InMemoryConnectionFactory();
+  private Connection connection;
+  private Session session;
+
+  @Before
+  public void before() throws Exception {
+    connection = connectionFactory.createConnection();
+    connection.start();
+    session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+  }
+
+  @After
+  public void after() throws Exception {
+    connection.close();
+  }
+
+  @Test
+  public void sendAndReceive() throws Exception {
+    Queue queue = session.createQueue("TEST.FOO");
+    TextMessage message = session.createTextMessage("Hello world");
+    message.setStringProperty("tenant", "acme");
+
+    session.createProducer(queue).send(message);
+    TextMessage received = (TextMessage) session.createConsumer(queue).receive(1000);
+
+    assertEquals("Hello world", received.getText());
+    assertEquals("acme", received.getStringProperty("tenant"));
+    assertEquals(message.getJMSMessageID(), received.getJMSMessageID());
+    assertEquals(queue, received.getJMSDestination());
+    assertTrue(received.getJMSTimestamp() > 0);
+  }
+
+  @Test
+  public void receivedPropertiesAreReadOnly() throws Exception {
+    Queue queue = session.createQueue("TEST.FOO");
+    session.createProducer(queue).send(session.createTextMessage("Hello world"));
+    Message received = session.createConsumer(queue).receive(1000);
+
+    try {
+      received.setStringProperty("tenant", "acme");
+      fail();
+    } catch (MessageNotWriteableException expected) {
+    }
+    received.clearProperties();
+    received.setStringProperty("tenant", "acme");
+  }
+
+  @Test
+  public void propertyConversions() throws Exception {
+    Message message = session.createMessage();
+    message.setIntProperty("count", 42);
+    message.setStringProperty("id", "7");
+
+    assertEquals("42", message.getStringProperty("count"));
+    assertEquals(42L, message.getLongProperty("count"));
+    assertEquals(7L, message.getLongProperty("id"));
+    assertNull(message.getStringProperty("absent"));
+    assertTrue(message.propertyExists("count"));
+    try {
+      message.setStringProperty("uber-trace-id", "1");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void sentMessageIsCopied() throws Exception {
+    Queue queue = session.createQueue("TEST.FOO");
+    TextMessage message = session.createTextMessage("Hello world");
+    session.createProducer(queue).send(message);
+    message.setText("changed");
+
+    assertEquals("Hello world",
+        ((TextMessage) session.createConsumer(queue).receive(1000)).getText());
+  }
+
+  @Test
+  public void topicDeliversToEverySubscriber() throws Exception {
+    Topic topic = session.createTopic("TEST.TOPIC");
+    MessageConsumer first = session.createConsumer(topic);
+    MessageConsumer second = session.createConsumer(topic);
+
+    session.createProducer(topic).send(session.createTextMessage("Hello world"));
+
+    assertNotNull(first.receiveNoWait());
+    assertNotNull(second.receiveNoWait());
+    assertNull(first.receiveNoWait());
+  }
+
+  @Test
+  public void listenerIsCalledInSendingThread() throws Exception {
+    Queue queue = session.createQueue("TEST.FOO");
+    final List<Thread> threads = new ArrayList<>();
+    session.createConsumer(queue).setMessageListener(new MessageListener() {
+      @Override
+      public void onMessage(Message message) {
+        threads.add(Thread.currentThread());
+      }
+    });
+
+    session.createProducer(queue).send(session.createTextMessage("Hello world"));
+
+    assertEquals(1, threads.size());
+    assertSame(Thread.currentThread(), threads.get(0));
+  }
+
+  @Test
+  public void noDeliveryBeforeStart() throws Exception {
+    Connection stopped = connectionFactory.createConnection();
+    Session stoppedSession = stopped.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    Queue queue = stoppedSession.createQueue("TEST.FOO");
+    MessageConsumer consumer = stoppedSession.createConsumer(queue);
+    stoppedSession.createProducer(queue).send(stoppedSession.createTextMessage("Hello world"));
+
+    assertNull(consumer.receiveNoWait());
+    stopped.start();
+    assertNotNull(consumer.receiveNoWait());
+    stopped.close();
+  }
+
+  @Test
+  public void transactedSessionDeliversOnCommit() throws Exception {
+    Session transacted = connection.createSession(true, Session.SESSION_TRANSACTED);
+    Queue queue = transacted.createQueue("TEST.FOO");
+    MessageProducer producer = transacted.createProducer(queue);
+    MessageConsumer consumer = session.createConsumer(queue);
+
+    producer.send(transacted.createTextMessage("rolled back"));
+    transacted.rollback();
+    producer.send(transacted.createTextMessage("committed"));
+    assertNull(consumer.receiveNoWait());
+    transacted.commit();
+
+    assertEquals("committed", ((TextMessage) consumer.receiveNoWait()).getText());
+    assertNull(consumer.receiveNoWait());
+  }
+
+  @Test
+  public void tracedSendAndReceive() throws Exception {
+    Connection tracedConnection = new TracingConnectionFactory(connectionFactory, mockTracer)
+        .createConnection();
+    tracedConnection.start();
+    Session tracedSession = tracedConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    Queue queue = tracedSession.createQueue("TEST.FOO");
+    MessageConsumer consumer = tracedSession.createConsumer(queue);
+
+    tracedSession.createProducer(queue).send(tracedSession.createTextMessage("Hello world"));
+    assertNotNull(consumer.receive(1000));
+    tracedConnection.close();
+
+    List<MockSpan> spans = mockTracer.finishedSpans();
+    assertEquals(2, spans.size());
+    assertEquals(spans.get(0).context().traceId(), spans.get(1).context().traceId());
+    assertEquals(spans.get(0).context().spanId(), spans.get(1).references().get(0).getContext()
+        .spanId());
+  }
+
+  @Test
+  public void tracedJmsContext() throws Exception {
+    JMSContext context = new TracingJMSContext(connectionFactory.createContext(), mockTracer);
+    Queue queue = context.createQueue("TEST.FOO");
+
+    context.createProducer().setProperty("tenant", "acme").send(queue, "Hello world");
+    Message received = context.createConsumer(queue).receive(1000);
+    context.close();
+
+    assertNotNull(received);
+    assertEquals(1, mockTracer.finishedSpans().size());
+    assertEquals(String.valueOf(mockTracer.finishedSpans().get(0).context().traceId()),
+        received.getObjectProperty("traceid"));
+  }
+}